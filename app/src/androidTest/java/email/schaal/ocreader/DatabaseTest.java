@@ -29,11 +29,18 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
+import java.util.Arrays;
+import java.util.Collections;
+
+import email.schaal.ocreader.database.BodyStore;
 import email.schaal.ocreader.database.Queries;
+import email.schaal.ocreader.database.SearchIndex;
+import email.schaal.ocreader.database.model.Body;
 import email.schaal.ocreader.database.model.Feed;
 import email.schaal.ocreader.database.model.Folder;
 import email.schaal.ocreader.database.model.Item;
 import io.realm.Realm;
+import io.realm.RealmObject;
 
 import static email.schaal.ocreader.TestGenerator.AUTHOR;
 import static email.schaal.ocreader.TestGenerator.BODY;
@@ -43,7 +50,9 @@ import static email.schaal.ocreader.TestGenerator.ITEM_TITLE;
 import static email.schaal.ocreader.TestGenerator.getTestFeed;
 import static email.schaal.ocreader.TestGenerator.getTestFolder;
 import static email.schaal.ocreader.TestGenerator.getTestItem;
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
@@ -137,4 +146,185 @@ public class DatabaseTest {
             realm.close();
         }
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testItemStateUpdateKeepsContent() {
+        assertStateUpdateKeepsContent("contentHash");
+    }
+
+    @Test
+    public void testItemStateUpdateWithoutContentHashKeepsContent() {
+        assertStateUpdateKeepsContent(null);
+    }
+
+    private void assertStateUpdateKeepsContent(String contentHash) {
+        Realm realm = null;
+        try {
+            realm = Realm.getDefaultInstance();
+            Queries.insert(realm, getTestFeed());
+            Queries.insert(realm, Collections.singletonList(getSyncedItem(contentHash, true, 1)));
+
+            Item item = realm.where(Item.class).findFirst();
+            assertNotNull(item);
+            final Body body = item.getStoredBody();
+            assertNotNull(body);
+            assertEquals(1, body.getReferences());
+
+            // A full rewrite would reset the local active flag
+            realm.executeTransaction(realm1 -> realm1.where(Item.class).findFirst().setActive(true));
+
+            // Read on another device
+            Queries.insert(realm, Collections.singletonList(getSyncedItem(contentHash, false, 2)));
+
+            item = realm.where(Item.class).findFirst();
+            assertNotNull(item);
+            assertFalse(item.isUnread());
+            assertEquals(2, item.getLastModified());
+            assertTrue(item.isActive());
+            assertTrue(RealmObject.isValid(body));
+            assertEquals(body.getHash(), item.getStoredBody().getHash());
+            assertEquals(1, body.getReferences());
+            assertEquals(BODY, item.getBody());
+            assertArrayEquals(new long[] { 1 }, SearchIndex.search(realm, ITEM_TITLE));
+        } finally {
+            assertNotNull(realm);
+            realm.close();
+        }
+    }
+
+    private static Item getSyncedItem(String contentHash, boolean unread, long lastModified) {
+        return new Item.Builder()
+                .setId(1)
+                .setTitle(ITEM_TITLE)
+                .setBody(BODY)
+                .setAuthor(AUTHOR)
+                .setFeedId(1)
+                .setContentHash(contentHash)
+                .setUnread(unread)
+                .setLastModified(lastModified)
+                .build();
+    }
+
+    @Test
+    public void testBodyAcquireRelease() {
+        Realm realm = null;
+        try {
+            realm = Realm.getDefaultInstance();
+            final BodyStore bodyStore = BodyStore.getInstance();
+            assertNotNull(bodyStore);
+
+            realm.executeTransaction(realm1 -> {
+                final Body body = Body.acquire(realm1, bodyStore, BODY);
+                assertNotNull(body);
+                assertEquals(1, body.getReferences());
+                assertEquals(BODY, bodyStore.get(body.getAddress()));
+
+                final Body sameBody = Body.acquire(realm1, bodyStore, BODY);
+                assertNotNull(sameBody);
+                assertEquals(body.getHash(), sameBody.getHash());
+                assertEquals(2, body.getReferences());
+
+                body.release();
+                assertEquals(1, body.getReferences());
+                body.release();
+                assertFalse(RealmObject.isValid(body));
+            });
+
+            assertEquals(0, realm.where(Body.class).count());
+        } finally {
+            assertNotNull(realm);
+            realm.close();
+        }
+    }
+
+    @Test
+    public void testBodySharedByFeeds() {
+        Realm realm = null;
+        try {
+            realm = Realm.getDefaultInstance();
+            insertCrossPostedItems(realm);
+
+            final Body body = realm.where(Body.class).findFirst();
+            assertNotNull(body);
+            assertEquals(1, realm.where(Body.class).count());
+            assertEquals(2, body.getReferences());
+
+            for(Item item: realm.where(Item.class).findAll()) {
+                assertEquals(body.getHash(), item.getStoredBody().getHash());
+                assertEquals(BODY, item.getBody());
+            }
+        } finally {
+            assertNotNull(realm);
+            realm.close();
+        }
+    }
+
+    @Test
+    public void testBodyReleasedWithFeed() {
+        Realm realm = null;
+        try {
+            realm = Realm.getDefaultInstance();
+            insertCrossPostedItems(realm);
+
+            realm.executeTransaction(realm1 -> Feed.get(realm1, 1).delete(realm1));
+
+            final Body body = realm.where(Body.class).findFirst();
+            assertNotNull(body);
+            assertEquals(1, body.getReferences());
+            assertEquals(BODY, realm.where(Item.class).equalTo(Item.ID, 2).findFirst().getBody());
+
+            realm.executeTransaction(realm1 -> Feed.get(realm1, 2).delete(realm1));
+
+            assertEquals(0, realm.where(Body.class).count());
+        } finally {
+            assertNotNull(realm);
+            realm.close();
+        }
+    }
+
+    @Test
+    public void testBodyReleasedWithExcessItems() {
+        Realm realm = null;
+        try {
+            realm = Realm.getDefaultInstance();
+            insertCrossPostedItems(realm);
+
+            Queries.removeExcessItems(realm, 1);
+
+            assertEquals(1, realm.where(Item.class).count());
+            final Body body = realm.where(Body.class).findFirst();
+            assertNotNull(body);
+            assertEquals(1, body.getReferences());
+            assertEquals(BODY, realm.where(Item.class).findFirst().getBody());
+
+            Queries.removeExcessItems(realm, 0);
+
+            assertEquals(0, realm.where(Item.class).count());
+            assertEquals(0, realm.where(Body.class).count());
+        } finally {
+            assertNotNull(realm);
+            realm.close();
+        }
+    }
+
+    /**
+     * Insert two read items with the same body in two feeds
+     */
+    private static void insertCrossPostedItems(Realm realm) {
+        Queries.insert(realm, getTestFeed(1));
+        Queries.insert(realm, getTestFeed(2));
+        Queries.insert(realm, Arrays.asList(getCrossPostedItem(1, 1), getCrossPostedItem(2, 2)));
+    }
+
+    private static Item getCrossPostedItem(long id, long feedId) {
+        return new Item.Builder()
+                .setId(id)
+                .setTitle(ITEM_TITLE)
+                .setBody(BODY)
+                .setAuthor(AUTHOR)
+                .setFeedId(feedId)
+                .setUnread(false)
+                .setLastModified(id)
+                .build();
+    }
+}
@@ -275,45 +275,40 @@ public class ItemPagerActivity extends RealmActivity {
         private final ArgbEvaluator argbEvaluator = new ArgbEvaluator();
 
         private boolean firstRun = true;
-        private final FaviconLoader.FeedColorsListener toListener = new FaviconLoader.FeedColorsListener() {
-            @Override
-            public void onGenerated(@NonNull FeedColors feedColors) {
-                colorTo = feedColors.getColor(FeedColors.Type.TEXT, defaultToolbarColor);
-                fabColorTo = feedColors.getColor(FeedColors.Type.BACKGROUND, defaultAccent);
-
-                if(firstRun) {
-                    firstRun = false;
-
-                    if(currentNightMode == Configuration.UI_MODE_NIGHT_NO)
-                        statusBarChanger.setStatusBarColor(colorTo);
-
-                    binding.fabLayout.setFabBackgroundColor(fabColorTo);
-                } else {
-                    ObjectAnimator fabAnimator =
-                            ObjectAnimator
-                                    .ofInt(binding.fabLayout, "fabBackgroundColor", fabColorFrom, fabColorTo);
-                    fabAnimator.setEvaluator(argbEvaluator);
-
-                    final AnimatorSet animatorSet = new AnimatorSet();
-                    final AnimatorSet.Builder animatorSetBuilder = animatorSet.play(fabAnimator);
-
-                    if(currentNightMode == Configuration.UI_MODE_NIGHT_NO) {
-                        ObjectAnimator statusBarAnimator = ObjectAnimator.ofInt(statusBarChanger, "statusBarColor", colorFrom, colorTo);
-                        statusBarAnimator.setEvaluator(argbEvaluator);
-                        animatorSetBuilder.with(statusBarAnimator);
-                    }
-
-                    animatorSet.setDuration(DURATION);
-                    animatorSet.start();
+
+        private void setFeedColors(@NonNull FeedColors feedColors) {
+            colorFrom = colorTo;
+            fabColorFrom = fabColorTo;
+
+            colorTo = feedColors.getColor(FeedColors.Type.TEXT, defaultToolbarColor);
+            fabColorTo = feedColors.getColor(FeedColors.Type.BACKGROUND, defaultAccent);
+
+            if(firstRun) {
+                firstRun = false;
+
+                if(currentNightMode == Configuration.UI_MODE_NIGHT_NO)
+                    statusBarChanger.setStatusBarColor(colorTo);
+
+                binding.fabLayout.setFabBackgroundColor(fabColorTo);
+            } else {
+                ObjectAnimator fabAnimator =
+                        ObjectAnimator
+                                .ofInt(binding.fabLayout, "fabBackgroundColor", fabColorFrom, fabColorTo);
+                fabAnimator.setEvaluator(argbEvaluator);
+
+                final AnimatorSet animatorSet = new AnimatorSet();
+                final AnimatorSet.Builder animatorSetBuilder = animatorSet.play(fabAnimator);
+
+                if(currentNightMode == Configuration.UI_MODE_NIGHT_NO) {
+                    ObjectAnimator statusBarAnimator = ObjectAnimator.ofInt(statusBarChanger, "statusBarColor", colorFrom, colorTo);
+                    statusBarAnimator.setEvaluator(argbEvaluator);
+                    animatorSetBuilder.with(statusBarAnimator);
                 }
-            }
 
-            @Override
-            public void onStart() {
-                colorFrom = colorTo;
-                fabColorFrom = fabColorTo;
+                animatorSet.setDuration(DURATION);
+                animatorSet.start();
             }
-        };
+        }
 
         MyOnPageChangeListener(SectionsPagerAdapter mSectionsPagerAdapter) {
             this.mSectionsPagerAdapter = mSectionsPagerAdapter;
@@ -341,7 +336,9 @@ public class ItemPagerActivity extends RealmActivity {
                     .withGenerateFallbackImage(false)
                     .withPlaceholder(R.drawable.ic_open_in_browser)
                     .build()
-                    .load(ItemPagerActivity.this, item.getFeed(), toListener);
+                    .load(ItemPagerActivity.this, item.getFeed());
+
+            setFeedColors(FaviconLoader.getFeedColors(ItemPagerActivity.this, item.getFeed()));
 
             progressFrom = progressTo;
             progressTo = (float) (position + 1) / (float) mSectionsPagerAdapter.getCount();
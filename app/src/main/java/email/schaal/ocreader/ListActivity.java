@@ -29,9 +29,11 @@ import androidx.databinding.DataBindingUtil;
 import android.graphics.Bitmap;
 import android.graphics.BitmapFactory;
 import android.os.Bundle;
+import android.os.Handler;
 import android.preference.PreferenceManager;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.appcompat.widget.SearchView;
 import com.google.android.material.snackbar.Snackbar;
 import androidx.core.content.ContextCompat;
 import androidx.localbroadcastmanager.content.LocalBroadcastManager;
@@ -65,27 +67,39 @@ import com.mikepenz.materialdrawer.model.interfaces.Nameable;
 import com.mikepenz.materialdrawer.model.interfaces.Tagable;
 
 import java.io.ByteArrayInputStream;
+import java.util.List;
 
 import email.schaal.ocreader.database.Queries;
+import email.schaal.ocreader.database.SearchIndex;
 import email.schaal.ocreader.database.model.AllUnreadFolder;
 import email.schaal.ocreader.database.model.Feed;
+import email.schaal.ocreader.database.model.Folder;
 import email.schaal.ocreader.database.model.Item;
+import email.schaal.ocreader.database.model.SavedSearch;
+import email.schaal.ocreader.database.model.SearchFolder;
 import email.schaal.ocreader.database.model.TemporaryFeed;
 import email.schaal.ocreader.database.model.TreeItem;
 import email.schaal.ocreader.database.model.User;
 import email.schaal.ocreader.databinding.ActivityListBinding;
+import email.schaal.ocreader.service.SyncCoordinator;
 import email.schaal.ocreader.service.SyncService;
 import email.schaal.ocreader.service.SyncType;
+import email.schaal.ocreader.util.StartupTrace;
 import email.schaal.ocreader.view.DividerItemDecoration;
 import email.schaal.ocreader.view.ErrorAdapter;
 import email.schaal.ocreader.view.ItemViewHolder;
 import email.schaal.ocreader.view.LoadMoreAdapter;
+import email.schaal.ocreader.view.SavedSearchDialogFragment;
+import email.schaal.ocreader.view.SavedSearchListener;
 import email.schaal.ocreader.view.drawer.DrawerManager;
 
-public class ListActivity extends RealmActivity implements ItemViewHolder.OnClickListener, SwipeRefreshLayout.OnRefreshListener, LoadMoreAdapter.OnLoadMoreListener, ActionMode.Callback {
+public class ListActivity extends RealmActivity implements ItemViewHolder.OnClickListener, SwipeRefreshLayout.OnRefreshListener, LoadMoreAdapter.OnLoadMoreListener, ActionMode.Callback, SavedSearchListener {
     private static final String TAG = ListActivity.class.getName();
 
     private static final int REFRESH_DRAWER_ITEM_ID = 999;
+
+    // Wait until typing paused before searching
+    private static final long SEARCH_DELAY = 300;
     public static final String LAYOUT_MANAGER_STATE = "LAYOUT_MANAGER_STATE";
 
     private ActionMode actionMode;
@@ -96,14 +110,21 @@ public class ListActivity extends RealmActivity implements ItemViewHolder.OnClic
         public void onReceive(Context context, Intent intent) {
             final String action = intent.getAction();
 
-            if(action != null && (action.equals(SyncService.SYNC_STARTED) || action.equals(SyncService.SYNC_FINISHED))) {
+            if(SyncService.SYNC_QUEUE_CHANGED.equals(action)) {
+                updateSyncStatus();
+            } else if(SyncService.SYNC_PROGRESS.equals(action)) {
+                // Show the items stored so far
+                if(SyncType.get(intent.getStringExtra(SyncService.EXTRA_TYPE)) == SyncType.FULL_SYNC)
+                    adapter.updateItems(true);
+            } else if(action != null && (action.equals(SyncService.SYNC_STARTED) || action.equals(SyncService.SYNC_FINISHED))) {
                 final SyncType syncType = SyncType.get(intent.getStringExtra(SyncService.EXTRA_TYPE));
                 if(syncType != null) {
                     switch (syncType) {
                         case LOAD_MORE:
                             if (action.equals(SyncService.SYNC_FINISHED)) {
                                 adapter.updateItems(true);
-                                adapter.resetLoadMore();
+                                if(!SyncCoordinator.getInstance(context).isPending(SyncType.LOAD_MORE))
+                                    adapter.resetLoadMore();
                             }
                             break;
                         case FULL_SYNC:
@@ -146,6 +167,11 @@ public class ListActivity extends RealmActivity implements ItemViewHolder.OnClic
 
             adapter.updateItems(true);
 
+            // The results of a search are found once, find the synced items
+            final TreeItem treeItem = drawerManager.getState().getTreeItem();
+            if(treeItem instanceof SearchFolder)
+                search(((SearchFolder) treeItem).getQuery(), 0);
+
             updateUserProfile();
 
             sharedPreferences.edit()
@@ -161,12 +187,25 @@ public class ListActivity extends RealmActivity implements ItemViewHolder.OnClic
             binding.swipeRefreshLayout.setRefreshing(syncRunning);
         }
 
-        if(!syncRunning)
+        // LOAD_MORE may still wait for a full sync
+        if(!syncRunning && !SyncCoordinator.getInstance(this).isPending(SyncType.LOAD_MORE))
             adapter.resetLoadMore();
     }
 
     private Drawer startDrawer;
     private DrawerManager drawerManager;
+
+    private final Handler searchHandler = new Handler();
+    // Query shown once its search finished, null if the search was closed
+    @Nullable private String pendingQuery;
+    private final Runnable searchRunnable = () -> {
+        if(pendingQuery != null)
+            SearchIndex.searchInBackground(pendingQuery, this::onSearchFinished);
+    };
+
+    // Drawer selection before the search was opened, restored when it is closed
+    private TreeItem startDrawerItemBeforeSearch;
+    @Nullable private Feed endDrawerItemBeforeSearch;
     private ProfileDrawerItem profileDrawerItem;
     private PrimaryDrawerItem refreshDrawerItem;
     private AccountHeader accountHeader;
@@ -174,6 +213,12 @@ public class ListActivity extends RealmActivity implements ItemViewHolder.OnClic
     private ErrorAdapter adapter;
     private LinearLayoutManager layoutManager;
 
+    @Override
+    protected void onDestroy() {
+        searchHandler.removeCallbacks(searchRunnable);
+        super.onDestroy();
+    }
+
     @Override
     protected void onPause() {
         super.onPause();
@@ -199,6 +244,8 @@ public class ListActivity extends RealmActivity implements ItemViewHolder.OnClic
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
+        StartupTrace.beginSection("ListActivity.onCreate");
+        StartupTrace.recordFirstFrame(this);
         binding = DataBindingUtil.setContentView(this, R.layout.activity_list);
         setSupportActionBar(binding.toolbarLayout.toolbar);
 
@@ -289,6 +336,13 @@ public class ListActivity extends RealmActivity implements ItemViewHolder.OnClic
                     }
                     return true;
                 })
+                .withOnDrawerItemLongClickListener((view, position, drawerItem) -> {
+                    if (drawerItem.getTag() instanceof SavedSearch) {
+                        SavedSearchDialogFragment.showEdit(this, (SavedSearch) drawerItem.getTag());
+                        return true;
+                    }
+                    return false;
+                })
                 .withSavedInstance(savedInstanceState);
 
         DrawerBuilder endDrawerBuilder = new DrawerBuilder()
@@ -382,6 +436,8 @@ public class ListActivity extends RealmActivity implements ItemViewHolder.OnClic
 
         //noinspection ConstantConditions
         getSupportActionBar().setTitle(drawerManager.getState().getTreeItem().getName());
+
+        StartupTrace.endSection();
     }
 
     private boolean isShowOnlyUnread() {
@@ -456,9 +512,72 @@ public class ListActivity extends RealmActivity implements ItemViewHolder.OnClic
     @Override
     public boolean onCreateOptionsMenu(Menu menu) {
         getMenuInflater().inflate(R.menu.menu_item_list, menu);
+
+        final MenuItem searchItem = menu.findItem(R.id.menu_search);
+        final SearchView searchView = (SearchView) searchItem.getActionView();
+
+        searchView.setQueryHint(getString(R.string.search_items));
+        searchView.setOnQueryTextListener(new SearchView.OnQueryTextListener() {
+            @Override
+            public boolean onQueryTextSubmit(String query) {
+                search(query, 0);
+                searchView.clearFocus();
+                return true;
+            }
+
+            @Override
+            public boolean onQueryTextChange(String newText) {
+                search(newText, SEARCH_DELAY);
+                return true;
+            }
+        });
+
+        searchItem.setOnActionExpandListener(new MenuItem.OnActionExpandListener() {
+            @Override
+            public boolean onMenuItemActionExpand(MenuItem item) {
+                startDrawerItemBeforeSearch = drawerManager.getState().getStartDrawerItem();
+                endDrawerItemBeforeSearch = drawerManager.getState().getEndDrawerItem();
+                return true;
+            }
+
+            @Override
+            public boolean onMenuItemActionCollapse(MenuItem item) {
+                pendingQuery = null;
+                searchHandler.removeCallbacks(searchRunnable);
+                if(drawerManager.getState().getStartDrawerItem() instanceof SearchFolder && startDrawerItemBeforeSearch != null) {
+                    drawerManager.setSelectedTreeItem(getRealm(), startDrawerItemBeforeSearch, isShowOnlyUnread());
+                    if(endDrawerItemBeforeSearch != null)
+                        drawerManager.setSelectedFeed(endDrawerItemBeforeSearch);
+                    reloadListFragment();
+                }
+                return true;
+            }
+        });
+
         return true;
     }
 
+    /**
+     * Search for query in the background after delay, only the last query is shown
+     */
+    private void search(String query, long delay) {
+        final String trimmedQuery = query.trim();
+        if(trimmedQuery.isEmpty())
+            return;
+
+        pendingQuery = trimmedQuery;
+        searchHandler.removeCallbacks(searchRunnable);
+        searchHandler.postDelayed(searchRunnable, delay);
+    }
+
+    private void onSearchFinished(@NonNull String query, @NonNull long[] ids) {
+        if(isDestroyed() || !query.equals(pendingQuery))
+            return;
+
+        drawerManager.setSelectedTreeItem(getRealm(), new SearchFolder(query, ids), isShowOnlyUnread());
+        reloadListFragment();
+    }
+
     @Override
     public boolean onOptionsItemSelected(MenuItem item) {
         switch(item.getItemId()) {
@@ -468,10 +587,59 @@ public class ListActivity extends RealmActivity implements ItemViewHolder.OnClic
             case R.id.menu_manage_feeds:
                 startActivityForResult(new Intent(this, ManageFeedsActivity.class), ManageFeedsActivity.REQUEST_CODE);
                 return true;
+            case R.id.menu_save_search:
+                showSaveSearchDialog();
+                return true;
         }
         return super.onOptionsItemSelected(item);
     }
 
+    private void showSaveSearchDialog() {
+        final TreeItem treeItem = drawerManager.getState().getTreeItem();
+
+        String keywords = null;
+        TreeItem selectedItem = treeItem;
+        if(treeItem instanceof SearchFolder) {
+            keywords = ((SearchFolder) treeItem).getQuery();
+            selectedItem = endDrawerItemBeforeSearch != null ? endDrawerItemBeforeSearch : startDrawerItemBeforeSearch;
+        }
+
+        // Offer the feeds of the selected feed or folder as filter
+        long[] feedIds = new long[0];
+        if(selectedItem instanceof Feed) {
+            feedIds = new long[] { selectedItem.getId() };
+        } else if(selectedItem instanceof Folder) {
+            final List<Feed> feeds = selectedItem.getFeeds(getRealm(), false);
+            feedIds = new long[feeds.size()];
+            for(int i = 0; i < feedIds.length; i++)
+                feedIds[i] = feeds.get(i).getId();
+        }
+
+        SavedSearchDialogFragment.showNew(this, SavedSearch.nextId(getRealm()), keywords, feedIds);
+    }
+
+    @Override
+    public void saveSavedSearch(SavedSearch savedSearch) {
+        Queries.saveSavedSearch(getRealm(), savedSearch, () -> {
+            drawerManager.reloadAdapters(getRealm(), isShowOnlyUnread());
+            if(drawerManager.getState().getTreeItem().getId() == savedSearch.getId())
+                reloadListFragment();
+        });
+    }
+
+    @Override
+    public void deleteSavedSearch(long id) {
+        final boolean selected = drawerManager.getState().getStartDrawerItem().getId() == id;
+
+        Queries.deleteSavedSearch(getRealm(), id);
+
+        if(selected) {
+            drawerManager.reset();
+            reloadListFragment();
+        }
+        drawerManager.reloadAdapters(getRealm(), isShowOnlyUnread());
+    }
+
     private void showAboutDialog() {
         new LibsBuilder()
                 .withAboutIconShown(true)
@@ -492,7 +660,7 @@ public class ListActivity extends RealmActivity implements ItemViewHolder.OnClic
             itemActivityIntent.putExtra(ItemPagerActivity.EXTRA_CURRENT_POSITION, position);
             startActivityForResult(itemActivityIntent, ItemPagerActivity.REQUEST_CODE);
         } else {
-            adapter.toggleSelection(position);
+            adapter.toggleSelection(item.getId(), position);
             if(adapter.getSelectedItemsCount() == 0)
                 actionMode.finish();
             else {
@@ -507,7 +675,7 @@ public class ListActivity extends RealmActivity implements ItemViewHolder.OnClic
         if(actionMode != null || Preferences.SYS_SYNC_RUNNING.getBoolean(PreferenceManager.getDefaultSharedPreferences(this)))
             return;
 
-        adapter.toggleSelection(position);
+        adapter.toggleSelection(item.getId(), position);
         actionMode = startActionMode(this);
     }
 
@@ -566,10 +734,6 @@ public class ListActivity extends RealmActivity implements ItemViewHolder.OnClic
     public boolean onPrepareActionMode(ActionMode mode, Menu menu) {
         int selectedItemsCount = adapter.getSelectedItemsCount();
 
-        // the menu only changes on the first and second selection
-        if(selectedItemsCount > 2)
-            return false;
-
         Item firstSelectedItem = adapter.getFirstSelectedItem();
 
         boolean firstSelectedUnread = firstSelectedItem != null && firstSelectedItem.isUnread();
@@ -589,25 +753,30 @@ public class ListActivity extends RealmActivity implements ItemViewHolder.OnClic
     public boolean onActionItemClicked(ActionMode mode, MenuItem item) {
         switch (item.getItemId()) {
             case R.id.action_mark_read:
-                Queries.setItemsUnread(getRealm(), false, adapter.getSelectedItems());
+                Queries.setItemsUnread(getRealm(), false, adapter.getSelectedItemIds());
                 mode.finish();
                 return true;
             case R.id.action_mark_unread:
-                Queries.setItemsUnread(getRealm(), true, adapter.getSelectedItems());
+                Queries.setItemsUnread(getRealm(), true, adapter.getSelectedItemIds());
                 mode.finish();
                 return true;
             case R.id.action_mark_starred:
-                Queries.setItemsStarred(getRealm(), true, adapter.getSelectedItems());
+                Queries.setItemsStarred(getRealm(), true, adapter.getSelectedItemIds());
                 mode.finish();
                 return true;
             case R.id.action_mark_unstarred:
-                Queries.setItemsStarred(getRealm(), false, adapter.getSelectedItems());
+                Queries.setItemsStarred(getRealm(), false, adapter.getSelectedItemIds());
                 mode.finish();
                 return true;
             case R.id.action_mark_above_read:
-                Queries.markAboveAsRead(getRealm(), adapter.getItems(), adapter.getSelectedItems()[0].getId());
+                Queries.markAboveAsRead(getRealm(), adapter.getItems(), adapter.getFirstSelectedItemId());
                 mode.finish();
                 return true;
+            case R.id.action_select_all:
+                adapter.selectAll();
+                mode.setTitle(String.valueOf(adapter.getSelectedItemsCount()));
+                mode.invalidate();
+                return true;
         }
         return false;
     }
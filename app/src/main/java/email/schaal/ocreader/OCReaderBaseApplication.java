@@ -33,7 +33,8 @@ import com.bumptech.glide.Glide;
 import com.mikepenz.materialdrawer.util.DrawerImageLoader;
 
 import email.schaal.ocreader.database.Queries;
-import email.schaal.ocreader.util.AlarmUtils;
+import email.schaal.ocreader.util.StartupTrace;
+import email.schaal.ocreader.util.SyncScheduler;
 
 /**
  * Application base class to setup the singletons
@@ -47,6 +48,9 @@ public abstract class OCReaderBaseApplication extends Application {
         if(shouldExit())
             return;
 
+        StartupTrace.onApplicationCreate();
+
+        StartupTrace.beginSection("Preferences");
         final SharedPreferences preferences = PreferenceManager.getDefaultSharedPreferences(this);
 
         AppCompatDelegate.setDefaultNightMode(Preferences.getNightMode(preferences));
@@ -54,11 +58,17 @@ public abstract class OCReaderBaseApplication extends Application {
         preferences.edit()
                 .putBoolean(Preferences.SYS_SYNC_RUNNING.getKey(), false)
                 .apply();
+        StartupTrace.endSection();
 
+        // Opens the Realm, the remaining database maintenance runs in the background
+        StartupTrace.beginSection("Queries.init");
         Queries.init(this);
+        StartupTrace.endSection();
 
-        AlarmUtils.init(this);
+        // The JobScheduler is only looked up when a job is scheduled
+        SyncScheduler.init(this);
 
+        StartupTrace.beginSection("DrawerImageLoader.init");
         DrawerImageLoader.init(new DrawerImageLoader.IDrawerImageLoader() {
             @Override
             public void set(ImageView imageView, Uri uri, Drawable placeholder) {
@@ -100,6 +110,7 @@ public abstract class OCReaderBaseApplication extends Application {
                 return AppCompatResources.getDrawable(ctx, drawableRes);
             }
         });
+        StartupTrace.endSection();
     }
 
     /**
@@ -42,6 +42,8 @@ public enum Preferences {
     SORT_FIELD("sort_field", Item.ID, ChangeAction.UPDATE),
     DARK_THEME("dark_theme", false, ChangeAction.RECREATE),
     ARTICLE_FONT("article_font", "system"),
+    MUTE_RULES("mute_rules"),
+    BACKGROUND_SYNC("background_sync", true, ChangeAction.RESCHEDULE),
 
     /** System preferences **/
     SYS_NEEDS_UPDATE_AFTER_SYNC("needs_update_after_sync", false),
@@ -51,6 +53,16 @@ public enum Preferences {
     SYS_ENDRAWERITEM_ID("enddrawer_itemid"),
     SYS_ISFEED("isfeed", false),
 
+    SYS_LAST_COMPACTION_TIME("last_compaction_time", 0L),
+    SYS_LAST_COMPACTION_DURATION("last_compaction_duration", 0L),
+    SYS_LAST_COMPACTION_SIZE_BEFORE("last_compaction_size_before", 0L),
+    SYS_LAST_COMPACTION_SIZE_AFTER("last_compaction_size_after", 0L),
+
+    SYS_LAST_STARTUP_TIME("last_startup_time", 0L),
+    SYS_LAST_SYNC_TIME("last_sync_time", 0L),
+    /** lastModified of the newest item after the last complete sync of the items, -1 if unknown **/
+    SYS_ITEMS_SYNC_TIMESTAMP("items_sync_timestamp", -1L),
+
     SYS_DETECTED_API_LEVEL("detected_api_level"),
     SYS_APIv2_ETAG("apiv2_etag");
 
@@ -60,7 +72,8 @@ public enum Preferences {
     public enum ChangeAction {
         NOTHING, // do nothing
         RECREATE, // recreate activity
-        UPDATE // update item recyclerview
+        UPDATE, // update item recyclerview
+        RESCHEDULE // reschedule background sync
     }
 
     @NonNull
@@ -30,6 +30,7 @@ import android.view.MenuItem;
 
 import email.schaal.ocreader.databinding.ActivitySettingsBinding;
 import email.schaal.ocreader.util.FaviconLoader;
+import email.schaal.ocreader.util.SyncScheduler;
 
 public class SettingsActivity extends AppCompatActivity implements SharedPreferences.OnSharedPreferenceChangeListener {
     private static final String EXTRA_RECREATE_ACTIVITY = "recreateActivity";
@@ -73,6 +74,7 @@ public class SettingsActivity extends AppCompatActivity implements SharedPrefere
                 case RECREATE:
                     recreateActivity = true;
                     FaviconLoader.clearCache();
+                    FaviconLoader.regenerateFeedColors(this);
                     AppCompatDelegate.setDefaultNightMode(Preferences.getNightMode(sharedPreferences));
                     Intent intent = getIntent();
                     intent.setFlags(Intent.FLAG_ACTIVITY_CLEAR_TOP | Intent.FLAG_ACTIVITY_NEW_TASK);
@@ -84,6 +86,9 @@ public class SettingsActivity extends AppCompatActivity implements SharedPrefere
                 case UPDATE:
                     PreferenceManager.getDefaultSharedPreferences(this).edit().putBoolean(Preferences.SYS_NEEDS_UPDATE_AFTER_SYNC.getKey(), true).apply();
                     break;
+                case RESCHEDULE:
+                    SyncScheduler.getInstance().updatePeriodicSync(sharedPreferences);
+                    break;
             }
         }
     }
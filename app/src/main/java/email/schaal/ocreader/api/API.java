@@ -21,6 +21,8 @@ import email.schaal.ocreader.api.json.APILevels;
 import email.schaal.ocreader.api.json.FeedTypeAdapter;
 import email.schaal.ocreader.api.json.FolderTypeAdapter;
 import email.schaal.ocreader.api.json.ItemTypeAdapter;
+import email.schaal.ocreader.api.json.Items;
+import email.schaal.ocreader.api.json.ItemsTypeAdapter;
 import email.schaal.ocreader.api.json.NewsError;
 import email.schaal.ocreader.api.json.Status;
 import email.schaal.ocreader.api.json.StatusTypeAdapter;
@@ -89,12 +91,15 @@ public abstract class API {
 
     final MoshiConverterFactory converterFactory;
 
+    final ItemsTypeAdapter itemsTypeAdapter = new ItemsTypeAdapter();
+
     API(Context context, Level apiLevel) {
         this.apiLevel = apiLevel;
         final Moshi moshi = new Moshi.Builder()
                 .add(Folder.class, new FolderTypeAdapter())
                 .add(Feed.class, new FeedTypeAdapter())
                 .add(Item.class, new ItemTypeAdapter())
+                .add(Items.class, itemsTypeAdapter)
                 .add(User.class, new UserTypeAdapter())
                 .add(Status.class, new StatusTypeAdapter())
                 .build();
@@ -123,7 +128,26 @@ public abstract class API {
 
     public abstract void user(final Realm realm, final APICallback<Void, Throwable> apiCallback);
 
-    public abstract void sync(SharedPreferences sharedPreferences, final Realm realm, SyncType syncType, Intent intent, final APICallback<Void, Throwable> apiCallback);
+    public abstract void sync(SharedPreferences sharedPreferences, final Realm realm, SyncType syncType, Intent intent, final SyncCallback syncCallback);
+
+    // Calls of the running sync
+    private SyncCalls syncCalls = new SyncCalls();
+
+    /**
+     * Start tracking the calls of a new sync, call at the start of {@link #sync}
+     */
+    SyncCalls beginSync() {
+        syncCalls = new SyncCalls();
+        return syncCalls;
+    }
+
+    /**
+     * Cancel the calls of the running sync, it fails with an {@link IOException}. Data received
+     * by the cancelled sync is not stored anymore.
+     */
+    public void cancelSync() {
+        syncCalls.cancel();
+    }
 
     public abstract void createFeed(final Realm realm, final String url, final long folderId, final APICallback<Void, Throwable> apiCallback);
 
@@ -249,6 +273,13 @@ public abstract class API {
         void onFailure(F failure);
     }
 
+    public interface SyncCallback extends APICallback<Void, Throwable> {
+        /**
+         * Part of the items is stored, called on the main thread while syncing
+         */
+        void onProgress();
+    }
+
     abstract class BaseRetrofitCallback<T> implements Callback<T> {
         @Nullable
         final APICallback<Void, Throwable> callback;
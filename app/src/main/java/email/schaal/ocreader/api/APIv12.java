@@ -25,22 +25,28 @@ import android.content.Intent;
 import android.content.SharedPreferences;
 import android.os.Handler;
 import android.os.Looper;
+import android.os.Process;
+import android.os.SystemClock;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import android.util.Log;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
-import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executor;
-import java.util.concurrent.ExecutorCompletionService;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
+import email.schaal.ocreader.Preferences;
 import email.schaal.ocreader.api.json.Feeds;
 import email.schaal.ocreader.api.json.Folders;
 import email.schaal.ocreader.api.json.Items;
@@ -55,7 +61,8 @@ import email.schaal.ocreader.database.model.StarredFolder;
 import email.schaal.ocreader.database.model.User;
 import email.schaal.ocreader.http.HttpManager;
 import email.schaal.ocreader.service.SyncType;
-import email.schaal.ocreader.util.AlarmUtils;
+import email.schaal.ocreader.util.MuteFilter;
+import email.schaal.ocreader.util.SyncScheduler;
 import io.realm.Realm;
 import io.realm.RealmResults;
 import retrofit2.Call;
@@ -82,6 +89,15 @@ class APIv12 extends API {
 
     private static final int BATCH_SIZE = 100;
 
+    // Items per page when fetching all items
+    private static final int PAGE_SIZE = 1000;
+
+    // Small enough to show the newest items quickly
+    private static final int FIRST_PAGE_SIZE = 50;
+
+    // Show the newest items first when syncing after this long
+    private static final long LONG_ABSENCE = TimeUnit.DAYS.toMillis(1);
+
     private final Executor executor = Executors.newSingleThreadExecutor();
     private final Handler handler = new Handler(Looper.getMainLooper());
 
@@ -126,8 +142,8 @@ class APIv12 extends API {
         }
     }
 
-    private void syncChanges(@Nullable final OnCompletionListener completionListener) {
-        AlarmUtils.getInstance().cancelAlarm();
+    private void syncChanges(final SyncCalls calls, @Nullable final OnCompletionListener completionListener) {
+        SyncScheduler.getInstance().cancelChanges();
 
         executor.execute(new Runnable() {
             @Override
@@ -137,7 +153,7 @@ class APIv12 extends API {
                 try {
                     realm = Realm.getDefaultInstance();
                     for (final MarkAction action : MarkAction.values()) {
-                        result = result && markItems(action, realm);
+                        result = result && markItems(action, realm, calls);
                     }
                 } catch (IOException e) {
                     Log.e(TAG, "Failed to sync changes", e);
@@ -155,7 +171,7 @@ class APIv12 extends API {
         });
     }
 
-    private boolean markItems(@NonNull final MarkAction action, final Realm realm) throws IOException {
+    private boolean markItems(@NonNull final MarkAction action, final Realm realm, final SyncCalls calls) throws IOException {
         final RealmResults<Item> results = realm.where(Item.class)
                 .equalTo(action.getChangedKey(), true)
                 .equalTo(action.getKey(), action.getValue()).findAll();
@@ -178,16 +194,16 @@ class APIv12 extends API {
 
         switch (action) {
             case MARK_READ:
-                response = api.markItemsRead(ids).execute();
+                response = calls.execute(api.markItemsRead(ids));
                 break;
             case MARK_UNREAD:
-                response = api.markItemsUnread(ids).execute();
+                response = calls.execute(api.markItemsUnread(ids));
                 break;
             case MARK_STARRED:
-                response = api.markItemsStarred(itemMap).execute();
+                response = calls.execute(api.markItemsStarred(itemMap));
                 break;
             case MARK_UNSTARRED:
-                response = api.markItemsUnstarred(itemMap).execute();
+                response = calls.execute(api.markItemsUnstarred(itemMap));
                 break;
             default:
                 throw new IllegalArgumentException("Unkown mark action");
@@ -310,28 +326,61 @@ class APIv12 extends API {
 
     private final ExecutorService threadPool = Executors.newCachedThreadPool();
 
+    // Callback of the running sync, only used on the main thread
+    @Nullable
+    private SyncCallback syncCallback;
+
+    // Highest lastModified received in this sync, muted items are not stored but count as synced
+    private long responseLastModified;
+
     @Override
-    public void sync(SharedPreferences sharedPreferences, final Realm realm, final SyncType syncType, final Intent intent, final APICallback<Void, Throwable> callback) {
-        syncChanges(result -> {
-            if(result) {
-                final Set<Callable<Void>> callables = new HashSet<>(6);
+    public void sync(final SharedPreferences sharedPreferences, final Realm realm, final SyncType syncType, final Intent intent, final SyncCallback callback) {
+        itemsTypeAdapter.setMuteFilter(MuteFilter.parse(Preferences.MUTE_RULES.getString(sharedPreferences)));
+
+        final SyncCalls calls = beginSync();
+        syncCallback = callback;
+        setResponseLastModified(0);
+
+        syncChanges(calls, result -> {
+            if(calls.isCancelled()) {
+                callback.onFailure(new IOException("Canceled"));
+            } else if(result) {
+                final long start = SystemClock.elapsedRealtime();
+
+                final List<Future<Void>> metadata = new ArrayList<>(3);
+                final List<Future<Void>> items = new ArrayList<>(2);
 
                 switch (syncType) {
                     case SYNC_CHANGES_ONLY:
                         callback.onSuccess(null);
                         return;
                     case FULL_SYNC:
-                        long lastSync = getLastSyncTimestamp(realm);
+                        final long lastSync = getLastSyncTimestamp(sharedPreferences, realm);
+                        // An interrupted initial sync starts over, older pages were not fetched yet
+                        if (lastSync == 0L)
+                            setLastSyncTimestamp(sharedPreferences, 0L);
+
+                        // Everything is fetched in parallel, but inserted in dependency order:
+                        // folders, feeds in folders, items in feeds, so no placeholders are created
+                        final Future<Void> folders = threadPool.submit(new FoldersCallable(realm, calls));
+                        final Future<Void> feeds = threadPool.submit(new FeedsCallable(realm, calls).after(folders));
 
-                        callables.add(new UserCallable(realm));
-                        callables.add(new FoldersCallable(realm));
-                        callables.add(new FeedsCallable(realm));
+                        metadata.add(threadPool.submit(new UserCallable(realm, calls)));
+                        metadata.add(folders);
+                        metadata.add(feeds);
 
                         if (lastSync == 0L) {
-                            callables.add(new StarredItemsCallable(realm));
-                            callables.add(new ItemsCallable(realm));
+                            // Show the newest unread items first, backfill older and starred items
+                            final ItemsCallable newestItems = new ItemsCallable(realm, calls, true);
+                            items.add(threadPool.submit(newestItems.after(feeds)));
+                            items.add(threadPool.submit(new StarredItemsCallable(realm, calls).backfillAfter(newestItems.firstPage).after(feeds)));
+                        } else if (isLongAbsence(sharedPreferences)) {
+                            // Lots of updated items, show the newest unread items before them
+                            final ItemsCallable newestItems = new ItemsCallable(realm, calls, false);
+                            items.add(threadPool.submit(newestItems.after(feeds)));
+                            items.add(threadPool.submit(new UpdatedItemsCallable(realm, calls, lastSync).backfillAfter(newestItems.firstPage).after(feeds)));
                         } else {
-                            callables.add(new UpdatedItemsCallable(realm, lastSync));
+                            items.add(threadPool.submit(new UpdatedItemsCallable(realm, calls, lastSync).after(feeds)));
                         }
                         break;
                     case LOAD_MORE:
@@ -339,28 +388,27 @@ class APIv12 extends API {
                         final long offset = intent.getLongExtra(EXTRA_OFFSET, 0);
                         final boolean isFeed = intent.getBooleanExtra(EXTRA_IS_FEED, false);
 
-                        callables.add(new MoreItemsCallable(realm, isFeed, offset, id));
+                        items.add(threadPool.submit(new MoreItemsCallable(realm, calls, isFeed, offset, id)));
 
                         break;
                 }
 
                 executor.execute(() -> {
-                    final ExecutorCompletionService<Void> completionService = new ExecutorCompletionService<>(threadPool);
-                    // Start API Calls
-                    for (Callable<Void> callable : callables) {
-                        completionService.submit(callable);
-                    }
-
                     try {
                         // Get API Call results
-                        for (int i = 0, size = callables.size(); i < size; i++) {
-                            completionService.take().get();
-                        }
+                        awaitStage("Metadata", metadata, start);
+                        awaitStage("Items", items, start);
 
                         // Run callback on main thread
-                        handler.post(() -> callback.onSuccess(null));
+                        handler.post(() -> {
+                            // Resume from here only after every page and backfill was stored
+                            if (syncType == SyncType.FULL_SYNC && !calls.isCancelled())
+                                setLastSyncTimestamp(sharedPreferences, Math.max(getNewestLastModified(realm), getResponseLastModified()));
+                            callback.onSuccess(null);
+                        });
                     } catch (InterruptedException | ExecutionException e) {
                         Log.e(TAG, "Failed to execute sync callables", e);
+                        calls.cancel();
                         handler.post(() -> callback.onFailure(e));
                     }
                 });
@@ -370,10 +418,55 @@ class APIv12 extends API {
         });
     }
 
-    private long getLastSyncTimestamp(Realm realm) {
-        final Number lastSync = realm.where(Item.class).max(Item.LAST_MODIFIED);
+    /**
+     * Wait for the tasks of stage and log how long it took since start, once everything it
+     * inserted is stored
+     */
+    private void awaitStage(final String stage, List<Future<Void>> tasks, final long start) throws InterruptedException, ExecutionException {
+        for(Future<Void> task: tasks)
+            task.get();
+
+        handler.post(() -> Log.d(TAG, String.format(Locale.US, "%s stage finished after %d ms", stage, SystemClock.elapsedRealtime() - start)));
+    }
+
+    private boolean isLongAbsence(SharedPreferences sharedPreferences) {
+        return System.currentTimeMillis() - Preferences.SYS_LAST_SYNC_TIME.getLong(sharedPreferences) > LONG_ABSENCE;
+    }
+
+    /**
+     * @return lastModified to request the updated items from, 0 if all items have to be fetched
+     */
+    private long getLastSyncTimestamp(SharedPreferences sharedPreferences, Realm realm) {
+        if(realm.where(Item.class).count() == 0)
+            return 0;
+
+        final long lastSync = Preferences.SYS_ITEMS_SYNC_TIMESTAMP.getLong(sharedPreferences);
+        // Not stored by previous versions, which only stored complete syncs
+        return lastSync >= 0 ? lastSync : getNewestLastModified(realm);
+    }
+
+    private void setLastSyncTimestamp(SharedPreferences sharedPreferences, long lastSync) {
+        sharedPreferences.edit()
+                .putLong(Preferences.SYS_ITEMS_SYNC_TIMESTAMP.getKey(), lastSync)
+                .apply();
+    }
+
+    private synchronized void setResponseLastModified(long lastModified) {
+        responseLastModified = lastModified;
+    }
+
+    private synchronized void updateResponseLastModified(long lastModified) {
+        responseLastModified = Math.max(responseLastModified, lastModified);
+    }
+
+    private synchronized long getResponseLastModified() {
+        return responseLastModified;
+    }
+
+    private long getNewestLastModified(Realm realm) {
+        final Number lastModified = realm.where(Item.class).max(Item.LAST_MODIFIED);
 
-        return lastSync != null ? lastSync.longValue() : 0;
+        return lastModified != null ? lastModified.longValue() : 0;
     }
 
     @Override
@@ -388,26 +481,81 @@ class APIv12 extends API {
 
     private abstract class RealmCallable<T> implements Callable<Void> {
         protected final Realm realm;
+        protected final SyncCalls calls;
+
+        // Results are inserted after this task finished
+        @Nullable
+        private Future<?> dependency;
 
-        RealmCallable(Realm realm) {
+        // Fetching starts after this signal, at background priority
+        @Nullable
+        private CountDownLatch backfillSignal;
+
+        RealmCallable(Realm realm, SyncCalls calls) {
             this.realm = realm;
+            this.calls = calls;
         }
 
         protected abstract Runnable getRunnable(Response<T> response);
-        protected abstract Response<T> getResponse() throws IOException;
+        protected abstract Call<T> getCall();
+
+        RealmCallable<T> after(@Nullable Future<?> dependency) {
+            this.dependency = dependency;
+            return this;
+        }
+
+        /**
+         * Start fetching once signal is counted down, at lower priority than the other tasks
+         */
+        RealmCallable<T> backfillAfter(@NonNull CountDownLatch signal) {
+            this.backfillSignal = signal;
+            return this;
+        }
 
         @Override
-        public Void call() throws Exception {
-            final Response<T> response = getResponse();
-            if(response.isSuccessful())
-                handler.post(getRunnable(response));
+        public final Void call() throws Exception {
+            // Pool threads are reused, restore their priority
+            final int priority = Process.getThreadPriority(Process.myTid());
+            try {
+                if(backfillSignal != null) {
+                    backfillSignal.await();
+                    Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                }
+                fetch();
+            } finally {
+                Process.setThreadPriority(priority);
+            }
             return null;
         }
+
+        /**
+         * Execute the call and insert the response
+         */
+        protected void fetch() throws Exception {
+            final Response<T> response = calls.execute(getCall());
+            if(response.isSuccessful())
+                post(getRunnable(response));
+        }
+
+        /**
+         * Run runnable on the main thread after the dependency, unless the sync was cancelled
+         * before. The main thread runs posted runnables in order, so everything the dependency
+         * inserted is stored by then.
+         */
+        void post(final Runnable runnable) throws InterruptedException, ExecutionException {
+            if(dependency != null)
+                dependency.get();
+
+            handler.post(() -> {
+                if(!calls.isCancelled())
+                    runnable.run();
+            });
+        }
     }
 
     private class UserCallable extends RealmCallable<User> {
-        UserCallable(Realm realm) {
-            super(realm);
+        UserCallable(Realm realm, SyncCalls calls) {
+            super(realm, calls);
         }
 
         @Override
@@ -416,19 +564,49 @@ class APIv12 extends API {
         }
 
         @Override
-        protected Response<User> getResponse() throws IOException {
-            return api.user().execute();
+        protected Call<User> getCall() {
+            return api.user();
         }
     }
 
-    private class ItemsCallable extends RealmCallable<Items> {
-        ItemsCallable(Realm realm) {
-            super(realm);
+    /**
+     * Inserts the received items, muted items are marked as read on the server and removed if
+     * they were stored before
+     */
+    private abstract class MutingItemsCallable extends RealmCallable<Items> {
+        MutingItemsCallable(Realm realm, SyncCalls calls) {
+            super(realm, calls);
         }
 
         @Override
-        protected Response<Items> getResponse() throws IOException {
-            return api.items(-1, 0L, QueryType.ALL.getType(), 0L, false, false).execute();
+        protected void fetch() throws Exception {
+            fetchItems(getCall());
+        }
+
+        /**
+         * Execute call and insert the received items
+         * @return the received items, null if the call failed
+         */
+        @Nullable
+        Items fetchItems(Call<Items> call) throws Exception {
+            final Response<Items> response = calls.execute(call);
+            if(!response.isSuccessful())
+                return null;
+
+            final Items items = response.body();
+
+            // Responses of a cancelled sync must not move the timestamp of the next one
+            if(items != null && !calls.isCancelled())
+                updateResponseLastModified(items.getLastModified());
+
+            if(items != null && !items.getUnreadMutedItemIds().isEmpty()) {
+                final Response<Void> markResponse = calls.execute(api.markItemsRead(new ItemIds(items.getUnreadMutedItemIds())));
+                if(!markResponse.isSuccessful())
+                    Log.w(TAG, "Failed to mark muted items as read: " + markResponse.code());
+            }
+
+            post(getRunnable(response));
+            return items;
         }
 
         @Override
@@ -436,64 +614,124 @@ class APIv12 extends API {
             return () -> {
                 final Items items = response.body();
 
-                if(items != null)
+                if(items != null) {
                     Queries.insert(realm, items.getItems());
+                    Queries.removeItems(realm, items.getMutedItemIds());
+
+                    if(syncCallback != null)
+                        syncCallback.onProgress();
+                }
             };
         }
     }
 
-    private class UpdatedItemsCallable extends RealmCallable<Items> {
-        private final long lastSync;
+    /**
+     * Fetches the items in pages, newest first. Each page is inserted while the next one is
+     * fetched, pages after the first one at background priority.
+     */
+    private abstract class PagedItemsCallable extends MutingItemsCallable {
+        // Counted down once the first page is fetched, or fetching failed
+        final CountDownLatch firstPage = new CountDownLatch(1);
 
-        UpdatedItemsCallable(Realm realm, long lastSync) {
-            super(realm);
-            this.lastSync = lastSync;
+        private final int firstPageSize;
+        private final boolean allPages;
+
+        PagedItemsCallable(Realm realm, SyncCalls calls, int firstPageSize, boolean allPages) {
+            super(realm, calls);
+            this.firstPageSize = firstPageSize;
+            this.allPages = allPages;
         }
 
+        /**
+         * @param offset only fetch items with lower ids, 0 for the newest items
+         */
+        protected abstract Call<Items> getCall(long offset, int pageSize);
+
         @Override
-        protected Response<Items> getResponse() throws IOException {
-            return api.updatedItems(lastSync, QueryType.ALL.getType(), 0L).execute();
+        protected Call<Items> getCall() {
+            return getCall(0L, firstPageSize);
         }
 
         @Override
-        protected Runnable getRunnable(final Response<Items> response) {
-            return () -> {
-                final Items items = response.body();
+        protected void fetch() throws Exception {
+            try {
+                long offset = 0L;
+                int pageSize = firstPageSize;
+                Items items;
 
-                if(items != null)
-                    Queries.insert(realm, items.getItems());
-            };
+                while ((items = fetchItems(getCall(offset, pageSize))) != null) {
+                    firstPage.countDown();
+
+                    if(!allPages)
+                        break;
+
+                    Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+
+                    // Muted items count for the page size too
+                    long minId = Long.MAX_VALUE;
+                    for (Item item : items.getItems())
+                        minId = Math.min(minId, item.getId());
+                    for (long mutedId : items.getMutedItemIds())
+                        minId = Math.min(minId, mutedId);
+
+                    if (items.getItems().size() + items.getMutedItemIds().size() < pageSize || minId == Long.MAX_VALUE)
+                        break;
+
+                    offset = minId;
+                    pageSize = PAGE_SIZE;
+                }
+            } finally {
+                firstPage.countDown();
+            }
         }
     }
 
-    private class StarredItemsCallable extends RealmCallable<Items> {
-        StarredItemsCallable(Realm realm) {
-            super(realm);
+    private class ItemsCallable extends PagedItemsCallable {
+        /**
+         * @param allPages false to only fetch the newest unread items
+         */
+        ItemsCallable(Realm realm, SyncCalls calls, boolean allPages) {
+            super(realm, calls, FIRST_PAGE_SIZE, allPages);
         }
 
         @Override
-        protected Response<Items> getResponse() throws IOException {
-            return api.items(-1, 0L, QueryType.STARRED.getType(), 0L, true, false).execute();
+        protected Call<Items> getCall(long offset, int pageSize) {
+            return api.items(pageSize, offset, QueryType.ALL.getType(), 0L, false, false);
+        }
+    }
+
+    private class UpdatedItemsCallable extends MutingItemsCallable {
+        private final long lastSync;
+
+        UpdatedItemsCallable(Realm realm, SyncCalls calls, long lastSync) {
+            super(realm, calls);
+            this.lastSync = lastSync;
         }
 
         @Override
-        protected Runnable getRunnable(final Response<Items> response) {
-            return () -> {
-                final Items items = response.body();
+        protected Call<Items> getCall() {
+            return api.updatedItems(lastSync, QueryType.ALL.getType(), 0L);
+        }
+    }
 
-                if(items != null)
-                    Queries.insert(realm, items.getItems());
-            };
+    private class StarredItemsCallable extends PagedItemsCallable {
+        StarredItemsCallable(Realm realm, SyncCalls calls) {
+            super(realm, calls, PAGE_SIZE, true);
+        }
+
+        @Override
+        protected Call<Items> getCall(long offset, int pageSize) {
+            return api.items(pageSize, offset, QueryType.STARRED.getType(), 0L, true, false);
         }
     }
 
-    private class MoreItemsCallable extends RealmCallable<Items> {
+    private class MoreItemsCallable extends MutingItemsCallable {
         private final QueryType type;
         private final long offset;
         private final long id;
 
-        MoreItemsCallable(Realm realm, final boolean isFeed, final long offset, final long id) {
-            super(realm);
+        MoreItemsCallable(Realm realm, SyncCalls calls, final boolean isFeed, final long offset, final long id) {
+            super(realm, calls);
             this.offset = offset;
             if (id == StarredFolder.ID) {
                 type = QueryType.STARRED;
@@ -505,24 +743,14 @@ class APIv12 extends API {
         }
 
         @Override
-        protected Response<Items> getResponse() throws IOException {
-            return api.items(BATCH_SIZE, offset, type.getType(), id, true, false).execute();
-        }
-
-        @Override
-        protected Runnable getRunnable(final Response<Items> response) {
-            return () -> {
-                final Items items = response.body();
-
-                if(items != null)
-                    Queries.insert(realm, items.getItems());
-            };
+        protected Call<Items> getCall() {
+            return api.items(BATCH_SIZE, offset, type.getType(), id, true, false);
         }
     }
 
     private class FoldersCallable extends RealmCallable<Folders> {
-        FoldersCallable(Realm realm) {
-            super(realm);
+        FoldersCallable(Realm realm, SyncCalls calls) {
+            super(realm, calls);
         }
 
         @Override
@@ -536,14 +764,14 @@ class APIv12 extends API {
         }
 
         @Override
-        protected Response<Folders> getResponse() throws IOException {
-            return api.folders().execute();
+        protected Call<Folders> getCall() {
+            return api.folders();
         }
     }
 
     private class FeedsCallable extends RealmCallable<Feeds> {
-        FeedsCallable(Realm realm) {
-            super(realm);
+        FeedsCallable(Realm realm, SyncCalls calls) {
+            super(realm, calls);
         }
 
         @Override
@@ -557,8 +785,8 @@ class APIv12 extends API {
         }
 
         @Override
-        protected Response<Feeds> getResponse() throws IOException {
-            return api.feeds().execute();
+        protected Call<Feeds> getCall() {
+            return api.feeds();
         }
     }
 
@@ -90,8 +90,10 @@ class APIv2 extends API {
     }
 
     @Override
-    public void sync(final SharedPreferences sharedPreferences, final Realm realm, SyncType syncType, Intent intent, APICallback<Void, Throwable> apiCallback) {
+    public void sync(final SharedPreferences sharedPreferences, final Realm realm, SyncType syncType, Intent intent, SyncCallback apiCallback) {
         // TODO: 02.10.16 sync user
+        final SyncCalls calls = beginSync();
+
         final BaseRetrofitCallback<SyncResponse> retrofitCallback = new BaseRetrofitCallback<SyncResponse>(apiCallback) {
             @Override
             protected void onResponseReal(Response<SyncResponse> response) {
@@ -116,12 +118,12 @@ class APIv2 extends API {
                 final String etag = Preferences.SYS_APIv2_ETAG.getString(sharedPreferences);
 
                 if(etag == null) {
-                    api.sync().enqueue(retrofitCallback);
+                    calls.enqueue(api.sync(), retrofitCallback);
                 } else {
                     final Items items = new Items();
                     items.setItems(realm.where(Item.class).equalTo(Item.UNREAD_CHANGED, true).or().equalTo(Item.STARRED_CHANGED, true).findAll());
 
-                    api.sync(etag, items).enqueue(retrofitCallback);
+                    calls.enqueue(api.sync(etag, items), retrofitCallback);
                 }
                 break;
             case LOAD_MORE:
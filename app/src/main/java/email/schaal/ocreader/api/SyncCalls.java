@@ -0,0 +1,82 @@
+package email.schaal.ocreader.api;
+
+import androidx.annotation.NonNull;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
+
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+
+/**
+ * Retrofit calls made by one sync, cancelled together when the sync is superseded. Calls made
+ * after cancelling fail immediately.
+ */
+class SyncCalls {
+    private final Set<Call<?>> calls = new HashSet<>();
+    private boolean cancelled = false;
+
+    synchronized boolean isCancelled() {
+        return cancelled;
+    }
+
+    private synchronized void add(Call<?> call) throws IOException {
+        if(cancelled)
+            throw new IOException("Canceled");
+        calls.add(call);
+    }
+
+    private synchronized void remove(Call<?> call) {
+        calls.remove(call);
+    }
+
+    /**
+     * Execute call synchronously, like {@link Call#execute()}
+     */
+    <T> Response<T> execute(Call<T> call) throws IOException {
+        add(call);
+        try {
+            return call.execute();
+        } finally {
+            remove(call);
+        }
+    }
+
+    /**
+     * Execute call asynchronously, like {@link Call#enqueue(Callback)}
+     */
+    <T> void enqueue(Call<T> call, final Callback<T> callback) {
+        try {
+            add(call);
+        } catch (IOException e) {
+            callback.onFailure(call, e);
+            return;
+        }
+
+        call.enqueue(new Callback<T>() {
+            @Override
+            public void onResponse(@NonNull Call<T> call, @NonNull Response<T> response) {
+                remove(call);
+                if(isCancelled())
+                    callback.onFailure(call, new IOException("Canceled"));
+                else
+                    callback.onResponse(call, response);
+            }
+
+            @Override
+            public void onFailure(@NonNull Call<T> call, @NonNull Throwable t) {
+                remove(call);
+                callback.onFailure(call, t);
+            }
+        });
+    }
+
+    synchronized void cancel() {
+        cancelled = true;
+        for(Call<?> call: calls)
+            call.cancel();
+        calls.clear();
+    }
+}
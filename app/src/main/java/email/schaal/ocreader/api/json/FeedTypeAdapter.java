@@ -31,6 +31,7 @@ import com.squareup.moshi.JsonWriter;
 import java.io.IOException;
 
 import email.schaal.ocreader.database.model.Feed;
+import email.schaal.ocreader.util.DateParser;
 import email.schaal.ocreader.util.StringUtils;
 import io.realm.RealmObject;
 
@@ -56,6 +57,28 @@ public class FeedTypeAdapter extends JsonAdapter<Feed> {
         out.endObject();
     }
 
+    private static final JsonReader.Options OPTIONS = JsonReader.Options.of(
+            "id",
+            "url",
+            "link",
+            "faviconLink",
+            "title",
+            "name",
+            "added",
+            "folderId",
+            "unreadCount",
+            "ordering",
+            "pinned",
+            "updateErrorCount",
+            "lastUpdateError",
+            "error"
+    );
+
+    private static final JsonReader.Options ERROR_OPTIONS = JsonReader.Options.of(
+            "code",
+            "message"
+    );
+
     @Override
     public Feed fromJson(@NonNull JsonReader in) throws IOException {
         if (in.peek() == JsonReader.Token.NULL) {
@@ -63,64 +86,68 @@ public class FeedTypeAdapter extends JsonAdapter<Feed> {
             return null;
         }
 
-        final NullableJsonReader reader = new NullableJsonReader(in);
-
         final Feed feed = new Feed();
 
         in.beginObject();
 
         while (in.hasNext()) {
-            String name = in.nextName();
-            switch (name) {
-                case "id":
+            switch (in.selectName(OPTIONS)) {
+                case 0: // id
                     feed.setId(in.nextLong());
                     break;
-                case "url":
-                    feed.setUrl(reader.nextString());
+                case 1: // url
+                    feed.setUrl(NullableJsonReader.nextString(in));
                     break;
-                case "link":
-                    feed.setLink(reader.nextString());
+                case 2: // link
+                    feed.setLink(NullableJsonReader.nextString(in));
                     break;
-                case "faviconLink":
-                    String faviconLink = reader.nextString();
+                case 3: // faviconLink
+                    String faviconLink = NullableJsonReader.nextString(in);
                     if (faviconLink != null && TextUtils.getTrimmedLength(faviconLink) == 0)
                         faviconLink = null;
                     feed.setFaviconLink(faviconLink);
                     break;
                 // title in API v1-2, name in API v2
-                case "title":
-                case "name":
+                case 4: // title
+                case 5: // name
                     feed.setName(StringUtils.cleanString(in.nextString()));
                     break;
-                case "added":
-                    in.skipValue();
+                case 6: // added
+                    // unix timestamp in API v1-2, ISO-8601 in API v2
+                    if(in.peek() == JsonReader.Token.NUMBER)
+                        feed.setAdded(DateParser.fromEpochSeconds(in.nextLong()));
+                    else if(in.peek() == JsonReader.Token.STRING)
+                        feed.setAdded(DateParser.parseIso8601(in.nextString()));
+                    else
+                        in.skipValue();
                     break;
-                case "folderId":
+                case 7: // folderId
                     feed.setFolderId(in.nextLong());
                     break;
-                case "unreadCount":
+                case 8: // unreadCount
                     // skip unreadCount, calculated later in SyncService
                     in.skipValue();
                     break;
-                case "ordering":
+                case 9: // ordering
                     // createFeed returns a feed with ordering set to NULL
-                    feed.setOrdering(reader.nextInt(0));
+                    feed.setOrdering(NullableJsonReader.nextInt(in, 0));
                     break;
-                case "pinned":
+                case 10: // pinned
                     // createFeed returns a feed with pinned set to NULL
-                    feed.setPinned(reader.nextBoolean(false));
+                    feed.setPinned(NullableJsonReader.nextBoolean(in, false));
                     break;
-                case "updateErrorCount":
-                    feed.setUpdateErrorCount(reader.nextInt(0));
+                case 11: // updateErrorCount
+                    feed.setUpdateErrorCount(NullableJsonReader.nextInt(in, 0));
                     break;
-                case "lastUpdateError":
-                    feed.setLastUpdateError(reader.nextString());
+                case 12: // lastUpdateError
+                    feed.setLastUpdateError(NullableJsonReader.nextString(in));
                     break;
-                case "error":
-                    parseError(reader, feed);
+                case 13: // error
+                    parseError(in, feed);
                     break;
                 default:
-                    Log.w(TAG, "Unknown value in feed json: " + name);
+                    // Only unknown names are read as a String
+                    Log.w(TAG, "Unknown value in feed json: " + in.nextName());
                     in.skipValue();
                     break;
             }
@@ -129,18 +156,22 @@ public class FeedTypeAdapter extends JsonAdapter<Feed> {
         return feed;
     }
 
-    private void parseError(NullableJsonReader reader, Feed feed) throws IOException {
-        reader.in.beginObject();
-        while(reader.in.hasNext()) {
-            switch (reader.in.nextName()) {
-                case "code":
-                    reader.in.skipValue();
+    private void parseError(JsonReader in, Feed feed) throws IOException {
+        in.beginObject();
+        while(in.hasNext()) {
+            switch (in.selectName(ERROR_OPTIONS)) {
+                case 0: // code
+                    in.skipValue();
                     break;
-                case "message":
-                    feed.setLastUpdateError(reader.nextString());
+                case 1: // message
+                    feed.setLastUpdateError(NullableJsonReader.nextString(in));
+                    break;
+                default:
+                    in.nextName();
+                    in.skipValue();
                     break;
             }
         }
-        reader.in.endObject();
+        in.endObject();
     }
 }
@@ -41,6 +41,11 @@ public class FolderTypeAdapter extends JsonAdapter<Folder> {
     public void toJson(@NonNull JsonWriter out, Folder value) throws IOException {
     }
 
+    private static final JsonReader.Options OPTIONS = JsonReader.Options.of(
+            "id",
+            "name"
+    );
+
     @Override
     public Folder fromJson(@NonNull JsonReader in) throws IOException {
         if (in.peek() == JsonReader.Token.NULL) {
@@ -50,16 +55,16 @@ public class FolderTypeAdapter extends JsonAdapter<Folder> {
         Folder folder = new Folder();
         in.beginObject();
         while (in.hasNext()) {
-            String name = in.nextName();
-            switch (name) {
-                case "id":
+            switch (in.selectName(OPTIONS)) {
+                case 0: // id
                     folder.setId(in.nextLong());
                     break;
-                case "name":
+                case 1: // name
                     folder.setName(in.nextString());
                     break;
                 default:
-                    Log.w(TAG, "Unknown value in folder json: " + name);
+                    // Only unknown names are read as a String
+                    Log.w(TAG, "Unknown value in folder json: " + in.nextName());
                     in.skipValue();
                     break;
             }
@@ -29,13 +29,10 @@ import com.squareup.moshi.JsonReader;
 import com.squareup.moshi.JsonWriter;
 
 import java.io.IOException;
-import java.text.DateFormat;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
 import java.util.Date;
-import java.util.Locale;
 
 import email.schaal.ocreader.database.model.Item;
+import email.schaal.ocreader.util.DateParser;
 import email.schaal.ocreader.util.StringUtils;
 
 /**
@@ -60,6 +57,37 @@ public class ItemTypeAdapter extends JsonAdapter<Item> {
         out.endObject();
     }
 
+    private static final JsonReader.Options OPTIONS = JsonReader.Options.of(
+            "id",
+            "guid",
+            "guidHash",
+            "url",
+            "title",
+            "author",
+            "pubDate",
+            "body",
+            "enclosureMime",
+            "enclosureLink",
+            "publishedAt",
+            "updatedAt",
+            "enclosure",
+            "feedId",
+            "isUnread",
+            "unread",
+            "starred",
+            "isStarred",
+            "lastModified",
+            "rtl",
+            "fingerprint",
+            "contentHash",
+            "updatedDate"
+    );
+
+    private static final JsonReader.Options ENCLOSURE_OPTIONS = JsonReader.Options.of(
+            "mimeType",
+            "url"
+    );
+
     @Override
     public Item fromJson(@NonNull JsonReader in) throws IOException {
         if (in.peek() == JsonReader.Token.NULL) {
@@ -67,93 +95,90 @@ public class ItemTypeAdapter extends JsonAdapter<Item> {
             return null;
         }
 
-        final NullableJsonReader reader = new NullableJsonReader(in);
-
         final Item.Builder builder = new Item.Builder();
 
         in.beginObject();
 
         while (in.hasNext()) {
-            String name = in.nextName();
-            switch (name) {
-                case "id":
+            switch (in.selectName(OPTIONS)) {
+                case 0: // id
                     builder.setId(in.nextLong());
                     break;
-                case "guid":
+                case 1: // guid
                     builder.setGuid(in.nextString());
                     break;
-                case "guidHash":
+                case 2: // guidHash
                     builder.setGuidHash(in.nextString());
                     break;
-                case "url":
-                    builder.setUrl(reader.nextString());
+                case 3: // url
+                    builder.setUrl(NullableJsonReader.nextString(in));
                     break;
-                case "title":
+                case 4: // title
                     builder.setTitle(StringUtils.cleanString(in.nextString()));
                     break;
-                case "author":
+                case 5: // author
                     builder.setAuthor(StringUtils.emptyToNull(in.nextString()));
                     break;
-                case "pubDate":
-                    builder.setPubDate(new Date(in.nextLong() * 1000));
+                case 6: // pubDate
+                    builder.setPubDate(DateParser.fromEpochSeconds(in.nextLong()));
                     break;
-                case "body":
+                case 7: // body
                     builder.setBody(in.nextString());
                     break;
-                case "enclosureMime":
+                case 8: // enclosureMime
                     if(in.peek() != JsonReader.Token.NULL)
                         builder.setEnclosureMime(StringUtils.emptyToNull(in.nextString()));
                     else
                         in.skipValue();
                     break;
-                case "enclosureLink":
+                case 9: // enclosureLink
                     if(in.peek() != JsonReader.Token.NULL)
                         builder.setEnclosureLink(StringUtils.emptyToNull(in.nextString()));
                     else
                         in.skipValue();
                     break;
-                case "publishedAt":
+                case 10: // publishedAt
                     builder.setPubDate(parseDate(in.nextString()));
                     break;
-                case "updatedAt":
+                case 11: // updatedAt
                     builder.setUpdatedAt(parseDate(in.nextString()));
                     break;
-                case "enclosure":
-                    parseEnclosure(reader, builder);
+                case 12: // enclosure
+                    parseEnclosure(in, builder);
                     break;
-                case "feedId":
+                case 13: // feedId
                     builder.setFeedId(in.nextLong());
                     break;
-                case "isUnread":
-                case "unread":
+                case 14: // isUnread
+                case 15: // unread
                     builder.setUnread(in.nextBoolean());
                     break;
-                case "starred":
-                case "isStarred":
+                case 16: // starred
+                case 17: // isStarred
                     builder.setStarred(in.nextBoolean());
                     break;
-                case "lastModified":
+                case 18: // lastModified
                     builder.setLastModified(in.nextLong());
                     break;
-                case "rtl":
+                case 19: // rtl
                     in.skipValue();
                     break;
-                case "fingerprint":
-                    builder.setFingerprint(reader.nextString());
+                case 20: // fingerprint
+                    builder.setFingerprint(NullableJsonReader.nextString(in));
                     break;
-                case "contentHash":
-                    // ignore for now, old items don't have this set yet.
-                    //item.setContentHash(in.nextString());
-                    in.skipValue();
+                case 21: // contentHash
+                    // Items stored by old server versions don't have it set yet
+                    builder.setContentHash(NullableJsonReader.nextString(in));
                     break;
-                case "updatedDate":
+                case 22: // updatedDate
                     if(in.peek() == JsonReader.Token.NUMBER)
-                        builder.setUpdatedAt(new Date(in.nextLong() * 1000));
+                        builder.setUpdatedAt(DateParser.fromEpochSeconds(in.nextLong()));
                     else
                         in.skipValue();
                     break;
                 default:
-                    Log.w(TAG, "Unknown value in item json: " + name);
+                    // Only unknown names are read as a String
+                    Log.w(TAG, "Unknown value in item json: " + in.nextName());
                     in.skipValue();
                     break;
             }
@@ -163,30 +188,30 @@ public class ItemTypeAdapter extends JsonAdapter<Item> {
         return builder.build();
     }
 
-    private void parseEnclosure(NullableJsonReader reader, Item.Builder builder) throws IOException {
-        reader.in.beginObject();
-        while(reader.in.hasNext()) {
-            switch (reader.in.nextName()) {
-                case "mimeType":
-                    builder.setEnclosureMime(reader.nextString());
+    private void parseEnclosure(JsonReader in, Item.Builder builder) throws IOException {
+        in.beginObject();
+        while(in.hasNext()) {
+            switch (in.selectName(ENCLOSURE_OPTIONS)) {
+                case 0: // mimeType
+                    builder.setEnclosureMime(NullableJsonReader.nextString(in));
                     break;
-                case "url":
-                    builder.setEnclosureLink(reader.nextString());
+                case 1: // url
+                    builder.setEnclosureLink(NullableJsonReader.nextString(in));
+                    break;
+                default:
+                    in.nextName();
+                    in.skipValue();
                     break;
             }
         }
-        reader.in.endObject();
+        in.endObject();
     }
 
-    private final static DateFormat iso8601Format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ssZZ", Locale.US);
-
     @Nullable
     private Date parseDate(String source) {
-        try {
-            return iso8601Format.parse(source);
-        } catch (ParseException e) {
-            Log.e(TAG, "Failed to parse date: " + source, e);
-            return null;
-        }
+        final Date date = DateParser.parseIso8601(source);
+        if(date == null)
+            Log.e(TAG, "Failed to parse date: " + source);
+        return date;
     }
 }
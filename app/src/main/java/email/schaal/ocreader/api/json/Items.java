@@ -1,6 +1,8 @@
 package email.schaal.ocreader.api.json;
 
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import email.schaal.ocreader.database.model.Item;
 
@@ -10,6 +12,11 @@ import email.schaal.ocreader.database.model.Item;
 public class Items {
     private List<Item> items;
 
+    private final Set<Long> mutedItemIds = new HashSet<>();
+    private final Set<Long> unreadMutedItemIds = new HashSet<>();
+
+    private long lastModified;
+
     public List<Item> getItems() {
         return items;
     }
@@ -17,4 +24,29 @@ public class Items {
     public void setItems(List<Item> items) {
         this.items = items;
     }
+
+    /**
+     * @return ids of the items dropped by the {@link email.schaal.ocreader.util.MuteFilter}
+     */
+    public Set<Long> getMutedItemIds() {
+        return mutedItemIds;
+    }
+
+    /**
+     * @return ids of the muted items that are still unread on the server
+     */
+    public Set<Long> getUnreadMutedItemIds() {
+        return unreadMutedItemIds;
+    }
+
+    /**
+     * @return highest lastModified of all items in the response, including the muted ones
+     */
+    public long getLastModified() {
+        return lastModified;
+    }
+
+    public void setLastModified(long lastModified) {
+        this.lastModified = lastModified;
+    }
 }
@@ -0,0 +1,103 @@
+package email.schaal.ocreader.api.json;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import com.squareup.moshi.JsonAdapter;
+import com.squareup.moshi.JsonReader;
+import com.squareup.moshi.JsonWriter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import email.schaal.ocreader.database.model.Item;
+import email.schaal.ocreader.util.MuteFilter;
+
+/**
+ * TypeAdapter to (de)serialize a list of items. When deserializing, items matching the
+ * {@link MuteFilter} are dropped right after decoding.
+ */
+public class ItemsTypeAdapter extends JsonAdapter<Items> {
+    private final static String TAG = ItemsTypeAdapter.class.getName();
+
+    private static final JsonReader.Options OPTIONS = JsonReader.Options.of(
+            "items"
+    );
+
+    private final ItemTypeAdapter itemTypeAdapter = new ItemTypeAdapter();
+
+    @NonNull
+    private volatile MuteFilter muteFilter = MuteFilter.EMPTY;
+
+    public void setMuteFilter(@NonNull MuteFilter muteFilter) {
+        this.muteFilter = muteFilter;
+    }
+
+    @Override
+    public void toJson(@NonNull JsonWriter out, Items value) throws IOException {
+        out.beginObject();
+
+        out.name("items").beginArray();
+        if(value.getItems() != null) {
+            for (Item item : value.getItems())
+                itemTypeAdapter.toJson(out, item);
+        }
+        out.endArray();
+
+        out.endObject();
+    }
+
+    @Override
+    public Items fromJson(@NonNull JsonReader in) throws IOException {
+        if (in.peek() == JsonReader.Token.NULL) {
+            in.nextNull();
+            return null;
+        }
+
+        final Items items = new Items();
+        final List<Item> itemList = new ArrayList<>();
+        final MuteFilter muteFilter = this.muteFilter;
+        long lastModified = 0;
+
+        in.beginObject();
+
+        while (in.hasNext()) {
+            switch (in.selectName(OPTIONS)) {
+                case 0: // items
+                    in.beginArray();
+                    while (in.hasNext()) {
+                        final Item item = itemTypeAdapter.fromJson(in);
+                        if (item == null)
+                            continue;
+
+                        lastModified = Math.max(lastModified, item.getLastModified());
+
+                        // Starred items are kept, the user explicitly wants to keep them
+                        if (!item.isStarred() && muteFilter.isMuted(item.getTitle(), item.getAuthor(), item.getBody())) {
+                            items.getMutedItemIds().add(item.getId());
+                            // Marking read items again would only bump their lastModified
+                            if (item.isUnread())
+                                items.getUnreadMutedItemIds().add(item.getId());
+                        } else {
+                            itemList.add(item);
+                        }
+                    }
+                    in.endArray();
+                    break;
+                default:
+                    // Only unknown names are read as a String
+                    Log.w(TAG, "Unknown value in items json: " + in.nextName());
+                    in.skipValue();
+                    break;
+            }
+        }
+        in.endObject();
+
+        items.setItems(itemList);
+        items.setLastModified(lastModified);
+
+        return items;
+    }
+}
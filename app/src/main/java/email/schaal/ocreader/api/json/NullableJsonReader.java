@@ -25,45 +25,41 @@ import com.squareup.moshi.JsonReader;
 import java.io.IOException;
 
 /**
- * Created by daniel on 16.10.16.
+ * Helper methods to read values which might be null from a JsonReader
  */
-
 class NullableJsonReader {
-    final JsonReader in;
-
-    NullableJsonReader(JsonReader in) {
-        this.in = in;
+    private NullableJsonReader() {
     }
 
-    int nextInt(int def) throws IOException {
-        if(nextNull()) {
+    static int nextInt(JsonReader in, int def) throws IOException {
+        if(nextNull(in)) {
             return def;
         } else
             return in.nextInt();
     }
 
-    long nextLong(long def) throws IOException {
-        if(nextNull()) {
+    static long nextLong(JsonReader in, long def) throws IOException {
+        if(nextNull(in)) {
             return def;
         } else
             return in.nextLong();
     }
 
-    String nextString() throws IOException {
-        if(nextNull())
+    static String nextString(JsonReader in) throws IOException {
+        if(nextNull(in))
             return null;
         else
             return in.nextString();
     }
 
-    boolean nextBoolean(boolean def) throws IOException {
-        if(nextNull())
+    static boolean nextBoolean(JsonReader in, boolean def) throws IOException {
+        if(nextNull(in))
             return def;
         else
             return in.nextBoolean();
     }
 
-    private boolean nextNull() throws IOException {
+    private static boolean nextNull(JsonReader in) throws IOException {
         if(in.peek() == JsonReader.Token.NULL) {
             in.nextNull();
             return true;
@@ -39,6 +39,20 @@ public class StatusTypeAdapter extends JsonAdapter<Status> {
     public void toJson(@NonNull JsonWriter out, Status value) throws IOException {
     }
 
+    private static final JsonReader.Options OPTIONS = JsonReader.Options.of(
+            "version",
+            "warnings",
+            "issues",
+            "user"
+    );
+
+    private static final JsonReader.Options WARNINGS_OPTIONS = JsonReader.Options.of(
+            "improperlyConfiguredCron",
+            "incorrectDbCharset"
+    );
+
+    private final UserTypeAdapter userTypeAdapter = new UserTypeAdapter();
+
     @Override
     public Status fromJson(@NonNull JsonReader in) throws IOException {
         if (in.peek() == JsonReader.Token.NULL) {
@@ -46,27 +60,26 @@ public class StatusTypeAdapter extends JsonAdapter<Status> {
             return null;
         }
 
-        final NullableJsonReader reader = new NullableJsonReader(in);
         final Status status = new Status();
 
         in.beginObject();
 
         while (in.hasNext()) {
-            String name = in.nextName();
-            switch (name) {
-                case "version":
-                    status.setVersion(reader.nextString());
+            switch (in.selectName(OPTIONS)) {
+                case 0: // version
+                    status.setVersion(NullableJsonReader.nextString(in));
                     break;
-                case "warnings":
-                case "issues":
+                case 1: // warnings
+                case 2: // issues
                     // this is called warnings in api v1-2, issues in api v2
                     readWarnings(in, status);
                     break;
-                case "user":
-                    status.setUser(new UserTypeAdapter().fromJson(in));
+                case 3: // user
+                    status.setUser(userTypeAdapter.fromJson(in));
                     break;
                 default:
-                    Log.w(TAG, "Unknown value in status json: " + name);
+                    // Only unknown names are read as a String
+                    Log.w(TAG, "Unknown value in status json: " + in.nextName());
                     in.skipValue();
                     break;
             }
@@ -79,17 +92,16 @@ public class StatusTypeAdapter extends JsonAdapter<Status> {
     private void readWarnings(JsonReader in, Status status) throws IOException {
         in.beginObject();
         while(in.hasNext()) {
-            String name = in.nextName();
-            switch (name) {
-                case "improperlyConfiguredCron":
+            switch (in.selectName(WARNINGS_OPTIONS)) {
+                case 0: // improperlyConfiguredCron
                     status.setImproperlyConfiguredCron(in.nextBoolean());
                     break;
-                case "incorrectDbCharset":
+                case 1: // incorrectDbCharset
                     // TODO: 11/9/17 Show warning 
                     in.skipValue();
                     break;
                 default:
-                    Log.w(TAG, "Unknown value in status warnings json: " + name);
+                    Log.w(TAG, "Unknown value in status warnings json: " + in.nextName());
                     in.skipValue();
             }
         }
@@ -28,9 +28,9 @@ import com.squareup.moshi.JsonReader;
 import com.squareup.moshi.JsonWriter;
 
 import java.io.IOException;
-import java.util.Date;
 
 import email.schaal.ocreader.database.model.User;
+import email.schaal.ocreader.util.DateParser;
 
 /**
  * TypeAdapter to deserialize the JSON response for Users.
@@ -42,6 +42,18 @@ public class UserTypeAdapter extends JsonAdapter<User> {
     public void toJson(@NonNull JsonWriter out, User value) throws IOException {
     }
 
+    private static final JsonReader.Options OPTIONS = JsonReader.Options.of(
+            "userId",
+            "displayName",
+            "lastLoginTimestamp",
+            "avatar"
+    );
+
+    private static final JsonReader.Options AVATAR_OPTIONS = JsonReader.Options.of(
+            "data",
+            "mime"
+    );
+
     @Override
     public User fromJson(@NonNull JsonReader in) throws IOException {
         if (in.peek() == JsonReader.Token.NULL) {
@@ -51,25 +63,25 @@ public class UserTypeAdapter extends JsonAdapter<User> {
         User user = new User();
         in.beginObject();
         while (in.hasNext()) {
-            String name = in.nextName();
-            switch (name) {
-                case "userId":
+            switch (in.selectName(OPTIONS)) {
+                case 0: // userId
                     user.setUserId(in.nextString());
                     break;
-                case "displayName":
+                case 1: // displayName
                     user.setDisplayName(in.nextString());
                     break;
-                case "lastLoginTimestamp":
-                    user.setLastLogin(new Date(in.nextLong() * 1000));
+                case 2: // lastLoginTimestamp
+                    user.setLastLogin(DateParser.fromEpochSeconds(in.nextLong()));
                     break;
-                case "avatar":
+                case 3: // avatar
                     if(in.peek() == JsonReader.Token.NULL)
                         in.skipValue();
                     else
-                        readAvatar(in, user, name);
+                        readAvatar(in, user);
                     break;
                 default:
-                    Log.w(TAG, "Unknown value in user json: " + name);
+                    // Only unknown names are read as a String
+                    Log.w(TAG, "Unknown value in user json: " + in.nextName());
                     in.skipValue();
                     break;
             }
@@ -78,19 +90,18 @@ public class UserTypeAdapter extends JsonAdapter<User> {
         return user;
     }
 
-    private void readAvatar(JsonReader in, User user, String name) throws IOException {
+    private void readAvatar(JsonReader in, User user) throws IOException {
         in.beginObject();
         while(in.hasNext()) {
-            String avatarName = in.nextName();
-            switch (avatarName) {
-                case "data":
+            switch (in.selectName(AVATAR_OPTIONS)) {
+                case 0: // data
                     user.setAvatar(in.nextString());
                     break;
-                case "mime":
+                case 1: // mime
                     user.setAvatarMime(in.nextString());
                     break;
                 default:
-                    Log.w(TAG, "Unknown value in avatar json: " + name);
+                    Log.w(TAG, "Unknown value in avatar json: " + in.nextName());
                     in.skipValue();
                     break;
             }
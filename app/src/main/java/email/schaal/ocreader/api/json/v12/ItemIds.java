@@ -1,5 +1,6 @@
 package email.schaal.ocreader.api.json.v12;
 
+import java.util.Collection;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -17,6 +18,10 @@ public class ItemIds {
         }
     }
 
+    public ItemIds(Collection<Long> itemIds) {
+        this.items.addAll(itemIds);
+    }
+
     public Set<Long> getItems() {
         return items;
     }
@@ -0,0 +1,214 @@
+package email.schaal.ocreader.database;
+
+import android.content.Context;
+import android.util.Log;
+import android.util.SparseLongArray;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+import email.schaal.ocreader.database.model.Body;
+import email.schaal.ocreader.database.model.Item;
+import email.schaal.ocreader.util.SegmentStore;
+import io.realm.OrderedRealmCollectionSnapshot;
+import io.realm.Realm;
+import io.realm.RealmResults;
+
+/**
+ * Keeps the item bodies outside of the Realm, in a {@link SegmentStore}. Items link to a
+ * {@link Body} with the address of their body, see {@link Item#getBody()}.
+ *
+ * Bodies no longer referenced by any item stay in their segment until {@link #compact(Realm)}
+ * copies the remaining bodies of mostly dead segments and deletes them.
+ */
+public class BodyStore {
+    private final static String TAG = BodyStore.class.getName();
+
+    private static final String DIRECTORY = "bodies";
+
+    // Compact when at least this many bytes are dead
+    private static final long COMPACT_THRESHOLD = SegmentStore.SEGMENT_SIZE;
+
+    // Segments with less live bytes than this are copied when compacting
+    private static final float MIN_LIVE_RATIO = 0.5f;
+
+    // Items moved per transaction when migrating bodies out of the Realm, kept small because
+    // compressing and hashing happens while other writers wait
+    private static final int MIGRATION_BATCH_SIZE = 25;
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private static BodyStore instance;
+
+    private static final Executor executor = Executors.newSingleThreadExecutor();
+
+    private final SegmentStore segmentStore;
+
+    private BodyStore(File directory) {
+        segmentStore = new SegmentStore(directory);
+    }
+
+    public static void init(Context context) {
+        instance = new BodyStore(new File(context.getFilesDir(), DIRECTORY));
+    }
+
+    /**
+     * @return the BodyStore, null if not initialized, bodies are kept in the Realm then
+     */
+    @Nullable
+    public static BodyStore getInstance() {
+        return instance;
+    }
+
+    /**
+     * @return address of the stored body, null if it couldn't be stored
+     */
+    @Nullable
+    public SegmentStore.Address put(@NonNull String body) {
+        try {
+            return segmentStore.put(body);
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to store body", e);
+            return null;
+        }
+    }
+
+    @Nullable
+    public String get(@NonNull SegmentStore.Address address) {
+        try {
+            return segmentStore.get(address);
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to read body", e);
+            return null;
+        }
+    }
+
+    /**
+     * @return hash identifying the content of body
+     */
+    @NonNull
+    public static String hash(@NonNull String body) {
+        try {
+            final byte[] digest = MessageDigest.getInstance("SHA-1").digest(body.getBytes(StandardCharsets.UTF_8));
+            final char[] hash = new char[digest.length * 2];
+            for(int i = 0; i < digest.length; i++) {
+                hash[i * 2] = HEX_DIGITS[(digest[i] >> 4) & 0xf];
+                hash[i * 2 + 1] = HEX_DIGITS[digest[i] & 0xf];
+            }
+            return new String(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-1 not available", e);
+        }
+    }
+
+    /**
+     * Delete segments without live bodies and copy the live bodies out of sparse segments, if
+     * enough bodies are dead. Call on a background thread.
+     *
+     * Copied segments are only deleted in the next run, so Realm instances on other threads that
+     * still see the old addresses can read them until then.
+     *
+     * New bodies are only appended to the active segment, so segments before it can be measured
+     * and copied without holding a write transaction. Only the new addresses are written in a
+     * short transaction, for the bodies that didn't change meanwhile.
+     */
+    public void compact(@NonNull Realm realm) {
+        // Bodies are stored in write transactions, waiting for a running one ensures that the
+        // bodies in the segments before the active one are committed and seen below
+        realm.beginTransaction();
+        final int activeSegment = segmentStore.getActiveSegment();
+        realm.cancelTransaction();
+
+        final RealmResults<Body> bodies = realm.where(Body.class).lessThan(Body.SEGMENT, activeSegment).findAll();
+
+        final SparseLongArray liveBytes = new SparseLongArray();
+        for(Body body: bodies) {
+            final SegmentStore.Address address = body.getAddress();
+            liveBytes.put(address.segment, liveBytes.get(address.segment) + address.length);
+        }
+
+        long deadBytes = 0;
+        for(int segment: segmentStore.getSegments()) {
+            if(segment >= activeSegment)
+                continue;
+
+            if(liveBytes.get(segment) == 0)
+                segmentStore.delete(segment);
+            else
+                deadBytes += segmentStore.getSize(segment) - liveBytes.get(segment);
+        }
+
+        if(deadBytes < COMPACT_THRESHOLD)
+            return;
+
+        final List<String> hashes = new ArrayList<>();
+        final List<SegmentStore.Address> sources = new ArrayList<>();
+        final List<SegmentStore.Address> copies = new ArrayList<>();
+        for(Body body: bodies) {
+            final SegmentStore.Address address = body.getAddress();
+            if(liveBytes.get(address.segment) < segmentStore.getSize(address.segment) * MIN_LIVE_RATIO) {
+                try {
+                    copies.add(segmentStore.copy(address));
+                    sources.add(address);
+                    hashes.add(body.getHash());
+                } catch (IOException e) {
+                    Log.e(TAG, "Failed to copy body", e);
+                }
+            }
+        }
+
+        realm.executeTransaction(realm1 -> {
+            for(int i = 0; i < hashes.size(); i++) {
+                final Body body = realm1.where(Body.class).equalTo(Body.HASH, hashes.get(i)).findFirst();
+                // Bodies released meanwhile leave their copy as dead space
+                if(body != null && body.getAddress().equals(sources.get(i)))
+                    body.setAddress(copies.get(i));
+            }
+        });
+    }
+
+    /**
+     * Move bodies still kept in the Realm, e.g. after upgrading from a database without
+     * BodyStore, into the store
+     */
+    public void migrate(@NonNull Realm realm) {
+        OrderedRealmCollectionSnapshot<Item> batch;
+        do {
+            batch = realm.where(Item.class).isNotNull(Item.BODY).limit(MIGRATION_BATCH_SIZE).findAll().createSnapshot();
+
+            final OrderedRealmCollectionSnapshot<Item> items = batch;
+            realm.executeTransaction(realm1 -> {
+                for(Item item: items)
+                    item.storeBody(realm1, this);
+            });
+        } while(batch.size() == MIGRATION_BATCH_SIZE && batch.last().getStoredBody() != null);
+    }
+
+    /**
+     * Run {@link #migrate(Realm)} and {@link #compact(Realm)} in the background
+     */
+    public void maintainInBackground() {
+        executor.execute(() -> {
+            Realm realm = null;
+            try {
+                realm = Realm.getDefaultInstance();
+                migrate(realm);
+                compact(realm);
+            } catch (Exception e) {
+                Log.e(TAG, "Failed to maintain body store", e);
+            } finally {
+                Queries.closeRealm(realm);
+            }
+        });
+    }
+}
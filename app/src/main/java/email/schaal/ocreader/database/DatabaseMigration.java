@@ -3,8 +3,14 @@ package email.schaal.ocreader.database;
 import androidx.annotation.NonNull;
 import android.util.Log;
 
+import email.schaal.ocreader.database.model.Body;
+import email.schaal.ocreader.database.model.Counter;
+import email.schaal.ocreader.database.model.Feed;
 import email.schaal.ocreader.database.model.Item;
+import email.schaal.ocreader.database.model.SavedSearch;
+import email.schaal.ocreader.database.model.SearchTerm;
 import email.schaal.ocreader.database.model.TemporaryFeed;
+import email.schaal.ocreader.util.SegmentStore;
 import io.realm.DynamicRealm;
 import io.realm.DynamicRealmObject;
 import io.realm.FieldAttribute;
@@ -82,6 +88,143 @@ class DatabaseMigration implements RealmMigration {
             itemSchema
                     .addField(Item.ACTIVE, boolean.class, FieldAttribute.INDEXED);
 
+            oldVersion++;
+        }
+
+        /*
+          12 -> 13
+
+          - Add textColor and backgroundColor properties to Feed
+         */
+        if(oldVersion == 12) {
+            final RealmObjectSchema feedSchema = schema.get("Feed");
+
+            if(feedSchema == null)
+                throw new IllegalStateException("Feed schema not found");
+
+            feedSchema
+                    .addField(Feed.TEXT_COLOR, Integer.class)
+                    .addField(Feed.BACKGROUND_COLOR, Integer.class);
+
+            oldVersion++;
+        }
+
+        /*
+          13 -> 14
+
+          - Add Counter, filled in Queries.init
+         */
+        if(oldVersion == 13) {
+            schema.create("Counter")
+                    .addField(Counter.ID, long.class, FieldAttribute.PRIMARY_KEY)
+                    .addField(Counter.COUNT, int.class);
+
+            oldVersion++;
+        }
+
+        /*
+          14 -> 15
+
+          - Add SearchTerm, filled in the background by SearchIndex
+         */
+        if(oldVersion == 14) {
+            schema.create("SearchTerm")
+                    .addField(SearchTerm.TERM, String.class, FieldAttribute.PRIMARY_KEY)
+                    .addField(SearchTerm.POSTINGS, byte[].class);
+
+            oldVersion++;
+        }
+
+        /*
+          15 -> 16
+
+          - Add SavedSearch
+         */
+        if(oldVersion == 15) {
+            final RealmObjectSchema itemSchema = schema.get("Item");
+
+            if(itemSchema == null)
+                throw new IllegalStateException("Item schema not found");
+
+            schema.create("SavedSearch")
+                    .addField(SavedSearch.ID, long.class, FieldAttribute.PRIMARY_KEY)
+                    .addField(SavedSearch.NAME, String.class)
+                    .addField(SavedSearch.KEYWORDS, String.class)
+                    .addField(SavedSearch.AUTHOR, String.class)
+                    .addRealmListField(SavedSearch.FEED_IDS, Long.class)
+                    .addField(SavedSearch.MAX_AGE_DAYS, int.class)
+                    .addField(SavedSearch.ENCLOSURE_REQUIRED, boolean.class)
+                    .addRealmListField(SavedSearch.ITEMS, itemSchema);
+
+            oldVersion++;
+        }
+
+        /*
+          16 -> 17
+
+          - Add the BodyStore address to Item, the bodies are moved in the background
+         */
+        if(oldVersion == 16) {
+            final RealmObjectSchema itemSchema = schema.get("Item");
+
+            if(itemSchema == null)
+                throw new IllegalStateException("Item schema not found");
+
+            itemSchema
+                    .addField("bodySegment", int.class)
+                    .addField("bodyOffset", int.class)
+                    .addField("bodyLength", int.class);
+
+            oldVersion++;
+        }
+
+        /*
+          17 -> 18
+
+          - Add Body, shared by the items with the same body
+          - Replace the BodyStore address of Item with a link to its Body
+         */
+        if(oldVersion == 17) {
+            final RealmObjectSchema itemSchema = schema.get("Item");
+
+            if(itemSchema == null)
+                throw new IllegalStateException("Item schema not found");
+
+            final RealmObjectSchema bodySchema = schema.create("Body")
+                    .addField(Body.HASH, String.class, FieldAttribute.PRIMARY_KEY)
+                    .addField(Body.SEGMENT, int.class)
+                    .addField(Body.OFFSET, int.class)
+                    .addField(Body.LENGTH, int.class)
+                    .addField(Body.REFERENCES, int.class);
+
+            itemSchema.addRealmObjectField(Item.STORED_BODY, bodySchema);
+
+            final BodyStore bodyStore = BodyStore.getInstance();
+            if(bodyStore != null) {
+                for (DynamicRealmObject item : realm.where("Item").greaterThan("bodyLength", 0).findAll()) {
+                    final SegmentStore.Address address = new SegmentStore.Address(item.getInt("bodySegment"), item.getInt("bodyOffset"), item.getInt("bodyLength"));
+                    final String body = bodyStore.get(address);
+                    if (body == null)
+                        continue;
+
+                    final String hash = BodyStore.hash(body);
+                    DynamicRealmObject storedBody = realm.where("Body").equalTo(Body.HASH, hash).findFirst();
+                    if (storedBody == null) {
+                        storedBody = realm.createObject("Body", hash);
+                        storedBody.setInt(Body.SEGMENT, address.segment);
+                        storedBody.setInt(Body.OFFSET, address.offset);
+                        storedBody.setInt(Body.LENGTH, address.length);
+                    }
+                    storedBody.setInt(Body.REFERENCES, storedBody.getInt(Body.REFERENCES) + 1);
+                    item.setObject(Item.STORED_BODY, storedBody);
+                }
+            }
+
+            itemSchema
+                    .removeField("bodySegment")
+                    .removeField("bodyOffset")
+                    .removeField("bodyLength");
+
             //noinspection UnusedAssignment
             oldVersion++;
         }
@@ -25,16 +25,25 @@ import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import android.util.Log;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
 
+import email.schaal.ocreader.database.model.Counter;
 import email.schaal.ocreader.database.model.Feed;
 import email.schaal.ocreader.database.model.Insertable;
 import email.schaal.ocreader.database.model.Item;
+import email.schaal.ocreader.database.model.SavedSearch;
+import email.schaal.ocreader.database.model.Syncable;
 import email.schaal.ocreader.database.model.TemporaryFeed;
 import email.schaal.ocreader.database.model.TreeItem;
-import email.schaal.ocreader.util.AlarmUtils;
+import email.schaal.ocreader.service.CompactJobService;
+import email.schaal.ocreader.util.SyncScheduler;
 import io.realm.Realm;
 import io.realm.RealmConfiguration;
 import io.realm.RealmMigration;
@@ -50,7 +59,7 @@ import io.realm.exceptions.RealmException;
 public class Queries {
     private final static String TAG = Queries.class.getName();
 
-    public final static int SCHEMA_VERSION = 12;
+    public final static int SCHEMA_VERSION = 18;
 
     private final static Realm.Transaction initialData = realm -> {
         realm.deleteAll();
@@ -70,11 +79,13 @@ public class Queries {
 
     public static void init(Context context) {
         Realm.init(context);
+        BodyStore.init(context);
         RealmConfiguration realmConfiguration = new RealmConfiguration.Builder()
                 .schemaVersion(SCHEMA_VERSION)
                 .migration(migration)
                 .initialData(initialData)
-                .compactOnLaunch()
+                // Only measures the file, compacting happens in the background
+                .compactOnLaunch((totalBytes, usedBytes) -> CompactJobService.onLaunch(context, totalBytes, usedBytes))
                 .build();
         Realm.setDefaultConfiguration(realmConfiguration);
 
@@ -83,6 +94,13 @@ public class Queries {
             realm = Realm.getDefaultInstance();
             if(realm.isEmpty())
                 realm.executeTransaction(initialData);
+            else {
+                // Counters are shown in the first frame, everything else is checked in the background
+                if(realm.where(Counter.class).count() == 0)
+                    realm.executeTransaction(Counter::update);
+                SearchIndex.rebuildInBackgroundIfMissing();
+                BodyStore.getInstance().maintainInBackground();
+            }
         } catch (Exception ex) {
             Log.e(TAG, "Failed to open realm db", ex);
             closeRealm(realm);
@@ -113,35 +131,94 @@ public class Queries {
 
     public static void insert(Realm realm, final Iterable<? extends Insertable> elements) {
         realm.executeTransaction(realm1 -> {
+            final SearchIndex searchIndex = new SearchIndex(realm1);
+            final Map<Long, NavigableSet<String>> itemTerms = new LinkedHashMap<>();
             for(final Insertable element: elements) {
-                element.insert(realm1);
+                if(element instanceof Item) {
+                    final Item item = (Item) element;
+                    // Looked up once for the index and the insert, reduced items are matched by
+                    // their contentHash instead
+                    final Item storedItem = item.getTitle() != null ? Item.get(realm1, item.getId()) : null;
+                    // Reduced items and items with unchanged content only change the state, the
+                    // index and SavedSearch membership stay the same
+                    if(item.changesContent(storedItem)) {
+                        // Tokenized before the body is moved to the BodyStore by inserting
+                        final NavigableSet<String> terms = searchIndex.add(item, storedItem);
+                        if(terms != null)
+                            itemTerms.put(item.getId(), terms);
+                    }
+                    item.insert(realm1, storedItem);
+                } else {
+                    element.insert(realm1);
+                }
             }
+            searchIndex.commit();
+            SavedSearch.updateItems(realm1, itemTerms);
         });
     }
 
-    public static <T extends RealmModel & TreeItem & Insertable> void deleteAndInsert(Realm realm, final Class<T> clazz, final List<T> elements) {
+    /**
+     * Replace the stored objects of clazz with elements, only writing new or changed elements and
+     * deleting the removed ones. Nothing is written if nothing changed.
+     */
+    public static <T extends RealmModel & TreeItem & Insertable & Syncable<T>> void deleteAndInsert(Realm realm, final Class<T> clazz, final List<T> elements) {
         Collections.sort(elements, TreeItem.COMPARATOR);
 
-        realm.executeTransaction(realm1 -> {
-            final RealmResults<T> databaseItems = realm1.where(clazz).sort(TreeItem.ID, Sort.ASCENDING).findAll();
+        final RealmResults<T> databaseItems = realm.where(clazz).sort(TreeItem.ID, Sort.ASCENDING).findAll();
+        final Iterator<T> databaseIterator = databaseItems.iterator();
 
-            final Iterator<T> databaseIterator = databaseItems.iterator();
+        final List<T> removed = new ArrayList<>();
+        final List<T> changed = new ArrayList<>();
 
-            for (T element : elements) {
-                T currentDatabaseItem;
+        T currentDatabaseItem = databaseIterator.hasNext() ? databaseIterator.next() : null;
+        for (T element : elements) {
+            // The lists are sorted by id, so if currentDatabaseItem.getId() < element.getId() it was removed on the server
+            while (currentDatabaseItem != null && currentDatabaseItem.getId() < element.getId()) {
+                removed.add(currentDatabaseItem);
+                currentDatabaseItem = databaseIterator.hasNext() ? databaseIterator.next() : null;
+            }
 
-                // The lists are sorted by id, so if currentDatabaseItem.getId() < element.getId() we can remove it from the database
-                while (databaseIterator.hasNext() && (currentDatabaseItem = databaseIterator.next()).getId() < element.getId()) {
-                    currentDatabaseItem.delete(realm1);
-                }
+            if (currentDatabaseItem != null && currentDatabaseItem.getId() == element.getId()) {
+                if (!element.hasSameSyncedFields(currentDatabaseItem))
+                    changed.add(element);
+                currentDatabaseItem = databaseIterator.hasNext() ? databaseIterator.next() : null;
+            } else {
+                changed.add(element);
+            }
+        }
+
+        // Remaining items were removed on the server
+        while (currentDatabaseItem != null) {
+            removed.add(currentDatabaseItem);
+            currentDatabaseItem = databaseIterator.hasNext() ? databaseIterator.next() : null;
+        }
+
+        // Don't notify listeners of a write without changes
+        if (removed.isEmpty() && changed.isEmpty())
+            return;
 
+        realm.executeTransaction(realm1 -> {
+            for (T item : removed)
+                item.delete(realm1);
+
+            for (T element : changed)
                 element.insert(realm1);
-            }
+        });
+    }
 
-            // Remove remaining items from the database
-            while (databaseIterator.hasNext()) {
-                databaseIterator.next().delete(realm1);
-            }
+    /**
+     * Insert or update savedSearch and fill it with the matching items in a background transaction
+     */
+    public static void saveSavedSearch(Realm realm, final SavedSearch savedSearch, Realm.Transaction.OnSuccess onSuccess) {
+        realm.executeTransactionAsync(realm1 -> realm1.copyToRealmOrUpdate(savedSearch).fillItems(realm1), onSuccess,
+                error -> Log.e(TAG, "Failed to save search", error));
+    }
+
+    public static void deleteSavedSearch(Realm realm, final long id) {
+        realm.executeTransaction(realm1 -> {
+            final SavedSearch savedSearch = SavedSearch.get(realm1, id);
+            if(savedSearch != null)
+                savedSearch.delete(realm1);
         });
     }
 
@@ -166,6 +243,13 @@ public class Queries {
 
         if(itemsToDelete > 0) {
             realm.executeTransaction(realm1 -> {
+                final SearchIndex searchIndex = new SearchIndex(realm1);
+                for (int i = 0; i < itemsToDelete; i++) {
+                    searchIndex.remove(expendableItems.get(i));
+                    expendableItems.get(i).releaseBody();
+                }
+                searchIndex.commit();
+
                 for (int i = 0; i < itemsToDelete; i++) {
                     expendableItems.deleteFirstFromRealm();
                 }
@@ -173,6 +257,34 @@ public class Queries {
         }
     }
 
+    /**
+     * Remove stored items by id, e.g. items that got muted
+     */
+    public static void removeItems(Realm realm, final Collection<Long> itemIds) {
+        if(itemIds.isEmpty())
+            return;
+
+        final RealmResults<Item> items = realm.where(Item.class)
+                .in(Item.ID, itemIds.toArray(new Long[0]))
+                .equalTo(Item.STARRED, false)
+                .findAll();
+
+        if(!items.isEmpty()) {
+            realm.executeTransaction(realm1 -> {
+                final SearchIndex searchIndex = new SearchIndex(realm1);
+                for (Item item : items) {
+                    searchIndex.remove(item);
+                    item.releaseBody();
+                    // Update the unread counts
+                    item.setUnread(false);
+                }
+                searchIndex.commit();
+
+                items.deleteAllFromRealm();
+            });
+        }
+    }
+
     public static void markAboveAsRead(Realm realm, final List<Item> items, final long lastItemId) {
         realm.executeTransaction(realm1 -> {
             try {
@@ -183,7 +295,7 @@ public class Queries {
                     }
                 }
             } finally {
-                checkAlarm(realm1);
+                checkPendingChanges(realm1);
             }
         });
     }
@@ -199,7 +311,7 @@ public class Queries {
                     item.setUnread(false);
                 }
             } finally {
-                checkAlarm(realm1);
+                checkPendingChanges(realm1);
             }
         }, onSuccess, onError);
     }
@@ -208,29 +320,52 @@ public class Queries {
         realm.executeTransaction(realm1 -> {
             try {
                 for (Item item : items) {
-                    /* If the item has a fingerprint, mark all items with the same fingerprint
-                      as read
-                     */
-                    if(item.getFingerprint() == null) {
-                        item.setUnread(newUnread);
-                    } else {
-                        RealmResults<Item> sameItems = realm1.where(Item.class)
-                                .equalTo(Item.FINGERPRINT, item.getFingerprint())
-                                .equalTo(Item.UNREAD, !newUnread)
-                                .findAll();
-                        for(Item sameItem: sameItems) {
-                            sameItem.setUnread(newUnread);
-                        }
-                    }
+                    setItemUnread(realm1, newUnread, item);
                 }
             } catch (RealmException e) {
                 Log.e(TAG, "Failed to set item as unread", e);
             } finally {
-                checkAlarm(realm1);
+                checkPendingChanges(realm1);
             }
         });
     }
 
+    /**
+     * Set the unread state of the items with the given ids in a background transaction
+     */
+    public static void setItemsUnread(Realm realm, final boolean newUnread, final long[] itemIds) {
+        realm.executeTransactionAsync(realm1 -> {
+            try {
+                for (long itemId : itemIds) {
+                    final Item item = realm1.where(Item.class).equalTo(Item.ID, itemId).findFirst();
+                    if(item != null)
+                        setItemUnread(realm1, newUnread, item);
+                }
+            } catch (RealmException e) {
+                Log.e(TAG, "Failed to set item as unread", e);
+            } finally {
+                checkPendingChanges(realm1);
+            }
+        });
+    }
+
+    private static void setItemUnread(Realm realm, boolean newUnread, Item item) {
+        /* If the item has a fingerprint, mark all items with the same fingerprint
+          as read
+         */
+        if(item.getFingerprint() == null) {
+            item.setUnread(newUnread);
+        } else {
+            RealmResults<Item> sameItems = realm.where(Item.class)
+                    .equalTo(Item.FINGERPRINT, item.getFingerprint())
+                    .equalTo(Item.UNREAD, !newUnread)
+                    .findAll();
+            for(Item sameItem: sameItems) {
+                sameItem.setUnread(newUnread);
+            }
+        }
+    }
+
     public static void setItemsStarred(Realm realm, final boolean newStarred, final Item... items) {
         realm.executeTransaction(realm1 -> {
             try {
@@ -240,19 +375,41 @@ public class Queries {
             } catch (RealmException e) {
                 Log.e(TAG, "Failed to set item as starred", e);
             } finally {
-                checkAlarm(realm1);
+                checkPendingChanges(realm1);
+            }
+        });
+    }
+
+    /**
+     * Set the starred state of the items with the given ids in a background transaction
+     */
+    public static void setItemsStarred(Realm realm, final boolean newStarred, final long[] itemIds) {
+        realm.executeTransactionAsync(realm1 -> {
+            try {
+                for (long itemId : itemIds) {
+                    final Item item = realm1.where(Item.class).equalTo(Item.ID, itemId).findFirst();
+                    if(item != null)
+                        item.setStarred(newStarred);
+                }
+            } catch (RealmException e) {
+                Log.e(TAG, "Failed to set item as starred", e);
+            } finally {
+                checkPendingChanges(realm1);
             }
         });
     }
 
-    private static synchronized void checkAlarm(Realm realm) {
+    /**
+     * Schedule uploading changed items if there are any, cancel the upload otherwise
+     */
+    public static synchronized void checkPendingChanges(Realm realm) {
         long changedItemsCount = realm.where(Item.class)
                 .equalTo(Item.UNREAD_CHANGED, true)
                 .or()
                 .equalTo(Item.STARRED_CHANGED, true).count();
         if (changedItemsCount > 0)
-            AlarmUtils.getInstance().setAlarm();
+            SyncScheduler.getInstance().scheduleChanges();
         else
-            AlarmUtils.getInstance().cancelAlarm();
+            SyncScheduler.getInstance().cancelChanges();
     }
 }
@@ -0,0 +1,283 @@
+package email.schaal.ocreader.database;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.text.TextUtils;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+import email.schaal.ocreader.database.model.Item;
+import email.schaal.ocreader.database.model.SearchTerm;
+import email.schaal.ocreader.util.Postings;
+import email.schaal.ocreader.util.SearchTokenizer;
+import io.realm.Realm;
+import io.realm.RealmObject;
+import io.realm.RealmResults;
+
+/**
+ * Inverted index over title, author and body of the items, stored as {@link SearchTerm}s.
+ *
+ * Changes are collected with {@link #add(Item)} and {@link #remove(Item)} and written by
+ * {@link #commit()}, all in the same transaction. Items deleted without going through the index
+ * (e.g. with their feed) leave their ids in the postings, search results are looked up by id, so
+ * these ids are simply not found.
+ */
+public class SearchIndex {
+    private final static String TAG = SearchIndex.class.getName();
+
+    /**
+     * Maximum number of results of a search, the newest items are kept
+     */
+    public static final int MAX_RESULTS = 500;
+
+    // Items indexed per commit when rebuilding the index, bounds the memory used
+    private static final int REBUILD_BATCH_SIZE = 1000;
+
+    private static final Executor executor = Executors.newSingleThreadExecutor();
+    private static final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    private final Realm realm;
+
+    private final Map<String, IdList> addedIds = new HashMap<>();
+    private final Map<String, IdList> removedIds = new HashMap<>();
+
+    private final Set<String> terms = new HashSet<>();
+
+    public SearchIndex(@NonNull Realm realm) {
+        this.realm = realm;
+    }
+
+    /**
+     * Index a new or updated item. Call before inserting item, so the terms of the stored
+     * version can be replaced.
+     * @param storedItem stored item with the id of item
+     * @return indexed terms of item, null for a reduced item
+     */
+    @Nullable
+    public NavigableSet<String> add(@NonNull Item item, @Nullable Item storedItem) {
+        // Reduced item, only changes the unread and starred state
+        if(item.getTitle() == null)
+            return null;
+
+        final NavigableSet<String> itemTerms = new TreeSet<>();
+        tokenize(item, itemTerms);
+
+        if(storedItem != null) {
+            if(TextUtils.equals(storedItem.getTitle(), item.getTitle())
+                    && TextUtils.equals(storedItem.getAuthor(), item.getAuthor())
+                    && TextUtils.equals(storedItem.getBody(), item.getBody()))
+                return itemTerms;
+
+            collect(storedItem, removedIds);
+        }
+
+        addIds(item.getId(), itemTerms, addedIds);
+        return itemTerms;
+    }
+
+    /**
+     * Remove item from the index, call before deleting it
+     */
+    public void remove(@NonNull Item item) {
+        collect(item, removedIds);
+    }
+
+    /**
+     * Add the indexed terms of item to terms
+     */
+    public static void tokenize(@NonNull Item item, @NonNull Collection<String> terms) {
+        SearchTokenizer.tokenize(item.getTitle(), false, terms);
+        SearchTokenizer.tokenize(item.getAuthor(), false, terms);
+        SearchTokenizer.tokenize(item.getBody(), true, terms);
+    }
+
+    private void collect(Item item, Map<String, IdList> ids) {
+        terms.clear();
+        tokenize(item, terms);
+        addIds(item.getId(), terms, ids);
+    }
+
+    private static void addIds(long id, Set<String> terms, Map<String, IdList> ids) {
+        for(String term: terms) {
+            IdList termIds = ids.get(term);
+            if(termIds == null) {
+                termIds = new IdList();
+                ids.put(term, termIds);
+            }
+            termIds.add(id);
+        }
+    }
+
+    /**
+     * Write the collected changes to the SearchTerms
+     */
+    public void commit() {
+        final Set<String> changedTerms = new HashSet<>(addedIds.keySet());
+        changedTerms.addAll(removedIds.keySet());
+
+        for(String term: changedTerms) {
+            final SearchTerm searchTerm = realm.where(SearchTerm.class).equalTo(SearchTerm.TERM, term).findFirst();
+
+            long[] ids = searchTerm != null ? Postings.decode(searchTerm.getPostings()) : Postings.EMPTY;
+
+            final IdList removed = removedIds.get(term);
+            if(removed != null)
+                ids = Postings.subtract(ids, removed.toSortedArray());
+
+            final IdList added = addedIds.get(term);
+            if(added != null)
+                ids = Postings.union(ids, added.toSortedArray());
+
+            if(ids.length == 0) {
+                if(searchTerm != null)
+                    RealmObject.deleteFromRealm(searchTerm);
+            } else if(searchTerm != null) {
+                searchTerm.setPostings(Postings.encode(ids));
+            } else {
+                realm.insert(new SearchTerm(term, Postings.encode(ids)));
+            }
+        }
+
+        addedIds.clear();
+        removedIds.clear();
+    }
+
+    public interface SearchCallback {
+        void onSearchFinished(@NonNull String query, @NonNull long[] ids);
+    }
+
+    /**
+     * Same as {@link #find(Realm, String)}, but returns at most {@link #MAX_RESULTS} ids of the
+     * newest items. Ids of deleted items are skipped, so they don't take the place of matches.
+     */
+    @NonNull
+    public static long[] search(@NonNull Realm realm, @NonNull String query) {
+        final long[] result = find(realm, query);
+
+        final long[] ids = new long[Math.min(result.length, MAX_RESULTS)];
+        int count = 0;
+        for(int i = result.length - 1; i >= 0 && count < ids.length; i--) {
+            if(realm.where(Item.class).equalTo(Item.ID, result[i]).count() > 0)
+                ids[ids.length - ++count] = result[i];
+        }
+
+        return Arrays.copyOfRange(ids, ids.length - count, ids.length);
+    }
+
+    /**
+     * Run {@link #search(Realm, String)} in the background, callback is called on the main thread
+     */
+    public static void searchInBackground(@NonNull final String query, @NonNull final SearchCallback callback) {
+        executor.execute(() -> {
+            Realm realm = null;
+            try {
+                realm = Realm.getDefaultInstance();
+                final long[] ids = search(realm, query);
+                mainHandler.post(() -> callback.onSearchFinished(query, ids));
+            } catch (Exception e) {
+                Log.e(TAG, "Failed to search", e);
+            } finally {
+                Queries.closeRealm(realm);
+            }
+        });
+    }
+
+    /**
+     * @return sorted ids of the items matching all terms of query, each term matches terms in the
+     * index starting with it.
+     */
+    @NonNull
+    public static long[] find(@NonNull Realm realm, @NonNull String query) {
+        final Set<String> queryTerms = new LinkedHashSet<>();
+        SearchTokenizer.tokenize(query, false, queryTerms);
+
+        long[] result = null;
+
+        for(String queryTerm: queryTerms) {
+            final IdList termIds = new IdList();
+            for(SearchTerm searchTerm: realm.where(SearchTerm.class).beginsWith(SearchTerm.TERM, queryTerm).findAll()) {
+                termIds.addAll(Postings.decode(searchTerm.getPostings()));
+            }
+
+            result = result == null ? termIds.toSortedArray() : Postings.intersect(result, termIds.toSortedArray());
+
+            if(result.length == 0)
+                break;
+        }
+
+        return result != null ? result : Postings.EMPTY;
+    }
+
+    /**
+     * Index all items again, e.g. after upgrading from a database without index
+     */
+    public static void rebuild(@NonNull Realm realm) {
+        realm.delete(SearchTerm.class);
+
+        final SearchIndex searchIndex = new SearchIndex(realm);
+        final RealmResults<Item> items = realm.where(Item.class).findAll();
+
+        for(int i = 0; i < items.size(); i++) {
+            searchIndex.collect(items.get(i), searchIndex.addedIds);
+            if((i + 1) % REBUILD_BATCH_SIZE == 0)
+                searchIndex.commit();
+        }
+
+        searchIndex.commit();
+    }
+
+    /**
+     * Rebuild the index in a background transaction if it is missing, e.g. after upgrading from
+     * a database without index
+     */
+    public static void rebuildInBackgroundIfMissing() {
+        executor.execute(() -> {
+            Realm realm = null;
+            try {
+                realm = Realm.getDefaultInstance();
+                if(realm.where(SearchTerm.class).count() == 0 && realm.where(Item.class).count() > 0)
+                    realm.executeTransaction(SearchIndex::rebuild);
+            } catch (Exception e) {
+                Log.e(TAG, "Failed to rebuild search index", e);
+            } finally {
+                Queries.closeRealm(realm);
+            }
+        });
+    }
+
+    private static class IdList {
+        private long[] ids = new long[4];
+        private int size;
+
+        private void add(long id) {
+            if(size == ids.length)
+                ids = Arrays.copyOf(ids, size * 2);
+            ids[size++] = id;
+        }
+
+        private void addAll(long[] values) {
+            if(size + values.length > ids.length)
+                ids = Arrays.copyOf(ids, Math.max(size * 2, size + values.length));
+            System.arraycopy(values, 0, ids, size, values.length);
+            size += values.length;
+        }
+
+        private long[] toSortedArray() {
+            return Postings.sort(ids, size);
+        }
+    }
+}
@@ -59,7 +59,7 @@ public class AllUnreadFolder implements TreeItem, TreeIconable {
 
     @Override
     public int getCount(Realm realm) {
-        return realm.where(Feed.class).sum(Feed.UNREAD_COUNT).intValue();
+        return Counter.get(realm, ID);
     }
 
     @Override
@@ -0,0 +1,93 @@
+package email.schaal.ocreader.database.model;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import email.schaal.ocreader.database.BodyStore;
+import email.schaal.ocreader.util.SegmentStore;
+import io.realm.Realm;
+import io.realm.RealmModel;
+import io.realm.RealmObject;
+import io.realm.annotations.PrimaryKey;
+import io.realm.annotations.RealmClass;
+
+/**
+ * Body stored in the {@link BodyStore}, shared by all items with the same body, e.g. articles
+ * cross-posted to several feeds.
+ *
+ * The hash identifies the content, references counts the items using it. The Body is deleted
+ * with the last reference, its record becomes dead space in the BodyStore.
+ */
+@SuppressWarnings("unused")
+@RealmClass
+public class Body implements RealmModel {
+    @PrimaryKey
+    private String hash;
+    public static final String HASH = "hash";
+
+    private int segment;
+    public static final String SEGMENT = "segment";
+
+    private int offset;
+    public static final String OFFSET = "offset";
+
+    private int length;
+    public static final String LENGTH = "length";
+
+    private int references;
+    public static final String REFERENCES = "references";
+
+    public Body() {
+    }
+
+    public String getHash() {
+        return hash;
+    }
+
+    @NonNull
+    public SegmentStore.Address getAddress() {
+        return new SegmentStore.Address(segment, offset, length);
+    }
+
+    public void setAddress(@NonNull SegmentStore.Address address) {
+        this.segment = address.segment;
+        this.offset = address.offset;
+        this.length = address.length;
+    }
+
+    public int getReferences() {
+        return references;
+    }
+
+    /**
+     * Get the Body with the same content as body, storing body if there is none yet, and add a
+     * reference to it. Must be called in a transaction.
+     * @return null if body couldn't be stored
+     */
+    @Nullable
+    public static Body acquire(@NonNull Realm realm, @NonNull BodyStore bodyStore, @NonNull String body) {
+        final String hash = BodyStore.hash(body);
+
+        Body storedBody = realm.where(Body.class).equalTo(HASH, hash).findFirst();
+        if(storedBody == null) {
+            final SegmentStore.Address address = bodyStore.put(body);
+            if(address == null)
+                return null;
+
+            storedBody = realm.createObject(Body.class, hash);
+            storedBody.setAddress(address);
+        }
+
+        storedBody.references++;
+        return storedBody;
+    }
+
+    /**
+     * Remove a reference, deletes the Body if it was the last one. Must be called in a transaction.
+     */
+    public void release() {
+        references--;
+        if(references <= 0)
+            RealmObject.deleteFromRealm(this);
+    }
+}
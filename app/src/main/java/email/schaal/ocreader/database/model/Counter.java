@@ -0,0 +1,114 @@
+package email.schaal.ocreader.database.model;
+
+import android.util.LongSparseArray;
+
+import io.realm.Realm;
+import io.realm.RealmModel;
+import io.realm.RealmObject;
+import io.realm.annotations.PrimaryKey;
+import io.realm.annotations.RealmClass;
+
+/**
+ * Materialized item count of a Folder or a virtual folder, so the drawer doesn't need to run a
+ * query per entry. Feeds keep their own counts in {@link Feed#getUnreadCount()}.
+ *
+ * The id is the id of the TreeItem: the unread count for Folders, {@link SavedSearch}es and
+ * {@link AllUnreadFolder}, the starred count for {@link StarredFolder}.
+ */
+@SuppressWarnings("unused")
+@RealmClass
+public class Counter implements RealmModel {
+    @PrimaryKey
+    private long id;
+    public static final String ID = "id";
+
+    private int count;
+    public static final String COUNT = "count";
+
+    public Counter() {
+    }
+
+    public Counter(long id, int count) {
+        this.id = id;
+        this.count = count;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public void setCount(int count) {
+        this.count = count;
+    }
+
+    public static int get(Realm realm, long id) {
+        final Counter counter = realm.where(Counter.class).equalTo(ID, id).findFirst();
+        return counter != null ? counter.getCount() : 0;
+    }
+
+    static void increment(Realm realm, long id, int increment) {
+        Counter counter = realm.where(Counter.class).equalTo(ID, id).findFirst();
+        if(counter == null)
+            counter = realm.createObject(Counter.class, id);
+        counter.setCount(counter.getCount() + increment);
+    }
+
+    /**
+     * Update the counters after the unread count of a feed in folderId changed
+     */
+    static void incrementUnread(Realm realm, long folderId, int increment) {
+        increment(realm, AllUnreadFolder.ID, increment);
+        if(folderId != 0)
+            increment(realm, folderId, increment);
+    }
+
+    /**
+     * Update the counters after the starred count of a feed changed
+     */
+    static void incrementStarred(Realm realm, int increment) {
+        increment(realm, StarredFolder.ID, increment);
+    }
+
+    /**
+     * Recalculate all counters from the feed counts and the SavedSearch members, e.g. after a sync
+     */
+    public static void update(Realm realm) {
+        int unreadCount = 0;
+        int starredCount = 0;
+        final LongSparseArray<Integer> counts = new LongSparseArray<>();
+
+        for(Feed feed: realm.where(Feed.class).findAll()) {
+            unreadCount += feed.getUnreadCount();
+            starredCount += feed.getStarredCount();
+
+            final Long folderId = feed.getFolderId();
+            if(folderId != null && folderId != 0)
+                counts.put(folderId, counts.get(folderId, 0) + feed.getUnreadCount());
+        }
+
+        counts.put(AllUnreadFolder.ID, unreadCount);
+        counts.put(StarredFolder.ID, starredCount);
+
+        for(SavedSearch savedSearch: realm.where(SavedSearch.class).findAll())
+            counts.put(savedSearch.getId(), savedSearch.getUnreadCount());
+
+        // Only write the counters that changed, every write notifies their listeners
+        for(Counter counter: realm.where(Counter.class).findAll().createSnapshot()) {
+            final Integer count = counts.get(counter.getId());
+            if(count == null) {
+                RealmObject.deleteFromRealm(counter);
+            } else {
+                if(count != counter.getCount())
+                    counter.setCount(count);
+                counts.remove(counter.getId());
+            }
+        }
+
+        for(int i = 0; i < counts.size(); i++)
+            realm.insert(new Counter(counts.keyAt(i), counts.valueAt(i)));
+    }
+}
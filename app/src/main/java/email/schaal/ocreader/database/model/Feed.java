@@ -23,17 +23,23 @@ package email.schaal.ocreader.database.model;
 import android.content.Context;
 import android.os.Parcel;
 import android.os.Parcelable;
+import android.text.TextUtils;
+import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
 import java.util.Collections;
 import java.util.Date;
 import java.util.List;
+import java.util.Objects;
 
 import email.schaal.ocreader.R;
+import email.schaal.ocreader.util.LongLinkedHashSet;
 import io.realm.Realm;
 import io.realm.RealmModel;
 import io.realm.RealmObject;
 import io.realm.RealmQuery;
+import io.realm.RealmResults;
+import io.realm.Sort;
 import io.realm.annotations.PrimaryKey;
 import io.realm.annotations.RealmClass;
 
@@ -42,7 +48,7 @@ import io.realm.annotations.RealmClass;
  */
 @SuppressWarnings("unused")
 @RealmClass
-public class Feed implements RealmModel, TreeItem, Insertable, Parcelable {
+public class Feed implements RealmModel, TreeItem, Insertable, Syncable<Feed>, Parcelable {
     @PrimaryKey
     private long id;
 
@@ -91,6 +97,21 @@ public class Feed implements RealmModel, TreeItem, Insertable, Parcelable {
     private String lastUpdateError;
     public static final String LAST_UPDATE_ERROR = "lastUpdateError";
 
+    /**
+     * Not part of the JSON response, generated from the favicon after sync. null if not generated
+     * yet, 0 if the favicon has no suitable color.
+     */
+    @Nullable
+    private Integer textColor;
+    public static final String TEXT_COLOR = "textColor";
+
+    /**
+     * Not part of the JSON response, see {@link #textColor}
+     */
+    @Nullable
+    private Integer backgroundColor;
+    public static final String BACKGROUND_COLOR = "backgroundColor";
+
     public Feed() {
     }
 
@@ -189,6 +210,8 @@ public class Feed implements RealmModel, TreeItem, Insertable, Parcelable {
 
     public void incrementUnreadCount(int increment) {
         unreadCount += increment;
+        if(RealmObject.isManaged(this))
+            Counter.incrementUnread(RealmObject.getRealm(this), folderId != null ? folderId : 0, increment);
     }
 
     public int getStarredCount() {
@@ -201,6 +224,8 @@ public class Feed implements RealmModel, TreeItem, Insertable, Parcelable {
 
     public void incrementStarredCount(int increment) {
         starredCount += increment;
+        if(RealmObject.isManaged(this))
+            Counter.incrementStarred(RealmObject.getRealm(this), increment);
     }
 
     public int getOrdering() {
@@ -235,7 +260,32 @@ public class Feed implements RealmModel, TreeItem, Insertable, Parcelable {
         this.lastUpdateError = lastUpdateError;
     }
 
+    @Nullable
+    public Integer getTextColor() {
+        return textColor;
+    }
+
+    public void setTextColor(@Nullable Integer textColor) {
+        this.textColor = textColor;
+    }
+
+    @Nullable
+    public Integer getBackgroundColor() {
+        return backgroundColor;
+    }
+
+    public void setBackgroundColor(@Nullable Integer backgroundColor) {
+        this.backgroundColor = backgroundColor;
+    }
+
     public void setFolder(@Nullable Folder folder) {
+        if(RealmObject.isManaged(this)) {
+            // move the unread count to the new folder
+            final Realm realm = RealmObject.getRealm(this);
+            Counter.incrementUnread(realm, folderId != null ? folderId : 0, -unreadCount);
+            Counter.incrementUnread(realm, folder != null ? folder.getId() : 0, unreadCount);
+        }
+
         if(folder != null)
             this.folderId = folder.getId();
         else
@@ -262,9 +312,35 @@ public class Feed implements RealmModel, TreeItem, Insertable, Parcelable {
         return updateErrorCount >= 50;
     }
 
+    @Override
+    public boolean hasSameSyncedFields(@NonNull Feed other) {
+        return getId() == other.getId()
+                && TextUtils.equals(getUrl(), other.getUrl())
+                && TextUtils.equals(getName(), other.getName())
+                && TextUtils.equals(getLink(), other.getLink())
+                && TextUtils.equals(getFaviconLink(), other.getFaviconLink())
+                && Objects.equals(getAdded(), other.getAdded())
+                && Objects.equals(getFolderId(), other.getFolderId())
+                && getOrdering() == other.getOrdering()
+                && isPinned() == other.isPinned()
+                && getUpdateErrorCount() == other.getUpdateErrorCount()
+                && TextUtils.equals(getLastUpdateError(), other.getLastUpdateError());
+    }
+
     @Override
     public void insert(Realm realm) {
         if(getName() != null) {
+            // Keep the generated colors as long as the favicon didn't change
+            final Feed oldFeed = Feed.get(realm, id);
+            if(oldFeed != null) {
+                if(TextUtils.equals(oldFeed.getFaviconLink(), faviconLink)) {
+                    textColor = oldFeed.getTextColor();
+                    backgroundColor = oldFeed.getBackgroundColor();
+                }
+                // Counted in-app, not part of the response
+                unreadCount = oldFeed.getUnreadCount();
+                starredCount = oldFeed.getStarredCount();
+            }
             setFolder(Folder.getOrCreate(realm, folderId));
             realm.insertOrUpdate(this);
         }
@@ -272,7 +348,20 @@ public class Feed implements RealmModel, TreeItem, Insertable, Parcelable {
 
     @Override
     public void delete(Realm realm) {
-        realm.where(Item.class).equalTo(Item.FEED_ID, getId()).findAll().deleteAllFromRealm();
+        Counter.incrementUnread(realm, folderId != null ? folderId : 0, -unreadCount);
+        Counter.incrementStarred(realm, -starredCount);
+        final RealmResults<Item> items = realm.where(Item.class).equalTo(Item.FEED_ID, getId()).findAll();
+        for(Item item: items.where().isNotNull(Item.STORED_BODY).findAll()) {
+            item.releaseBody();
+        }
+        for(Item item: items.where().equalTo(Item.UNREAD, true).findAll()) {
+            final RealmResults<SavedSearch> savedSearches = item.getSavedSearches();
+            if(savedSearches != null) {
+                for (SavedSearch savedSearch : savedSearches)
+                    Counter.increment(realm, savedSearch.getId(), -1);
+            }
+        }
+        items.deleteAllFromRealm();
         RealmObject.deleteFromRealm(this);
     }
 
@@ -281,6 +370,22 @@ public class Feed implements RealmModel, TreeItem, Insertable, Parcelable {
         return realm.where(Feed.class).equalTo(Feed.ID, id).findFirst();
     }
 
+    /**
+     * Return the feeds with the given ids, sorted by name
+     */
+    @NonNull
+    public static List<Feed> getByIds(Realm realm, LongLinkedHashSet feedIds) {
+        if(feedIds.isEmpty())
+            return Collections.emptyList();
+
+        final long[] ids = feedIds.toArray();
+        final Long[] boxedIds = new Long[ids.length];
+        for(int i = 0; i < ids.length; i++)
+            boxedIds[i] = ids[i];
+
+        return realm.where(Feed.class).in(Feed.ID, boxedIds).sort(Feed.NAME, Sort.ASCENDING).findAll();
+    }
+
     /**
      * Return the feed with id feedId, or insert a new (temporary) feed into the database.
      * @param realm Database to operate on
@@ -316,6 +421,8 @@ public class Feed implements RealmModel, TreeItem, Insertable, Parcelable {
         dest.writeByte(this.pinned ? (byte) 1 : (byte) 0);
         dest.writeInt(this.updateErrorCount);
         dest.writeString(this.lastUpdateError);
+        dest.writeValue(this.textColor);
+        dest.writeValue(this.backgroundColor);
     }
 
     protected Feed(Parcel in) {
@@ -334,6 +441,8 @@ public class Feed implements RealmModel, TreeItem, Insertable, Parcelable {
         this.pinned = in.readByte() != 0;
         this.updateErrorCount = in.readInt();
         this.lastUpdateError = in.readString();
+        this.textColor = (Integer) in.readValue(Integer.class.getClassLoader());
+        this.backgroundColor = (Integer) in.readValue(Integer.class.getClassLoader());
     }
 
     public static final Parcelable.Creator<Feed> CREATOR = new Parcelable.Creator<Feed>() {
@@ -22,6 +22,7 @@ package email.schaal.ocreader.database.model;
 
 import android.os.Parcel;
 import android.os.Parcelable;
+import android.text.TextUtils;
 
 import androidx.annotation.Keep;
 import androidx.annotation.NonNull;
@@ -45,7 +46,7 @@ import io.realm.annotations.RealmClass;
  * RealmObject representing a Folder.
  */
 @RealmClass
-public class Folder implements RealmModel, TreeItem, Insertable, TreeIconable, Parcelable {
+public class Folder implements RealmModel, TreeItem, Insertable, Syncable<Folder>, TreeIconable, Parcelable {
     @PrimaryKey
     private long id;
 
@@ -74,7 +75,7 @@ public class Folder implements RealmModel, TreeItem, Insertable, TreeIconable, P
 
     @Override
     public int getCount(Realm realm) {
-        return realm.where(Feed.class).equalTo(Feed.FOLDER_ID, getId()).sum(Feed.UNREAD_COUNT).intValue();
+        return Counter.get(realm, getId());
     }
 
     @Override
@@ -126,6 +127,11 @@ public class Folder implements RealmModel, TreeItem, Insertable, TreeIconable, P
         return Long.valueOf(getId()).hashCode();
     }
 
+    @Override
+    public boolean hasSameSyncedFields(@NonNull Folder other) {
+        return getId() == other.getId() && TextUtils.equals(getName(), other.getName());
+    }
+
     @Override
     public void insert(Realm realm) {
         if(getName() != null)
@@ -137,6 +143,7 @@ public class Folder implements RealmModel, TreeItem, Insertable, TreeIconable, P
         for(Feed feed: getFeeds(realm, false)) {
             feed.delete(realm);
         }
+        realm.where(Counter.class).equalTo(Counter.ID, getId()).findAll().deleteAllFromRealm();
         RealmObject.deleteFromRealm(this);
     }
 
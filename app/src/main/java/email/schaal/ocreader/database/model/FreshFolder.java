@@ -22,12 +22,13 @@ package email.schaal.ocreader.database.model;
 
 import android.content.Context;
 
-import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 
 import email.schaal.ocreader.R;
+import email.schaal.ocreader.util.LongLinkedHashSet;
 import io.realm.Realm;
+import io.realm.RealmQuery;
 
 /**
  * TreeItem representing the folder with fresh items (< 24h old).
@@ -55,7 +56,7 @@ public class FreshFolder implements TreeItem, TreeIconable {
 
     @Override
     public int getCount(Realm realm) {
-        return (int) realm.where(Item.class).equalTo(Item.UNREAD, true).greaterThan(Item.PUB_DATE, getDate()).count();
+        return (int) getFreshItems(realm, true).count();
     }
 
     @Override
@@ -65,20 +66,25 @@ public class FreshFolder implements TreeItem, TreeIconable {
 
     @Override
     public List<Feed> getFeeds(Realm realm, boolean onlyUnread) {
-        List<Feed> freshFeeds = new ArrayList<>();
+        final LongLinkedHashSet feedIds = new LongLinkedHashSet();
 
-        for (Item item: getItems(realm, false)) {
-            if (!freshFeeds.contains(item.getFeed())){
-                freshFeeds.add(item.getFeed());
-            }
+        for (Item item: getFreshItems(realm, onlyUnread).findAll()) {
+            feedIds.add(item.getFeedId());
         }
 
-        return freshFeeds;
+        return Feed.getByIds(realm, feedIds);
     }
 
     @Override
     public List<Item> getItems(Realm realm, boolean onlyUnread) {
-        return realm.where(Item.class).equalTo(Item.UNREAD, true).greaterThan(Item.PUB_DATE, getDate()).findAll();
+        return getFreshItems(realm, onlyUnread).findAll();
+    }
+
+    private RealmQuery<Item> getFreshItems(Realm realm, boolean onlyUnread) {
+        final RealmQuery<Item> query = realm.where(Item.class).greaterThan(Item.PUB_DATE, getDate());
+        if(onlyUnread)
+            query.equalTo(Item.UNREAD, true);
+        return query;
     }
 
     @Override
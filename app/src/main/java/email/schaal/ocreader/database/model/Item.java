@@ -25,17 +25,22 @@ import android.content.Intent;
 import android.net.Uri;
 import android.os.Parcel;
 import android.os.Parcelable;
+import android.text.TextUtils;
 
 import androidx.annotation.Keep;
+import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import android.util.Log;
 
 import java.util.Date;
 
+import email.schaal.ocreader.database.BodyStore;
 import io.realm.Realm;
 import io.realm.RealmModel;
 import io.realm.RealmObject;
+import io.realm.RealmResults;
 import io.realm.annotations.Index;
+import io.realm.annotations.LinkingObjects;
 import io.realm.annotations.PrimaryKey;
 import io.realm.annotations.RealmClass;
 
@@ -62,6 +67,7 @@ public class Item implements RealmModel, Insertable, Parcelable {
     public final static String TITLE = "title";
 
     private String author;
+    public static final String AUTHOR = "author";
 
     private Date pubDate;
     public static final String PUB_DATE = "pubDate";
@@ -69,11 +75,23 @@ public class Item implements RealmModel, Insertable, Parcelable {
     private Date updatedAt;
     public static final String UPDATED_AT = "updatedAt";
 
+    /**
+     * Body, null if it is kept in the {@link BodyStore}
+     */
+    @Nullable
     private String body;
     public static final String BODY = "body";
 
+    /**
+     * Body in the {@link BodyStore}, shared with the other items with the same body
+     */
+    @Nullable
+    private Body storedBody;
+    public static final String STORED_BODY = "storedBody";
+
     private String enclosureMime;
     private String enclosureLink;
+    public static final String ENCLOSURE_LINK = "enclosureLink";
 
     private Feed feed;
     public final static String FEED = "feed";
@@ -109,6 +127,9 @@ public class Item implements RealmModel, Insertable, Parcelable {
     private boolean active;
     public static final String ACTIVE = "active";
 
+    @LinkingObjects("items")
+    private final RealmResults<SavedSearch> savedSearches = null;
+
     /**
      * Required by realm
      */
@@ -148,10 +169,52 @@ public class Item implements RealmModel, Insertable, Parcelable {
         return updatedAt;
     }
 
+    /**
+     * @return the body, read from the {@link BodyStore} if it is stored there
+     */
+    @Nullable
     public String getBody() {
+        if(body == null && storedBody != null) {
+            final BodyStore bodyStore = BodyStore.getInstance();
+            if(bodyStore != null)
+                return bodyStore.get(storedBody.getAddress());
+        }
         return body;
     }
 
+    @Nullable
+    public Body getStoredBody() {
+        return storedBody;
+    }
+
+    /**
+     * Move the body into bodyStore, sharing it with items with the same body. Must be called in a
+     * transaction.
+     * @return false if the body couldn't be stored
+     */
+    public boolean storeBody(@NonNull Realm realm, @NonNull BodyStore bodyStore) {
+        if(body == null)
+            return true;
+
+        final Body acquiredBody = Body.acquire(realm, bodyStore, body);
+        if(acquiredBody == null)
+            return false;
+
+        storedBody = acquiredBody;
+        body = null;
+        return true;
+    }
+
+    /**
+     * Release the stored body, call before deleting the item
+     */
+    public void releaseBody() {
+        if(storedBody != null) {
+            storedBody.release();
+            storedBody = null;
+        }
+    }
+
     public String getEnclosureMime() {
         return enclosureMime;
     }
@@ -172,6 +235,14 @@ public class Item implements RealmModel, Insertable, Parcelable {
         this.feed = feed;
     }
 
+    /**
+     * @return the SavedSearches this item is a member of, null if the item is not managed
+     */
+    @Nullable
+    public RealmResults<SavedSearch> getSavedSearches() {
+        return savedSearches;
+    }
+
     public boolean isUnread() {
         return unread;
     }
@@ -180,6 +251,10 @@ public class Item implements RealmModel, Insertable, Parcelable {
         if(RealmObject.isManaged(this) && this.unread != unread) {
             unreadChanged = !unreadChanged;
             feed.incrementUnreadCount(unread ? 1 : -1);
+            if(savedSearches != null) {
+                for (SavedSearch savedSearch : savedSearches)
+                    Counter.increment(RealmObject.getRealm(this), savedSearch.getId(), unread ? 1 : -1);
+            }
         }
         this.unread = unread;
     }
@@ -240,8 +315,22 @@ public class Item implements RealmModel, Insertable, Parcelable {
         }
     }
 
+    @Nullable
+    public static Item get(Realm realm, long id) {
+        return realm.where(Item.class).equalTo(Item.ID, id).findFirst();
+    }
+
     @Override
     public void insert(Realm realm) {
+        insert(realm, getTitle() != null ? get(realm, getId()) : null);
+    }
+
+    /**
+     * Insert this item, like {@link #insert(Realm)}
+     * @param storedItem stored item with the id of this item, so callers that already looked it
+     *                   up don't read it again. Not used for reduced items.
+     */
+    public void insert(Realm realm, @Nullable Item storedItem) {
         if (getTitle() == null) {
             // Reduced item
             final Item fullItem = realm.where(Item.class).equalTo(Item.CONTENT_HASH, getContentHash()).findFirst();
@@ -252,15 +341,82 @@ public class Item implements RealmModel, Insertable, Parcelable {
                 Log.w(TAG, "Full item is not available");
             }
         } else {
-            // new full item
+            if(hasSameContent(storedItem)) {
+                storedItem.updateStatus(this);
+                return;
+            }
+
+            // new or changed full item
             setFeed(Feed.getOrCreate(realm, getFeedId()));
+
+            final Body previousBody = storedItem != null ? storedItem.getStoredBody() : null;
+
+            final BodyStore bodyStore = BodyStore.getInstance();
+            if(bodyStore != null)
+                storeBody(realm, bodyStore);
+
             realm.insertOrUpdate(this);
+
+            // Release after acquiring, an unchanged body keeps its Body
+            if(previousBody != null)
+                previousBody.release();
         }
 
     }
 
+    /**
+     * @return false if this is a reduced item or the stored version has the same content, inserting
+     * it only updates the unread and starred state
+     * @param storedItem stored item with the id of this item
+     */
+    public boolean changesContent(@Nullable Item storedItem) {
+        return getTitle() != null && !hasSameContent(storedItem);
+    }
+
+    private boolean hasSameContent(@Nullable Item storedItem) {
+        if(storedItem == null)
+            return false;
+        // Reading or starring the item changes lastModified, but not the contentHash
+        if(getLastModified() != 0 && getLastModified() == storedItem.getLastModified())
+            return true;
+        if(getContentHash() != null && storedItem.getContentHash() != null)
+            return getContentHash().equals(storedItem.getContentHash());
+
+        // Old servers and items stored without contentHash
+        return TextUtils.equals(getTitle(), storedItem.getTitle())
+                && TextUtils.equals(getAuthor(), storedItem.getAuthor())
+                && TextUtils.equals(getUrl(), storedItem.getUrl())
+                && TextUtils.equals(getEnclosureLink(), storedItem.getEnclosureLink())
+                && TextUtils.equals(getEnclosureMime(), storedItem.getEnclosureMime())
+                && hasSameBody(storedItem);
+    }
+
+    // Compares the hash of a stored body, so it doesn't have to be read from the BodyStore
+    private boolean hasSameBody(Item storedItem) {
+        final Body storedItemBody = storedItem.getStoredBody();
+        if(storedItemBody != null)
+            return body != null && BodyStore.hash(body).equals(storedItemBody.getHash());
+        return TextUtils.equals(body, storedItem.body);
+    }
+
+    /**
+     * Copy the state of item to this stored item, only writing the fields that changed. Local
+     * changes not synced yet are kept. The counters are updated after the sync.
+     */
+    private void updateStatus(Item item) {
+        if(!isUnreadChanged() && isUnread() != item.isUnread())
+            unread = item.isUnread();
+        if(!isStarredChanged() && isStarred() != item.isStarred())
+            starred = item.isStarred();
+        if(getLastModified() != item.getLastModified())
+            lastModified = item.getLastModified();
+        if(getContentHash() == null && item.getContentHash() != null)
+            contentHash = item.getContentHash();
+    }
+
     @Override
     public void delete(Realm realm) {
+        releaseBody();
         RealmObject.deleteFromRealm(this);
     }
 
@@ -277,7 +433,7 @@ public class Item implements RealmModel, Insertable, Parcelable {
         dest.writeString(this.author);
         dest.writeLong(this.pubDate != null ? this.pubDate.getTime() : -1);
         dest.writeLong(this.updatedAt != null ? this.updatedAt.getTime() : -1);
-        dest.writeString(this.body);
+        dest.writeString(getBody());
         dest.writeString(this.enclosureLink);
         dest.writeLong(this.feedId);
         dest.writeParcelable(this.feed, flags);
@@ -0,0 +1,339 @@
+package email.schaal.ocreader.database.model;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.TimeUnit;
+
+import email.schaal.ocreader.R;
+import email.schaal.ocreader.database.SearchIndex;
+import email.schaal.ocreader.util.LongLinkedHashSet;
+import email.schaal.ocreader.util.SearchTokenizer;
+import io.realm.Realm;
+import io.realm.RealmList;
+import io.realm.RealmModel;
+import io.realm.RealmObject;
+import io.realm.RealmQuery;
+import io.realm.RealmResults;
+import io.realm.annotations.PrimaryKey;
+import io.realm.annotations.RealmClass;
+
+/**
+ * User defined virtual folder showing the items matching a set of filters.
+ *
+ * The matching items are stored in {@link #getItems()}: filled when the SavedSearch is saved,
+ * updated in {@link #updateItems(Realm, Map)} when items are inserted. The unread count is
+ * kept in a {@link Counter}.
+ */
+@SuppressWarnings("unused")
+@RealmClass
+public class SavedSearch implements RealmModel, TreeItem, TreeIconable {
+    /**
+     * Ids of saved searches count down from FIRST_ID, so they don't collide with folder ids
+     * or the ids of the other virtual folders
+     */
+    public final static long FIRST_ID = -100;
+
+    @PrimaryKey
+    private long id;
+
+    private String name;
+
+    /**
+     * Search terms, all terms have to match like in a search
+     */
+    @Nullable
+    private String keywords;
+    public final static String KEYWORDS = "keywords";
+
+    /**
+     * Part of the author name, ignoring case
+     */
+    @Nullable
+    private String author;
+    public final static String AUTHOR = "author";
+
+    /**
+     * Feeds the items have to belong to, all feeds if empty
+     */
+    private RealmList<Long> feedIds;
+    public final static String FEED_IDS = "feedIds";
+
+    /**
+     * Maximum age of the items in days, any age if 0
+     */
+    private int maxAgeDays;
+    public final static String MAX_AGE_DAYS = "maxAgeDays";
+
+    private boolean enclosureRequired;
+    public final static String ENCLOSURE_REQUIRED = "enclosureRequired";
+
+    private RealmList<Item> items;
+    public final static String ITEMS = "items";
+
+    public SavedSearch() {
+    }
+
+    public SavedSearch(long id, String name, @Nullable String keywords, @Nullable String author, @NonNull long[] feedIds, int maxAgeDays, boolean enclosureRequired) {
+        this.id = id;
+        this.name = name;
+        this.keywords = keywords;
+        this.author = author;
+        this.feedIds = new RealmList<>();
+        for(long feedId: feedIds)
+            this.feedIds.add(feedId);
+        this.maxAgeDays = maxAgeDays;
+        this.enclosureRequired = enclosureRequired;
+        this.items = new RealmList<>();
+    }
+
+    public static boolean isSavedSearchId(long id) {
+        return id <= FIRST_ID;
+    }
+
+    @Nullable
+    public static SavedSearch get(Realm realm, long id) {
+        return realm.where(SavedSearch.class).equalTo(ID, id).findFirst();
+    }
+
+    public static long nextId(Realm realm) {
+        final Number minId = realm.where(SavedSearch.class).min(ID);
+        return minId != null ? Math.min(FIRST_ID, minId.longValue() - 1) : FIRST_ID;
+    }
+
+    @Override
+    public long getId() {
+        return id;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Nullable
+    public String getKeywords() {
+        return keywords;
+    }
+
+    @Nullable
+    public String getAuthor() {
+        return author;
+    }
+
+    public long[] getFeedIds() {
+        final long[] result = new long[feedIds.size()];
+        for(int i = 0; i < result.length; i++)
+            result[i] = feedIds.get(i);
+        return result;
+    }
+
+    public int getMaxAgeDays() {
+        return maxAgeDays;
+    }
+
+    public boolean isEnclosureRequired() {
+        return enclosureRequired;
+    }
+
+    public RealmList<Item> getItems() {
+        return items;
+    }
+
+    public int getUnreadCount() {
+        return (int) items.where().equalTo(Item.UNREAD, true).count();
+    }
+
+    @Override
+    public int getCount(Realm realm) {
+        return Counter.get(realm, id);
+    }
+
+    @Override
+    public boolean canLoadMore() {
+        return false;
+    }
+
+    @Override
+    public List<Feed> getFeeds(Realm realm, boolean onlyUnread) {
+        final LongLinkedHashSet itemFeedIds = new LongLinkedHashSet();
+        for(Item item: getItems(realm, onlyUnread)) {
+            itemFeedIds.add(item.getFeedId());
+        }
+
+        return Feed.getByIds(realm, itemFeedIds);
+    }
+
+    @Override
+    public List<Item> getItems(Realm realm, boolean onlyUnread) {
+        final RealmQuery<Item> query = items.where();
+        if(onlyUnread)
+            query.equalTo(Item.UNREAD, true);
+        return query.findAll();
+    }
+
+    @Override
+    public int getIcon() {
+        return R.drawable.ic_search;
+    }
+
+    /**
+     * Replace the items with all stored items matching the filters, call after the filters
+     * changed. Must be called in a transaction.
+     */
+    public void fillItems(Realm realm) {
+        final Filter filter = new Filter(this, System.currentTimeMillis());
+
+        final RealmQuery<Item> query = realm.where(Item.class);
+        if(!feedIds.isEmpty())
+            query.in(Item.FEED_ID, feedIds.toArray(new Long[0]));
+        if(filter.minPubDate > 0)
+            query.greaterThan(Item.PUB_DATE, new Date(filter.minPubDate));
+        if(enclosureRequired)
+            query.isNotNull(Item.ENCLOSURE_LINK);
+
+        final long[] keywordIds = keywords != null ? SearchIndex.find(realm, keywords) : null;
+
+        items.clear();
+        int unreadCount = 0;
+        for(Item item: query.findAll()) {
+            // The author is matched by the filter, so it ignores case the same way as in updateItems
+            if((keywordIds == null || Arrays.binarySearch(keywordIds, item.getId()) >= 0) && filter.matches(item)) {
+                items.add(item);
+                if(item.isUnread())
+                    unreadCount++;
+            }
+        }
+
+        realm.insertOrUpdate(new Counter(id, unreadCount));
+    }
+
+    public void delete(Realm realm) {
+        realm.where(Counter.class).equalTo(Counter.ID, id).findAll().deleteAllFromRealm();
+        RealmObject.deleteFromRealm(this);
+    }
+
+    /**
+     * Add the inserted items to the SavedSearches they match, and remove updated items that
+     * don't match anymore. Must be called in a transaction.
+     * @param itemTerms ids of the inserted items with their terms, see {@link SearchIndex#add(Item, Item)},
+     *                  so the stored bodies don't have to be read again
+     */
+    public static void updateItems(Realm realm, Map<Long, NavigableSet<String>> itemTerms) {
+        final RealmResults<SavedSearch> savedSearches = realm.where(SavedSearch.class).findAll();
+        if(savedSearches.isEmpty() || itemTerms.isEmpty())
+            return;
+
+        final long currentTimeMillis = System.currentTimeMillis();
+        final List<Filter> filters = new ArrayList<>(savedSearches.size());
+        for(SavedSearch savedSearch: savedSearches)
+            filters.add(new Filter(savedSearch, currentTimeMillis));
+
+        for(Map.Entry<Long, NavigableSet<String>> entry: itemTerms.entrySet()) {
+            final Item item = realm.where(Item.class).equalTo(Item.ID, entry.getKey()).findFirst();
+            if(item == null)
+                continue;
+
+            final NavigableSet<String> terms = entry.getValue();
+            final RealmResults<SavedSearch> memberOf = item.getSavedSearches();
+
+            for(int i = 0; i < filters.size(); i++) {
+                final SavedSearch savedSearch = savedSearches.get(i);
+                final boolean matches = filters.get(i).matches(item, terms);
+                final boolean member = memberOf != null && memberOf.contains(savedSearch);
+
+                if(matches && !member) {
+                    savedSearch.items.add(item);
+                    if(item.isUnread())
+                        Counter.increment(realm, savedSearch.id, 1);
+                } else if(!matches && member) {
+                    savedSearch.items.remove(item);
+                    if(item.isUnread())
+                        Counter.increment(realm, savedSearch.id, -1);
+                }
+            }
+        }
+    }
+
+    /**
+     * Remove items that got too old for the SavedSearches with a maximum age. Must be called in
+     * a transaction, the counters are not updated.
+     */
+    public static void removeExpiredItems(Realm realm) {
+        final long currentTimeMillis = System.currentTimeMillis();
+
+        for(SavedSearch savedSearch: realm.where(SavedSearch.class).greaterThan(MAX_AGE_DAYS, 0).findAll()) {
+            final long minPubDate = new Filter(savedSearch, currentTimeMillis).minPubDate;
+
+            for(int i = savedSearch.items.size() - 1; i >= 0; i--) {
+                final Date pubDate = savedSearch.items.get(i).getPubDate();
+                if(pubDate == null || pubDate.getTime() <= minPubDate)
+                    savedSearch.items.remove(i);
+            }
+        }
+    }
+
+    /**
+     * Filters of a SavedSearch, read once to match many items
+     */
+    public static class Filter {
+        private final List<String> keywordTerms = new ArrayList<>();
+        @Nullable private final String author;
+        private final LongLinkedHashSet feedIds;
+        private final long minPubDate;
+        private final boolean enclosureRequired;
+
+        public Filter(@NonNull SavedSearch savedSearch, long currentTimeMillis) {
+            SearchTokenizer.tokenize(savedSearch.getKeywords(), false, keywordTerms);
+            author = savedSearch.getAuthor() != null ? savedSearch.getAuthor().toLowerCase(Locale.getDefault()) : null;
+
+            final long[] ids = savedSearch.getFeedIds();
+            feedIds = new LongLinkedHashSet(ids.length);
+            for(long feedId: ids)
+                feedIds.add(feedId);
+
+            minPubDate = savedSearch.getMaxAgeDays() > 0 ? currentTimeMillis - TimeUnit.DAYS.toMillis(savedSearch.getMaxAgeDays()) : 0;
+            enclosureRequired = savedSearch.isEnclosureRequired();
+        }
+
+        /**
+         * @param terms search terms of item, only used if the filter has keywords
+         */
+        public boolean matches(@NonNull Item item, @NonNull NavigableSet<String> terms) {
+            if(!matches(item))
+                return false;
+
+            // Like a search, every keyword has to be the start of a term of the item
+            for(String keywordTerm: keywordTerms) {
+                final String term = terms.ceiling(keywordTerm);
+                if(term == null || !term.startsWith(keywordTerm))
+                    return false;
+            }
+
+            return true;
+        }
+
+        /**
+         * Match all filters except the keywords
+         */
+        public boolean matches(@NonNull Item item) {
+            if(!feedIds.isEmpty() && !feedIds.contains(item.getFeedId()))
+                return false;
+
+            if(author != null && (item.getAuthor() == null || !item.getAuthor().toLowerCase(Locale.getDefault()).contains(author)))
+                return false;
+
+            if(minPubDate > 0 && (item.getPubDate() == null || item.getPubDate().getTime() <= minPubDate))
+                return false;
+
+            return !enclosureRequired || item.getEnclosureLink() != null;
+        }
+    }
+}
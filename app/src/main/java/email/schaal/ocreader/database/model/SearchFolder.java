@@ -0,0 +1,85 @@
+package email.schaal.ocreader.database.model;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import email.schaal.ocreader.R;
+import email.schaal.ocreader.database.SearchIndex;
+import email.schaal.ocreader.util.LongLinkedHashSet;
+import io.realm.Realm;
+
+/**
+ * TreeItem representing the results of a full text search. Searches include read items.
+ *
+ * The ids of the results are found once, see {@link SearchIndex#searchInBackground}, search again
+ * to show changed items.
+ */
+public class SearchFolder implements TreeItem, TreeIconable {
+    public final static long ID = -13;
+
+    private final String query;
+    private final long[] ids;
+
+    /**
+     * @param ids result of {@link SearchIndex#search(Realm, String)} for query
+     */
+    public SearchFolder(@NonNull String query, @NonNull long[] ids) {
+        this.query = query;
+        this.ids = ids;
+    }
+
+    public String getQuery() {
+        return query;
+    }
+
+    @Override
+    public long getId() {
+        return ID;
+    }
+
+    @Override
+    public String getName() {
+        return query;
+    }
+
+    @Override
+    public int getCount(Realm realm) {
+        return ids.length;
+    }
+
+    @Override
+    public boolean canLoadMore() {
+        return false;
+    }
+
+    @Override
+    public List<Feed> getFeeds(Realm realm, boolean onlyUnread) {
+        final LongLinkedHashSet feedIds = new LongLinkedHashSet();
+        for(Item item: getItems(realm, onlyUnread)) {
+            feedIds.add(item.getFeedId());
+        }
+
+        return Feed.getByIds(realm, feedIds);
+    }
+
+    @Override
+    public List<Item> getItems(Realm realm, boolean onlyUnread) {
+        final List<Item> items = new ArrayList<>(ids.length);
+
+        // Newest first, ids of deleted items are skipped
+        for(int i = ids.length - 1; i >= 0; i--) {
+            final Item item = realm.where(Item.class).equalTo(Item.ID, ids[i]).findFirst();
+            if(item != null)
+                items.add(item);
+        }
+
+        return items;
+    }
+
+    @Override
+    public int getIcon() {
+        return R.drawable.ic_search;
+    }
+}
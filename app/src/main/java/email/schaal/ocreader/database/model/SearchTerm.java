@@ -0,0 +1,40 @@
+package email.schaal.ocreader.database.model;
+
+import io.realm.RealmModel;
+import io.realm.annotations.PrimaryKey;
+import io.realm.annotations.RealmClass;
+
+/**
+ * Entry of the full text search index: the ids of all items containing term, encoded with
+ * {@link email.schaal.ocreader.util.Postings}.
+ */
+@SuppressWarnings("unused")
+@RealmClass
+public class SearchTerm implements RealmModel {
+    @PrimaryKey
+    private String term;
+    public static final String TERM = "term";
+
+    private byte[] postings;
+    public static final String POSTINGS = "postings";
+
+    public SearchTerm() {
+    }
+
+    public SearchTerm(String term, byte[] postings) {
+        this.term = term;
+        this.postings = postings;
+    }
+
+    public String getTerm() {
+        return term;
+    }
+
+    public byte[] getPostings() {
+        return postings;
+    }
+
+    public void setPostings(byte[] postings) {
+        this.postings = postings;
+    }
+}
@@ -52,7 +52,7 @@ public class StarredFolder implements TreeItem, TreeIconable {
 
     @Override
     public int getCount(Realm realm) {
-        return (int) realm.where(Item.class).equalTo(Item.STARRED, true).count();
+        return Counter.get(realm, ID);
     }
 
     @Override
@@ -0,0 +1,13 @@
+package email.schaal.ocreader.database.model;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Object received from the server during a sync, only written if the stored copy differs
+ */
+public interface Syncable<T> {
+    /**
+     * @return true if other has the same values in all fields received from the server
+     */
+    boolean hasSameSyncedFields(@NonNull T other);
+}
@@ -0,0 +1,129 @@
+package email.schaal.ocreader.service;
+
+import android.app.job.JobInfo;
+import android.app.job.JobParameters;
+import android.app.job.JobScheduler;
+import android.app.job.JobService;
+import android.content.ComponentName;
+import android.content.Context;
+import android.os.SystemClock;
+import android.preference.PreferenceManager;
+import android.util.Log;
+
+import java.io.File;
+import java.util.Locale;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+import email.schaal.ocreader.Preferences;
+import io.realm.Realm;
+import io.realm.RealmConfiguration;
+
+/**
+ * Compacts the Realm file while the device is idle and charging.
+ *
+ * The file is measured when the Realm is opened (see {@link #onLaunch(Context, long, long)}), the
+ * job is only scheduled if enough of it is free space. Realm can only compact a file without
+ * open instances, the job is retried later if the app is using the Realm.
+ */
+public class CompactJobService extends JobService {
+    private static final String TAG = CompactJobService.class.getName();
+
+    public static final int JOB_ID = 1;
+
+    // Smaller files are not worth rewriting
+    static final long MIN_FILE_SIZE = 10 * 1024 * 1024;
+
+    // Compact if at least this part of the file is free space
+    static final float MIN_FREE_RATIO = 0.5f;
+
+    private final Executor executor = Executors.newSingleThreadExecutor();
+
+    /**
+     * @return true if a file of totalBytes with usedBytes in use should be compacted
+     */
+    public static boolean shouldCompact(long totalBytes, long usedBytes) {
+        return totalBytes >= MIN_FILE_SIZE && totalBytes - usedBytes >= totalBytes * MIN_FREE_RATIO;
+    }
+
+    /**
+     * Schedule the job if the Realm file should be compacted, use as
+     * {@link io.realm.CompactOnLaunchCallback}. Never compacts while launching.
+     * @return false
+     */
+    public static boolean onLaunch(Context context, long totalBytes, long usedBytes) {
+        if(shouldCompact(totalBytes, usedBytes)) {
+            final JobScheduler jobScheduler = (JobScheduler) context.getSystemService(Context.JOB_SCHEDULER_SERVICE);
+            if(jobScheduler != null && !isScheduled(jobScheduler)) {
+                jobScheduler.schedule(new JobInfo.Builder(JOB_ID, new ComponentName(context, CompactJobService.class))
+                        .setRequiresDeviceIdle(true)
+                        .setRequiresCharging(true)
+                        .build());
+            }
+        }
+        return false;
+    }
+
+    // Scheduling again would stop a running job
+    private static boolean isScheduled(JobScheduler jobScheduler) {
+        for(JobInfo jobInfo: jobScheduler.getAllPendingJobs()) {
+            if(jobInfo.getId() == JOB_ID)
+                return true;
+        }
+        return false;
+    }
+
+    @Override
+    public boolean onStartJob(final JobParameters params) {
+        executor.execute(() -> jobFinished(params, !compact()));
+        return true;
+    }
+
+    @Override
+    public boolean onStopJob(JobParameters params) {
+        return true;
+    }
+
+    /**
+     * @return false if the Realm is in use and couldn't be compacted
+     */
+    private boolean compact() {
+        final RealmConfiguration configuration = Realm.getDefaultConfiguration();
+        if(configuration == null)
+            return true;
+
+        if(Realm.getGlobalInstanceCount(configuration) > 0) {
+            Log.d(TAG, "Realm is in use, compacting later");
+            return false;
+        }
+
+        final File file = new File(configuration.getPath());
+        final long sizeBefore = file.length();
+        final long startTime = SystemClock.elapsedRealtime();
+
+        try {
+            if (!Realm.compactRealm(configuration)) {
+                Log.w(TAG, "Failed to compact Realm");
+                return false;
+            }
+        } catch (IllegalStateException e) {
+            // Opened after checking the instance count
+            Log.d(TAG, "Realm is in use, compacting later", e);
+            return false;
+        }
+
+        final long duration = SystemClock.elapsedRealtime() - startTime;
+        final long sizeAfter = file.length();
+
+        Log.i(TAG, String.format(Locale.US, "Compacted Realm from %d to %d bytes in %d ms", sizeBefore, sizeAfter, duration));
+
+        PreferenceManager.getDefaultSharedPreferences(this).edit()
+                .putLong(Preferences.SYS_LAST_COMPACTION_TIME.getKey(), System.currentTimeMillis())
+                .putLong(Preferences.SYS_LAST_COMPACTION_DURATION.getKey(), duration)
+                .putLong(Preferences.SYS_LAST_COMPACTION_SIZE_BEFORE.getKey(), sizeBefore)
+                .putLong(Preferences.SYS_LAST_COMPACTION_SIZE_AFTER.getKey(), sizeAfter)
+                .apply();
+
+        return true;
+    }
+}
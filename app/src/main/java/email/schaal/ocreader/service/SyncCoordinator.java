@@ -0,0 +1,330 @@
+package email.schaal.ocreader.service;
+
+import android.content.Context;
+import android.content.Intent;
+import android.content.SharedPreferences;
+import android.os.SystemClock;
+import android.preference.PreferenceManager;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.localbroadcastmanager.content.LocalBroadcastManager;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+
+import email.schaal.ocreader.Preferences;
+import email.schaal.ocreader.api.API;
+import email.schaal.ocreader.database.BodyStore;
+import email.schaal.ocreader.database.Queries;
+import email.schaal.ocreader.database.model.Counter;
+import email.schaal.ocreader.database.model.Feed;
+import email.schaal.ocreader.database.model.Item;
+import email.schaal.ocreader.database.model.SavedSearch;
+import email.schaal.ocreader.util.FaviconLoader;
+import email.schaal.ocreader.util.SyncScheduler;
+import io.realm.Realm;
+
+/**
+ * Runs the syncs requested by {@link SyncService} and {@link SyncJobService} one at a time.
+ *
+ * A request already covered by a queued one is merged into it, a full sync covers uploading the
+ * changes. A full sync requested while one is running is merged into the running one, other
+ * requests, e.g. LOAD_MORE, wait until it finished. The initial sync after logging in supersedes
+ * everything, the running sync is cancelled. Listeners of merged requests are called when the
+ * request they were merged into finished.
+ *
+ * Must only be used on the main thread.
+ */
+public class SyncCoordinator {
+    private static final String TAG = SyncCoordinator.class.getName();
+
+    private static SyncCoordinator instance;
+
+    public interface Listener {
+        /**
+         * @param error null if the sync was successful
+         */
+        void onSyncFinished(@Nullable Throwable error);
+    }
+
+    private static class Request {
+        private final SyncType type;
+        private final Intent intent;
+        private final List<Listener> listeners = new ArrayList<>(1);
+        private boolean cancelled = false;
+
+        private Request(SyncType type, Intent intent) {
+            this.type = type;
+            this.intent = intent;
+        }
+
+        private boolean isInitialSync() {
+            return type == SyncType.FULL_SYNC && intent.getBooleanExtra(SyncService.EXTRA_INITIAL_SYNC, false);
+        }
+
+        /**
+         * @return true if running this request also does everything other would do
+         */
+        private boolean covers(Request other) {
+            if(other.isInitialSync() && !isInitialSync())
+                return false;
+
+            switch (other.type) {
+                case FULL_SYNC:
+                    return type == SyncType.FULL_SYNC;
+                case SYNC_CHANGES_ONLY:
+                    return type == SyncType.FULL_SYNC || type == SyncType.SYNC_CHANGES_ONLY;
+                case LOAD_MORE:
+                    return type == SyncType.LOAD_MORE
+                            && intent.getLongExtra(SyncService.EXTRA_ID, -1) == other.intent.getLongExtra(SyncService.EXTRA_ID, -1)
+                            && intent.getLongExtra(SyncService.EXTRA_OFFSET, 0) == other.intent.getLongExtra(SyncService.EXTRA_OFFSET, 0)
+                            && intent.getBooleanExtra(SyncService.EXTRA_IS_FEED, false) == other.intent.getBooleanExtra(SyncService.EXTRA_IS_FEED, false);
+            }
+            return false;
+        }
+    }
+
+    private final Context context;
+
+    private final Deque<Request> queue = new ArrayDeque<>();
+
+    @Nullable
+    private Request running;
+    @Nullable
+    private API runningApi;
+    @Nullable
+    private Realm realm;
+
+    private SyncCoordinator(Context context) {
+        this.context = context;
+    }
+
+    public static SyncCoordinator getInstance(Context context) {
+        if(instance == null)
+            instance = new SyncCoordinator(context.getApplicationContext());
+        return instance;
+    }
+
+    /**
+     * @return true if a sync of type is running or queued
+     */
+    public boolean isPending(SyncType type) {
+        if(running != null && running.type == type)
+            return true;
+        for(Request request: queue) {
+            if(request.type == type)
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return number of syncs waiting for the running sync
+     */
+    public int getQueueSize() {
+        return queue.size();
+    }
+
+    /**
+     * Queue a sync of type, intent contains the extras of the request
+     */
+    public void enqueue(@NonNull SyncType type, @NonNull Intent intent, @Nullable Listener listener) {
+        final Request request = new Request(type, intent);
+        if(listener != null)
+            request.listeners.add(listener);
+
+        if(request.isInitialSync()) {
+            // Everything else belongs to the previous account
+            for(Request queued: queue)
+                request.listeners.addAll(queued.listeners);
+            queue.clear();
+
+            if(running != null) {
+                Log.d(TAG, "Cancelling " + running.type);
+                running.cancelled = true;
+                request.listeners.addAll(running.listeners);
+                running.listeners.clear();
+                if(runningApi != null)
+                    runningApi.cancelSync();
+            }
+            queue.add(request);
+        } else if(running != null && running.type == SyncType.FULL_SYNC && type == SyncType.FULL_SYNC && !running.cancelled) {
+            running.listeners.addAll(request.listeners);
+        } else {
+            for(Request queued: queue) {
+                if(queued.covers(request)) {
+                    queued.listeners.addAll(request.listeners);
+                    notifyQueueChanged();
+                    return;
+                }
+            }
+
+            // Merge queued requests covered by the new one
+            final Iterator<Request> iterator = queue.iterator();
+            while(iterator.hasNext()) {
+                final Request queued = iterator.next();
+                if(request.covers(queued)) {
+                    request.listeners.addAll(queued.listeners);
+                    iterator.remove();
+                }
+            }
+            queue.add(request);
+        }
+
+        notifyQueueChanged();
+        next();
+    }
+
+    private void next() {
+        if(running != null)
+            return;
+
+        final Request request = queue.poll();
+        if(request == null) {
+            Queries.closeRealm(realm);
+            realm = null;
+            return;
+        }
+
+        running = request;
+        if(realm == null)
+            realm = Realm.getDefaultInstance();
+
+        notifySyncStatus(SyncService.SYNC_STARTED, request.type);
+
+        API.get(context, new API.InstanceReadyCallback() {
+            @Override
+            public void onInstanceReady(API api) {
+                if(request.cancelled) {
+                    onFinished(request, null);
+                    return;
+                }
+
+                runningApi = api;
+                api.sync(PreferenceManager.getDefaultSharedPreferences(context), realm, request.type, request.intent, new API.SyncCallback() {
+                    @Override
+                    public void onProgress() {
+                        if(!request.cancelled)
+                            notifyProgress(request.type);
+                    }
+
+                    @Override
+                    public void onSuccess(Void n) {
+                        if(!request.cancelled)
+                            postProcess(request.type);
+                        onFinished(request, null);
+                    }
+
+                    @Override
+                    public void onFailure(Throwable throwable) {
+                        onFinished(request, throwable);
+                    }
+                });
+            }
+
+            @Override
+            public void onLoginFailure(Throwable e) {
+                onFinished(request, e);
+            }
+        });
+    }
+
+    private void onFinished(Request request, @Nullable Throwable error) {
+        running = null;
+        runningApi = null;
+
+        // Items changed during the sync are uploaded later
+        if(error == null && realm != null)
+            Queries.checkPendingChanges(realm);
+
+        notifySyncStatus(SyncService.SYNC_FINISHED, request.type);
+
+        // Listeners of a cancelled request were moved to the request superseding it
+        for(Listener listener: request.listeners)
+            listener.onSyncFinished(error);
+
+        next();
+    }
+
+    private void postProcess(SyncType syncType) {
+        if(realm == null)
+            return;
+
+        final long start = SystemClock.elapsedRealtime();
+
+        if(syncType != SyncType.LOAD_MORE)
+            Queries.removeExcessItems(realm, Queries.MAX_ITEMS);
+        realm.executeTransaction(postProcessFeedTransaction);
+        // Reclaim the space of removed and updated bodies
+        final BodyStore bodyStore = BodyStore.getInstance();
+        if(bodyStore != null)
+            bodyStore.maintainInBackground();
+        if(syncType == SyncType.FULL_SYNC) {
+            PreferenceManager.getDefaultSharedPreferences(context).edit()
+                    .putLong(Preferences.SYS_LAST_SYNC_TIME.getKey(), System.currentTimeMillis())
+                    .apply();
+            FaviconLoader.generateFeedColors(context);
+            SyncScheduler.getInstance().updatePeriodicSync(PreferenceManager.getDefaultSharedPreferences(context));
+        }
+
+        Log.d(TAG, String.format(Locale.US, "Post-processing %s took %d ms", syncType, SystemClock.elapsedRealtime() - start));
+    }
+
+    private static final Realm.Transaction postProcessFeedTransaction = realm -> {
+        for (Feed feed: realm.where(Feed.class).findAll()) {
+            final int starredCount = (int) realm.where(Item.class)
+                    .equalTo(Item.FEED_ID, feed.getId())
+                    .equalTo(Item.STARRED, true).count();
+            final int unreadCount = (int) realm.where(Item.class)
+                    .equalTo(Item.FEED_ID, feed.getId())
+                    .equalTo(Item.UNREAD, true).count();
+            // Setting an unchanged value still notifies listeners of the feed
+            if(feed.getStarredCount() != starredCount)
+                feed.setStarredCount(starredCount);
+            if(feed.getUnreadCount() != unreadCount)
+                feed.setUnreadCount(unreadCount);
+        }
+        SavedSearch.removeExpiredItems(realm);
+        Counter.update(realm);
+    };
+
+    private void notifySyncStatus(@NonNull String action, SyncType type) {
+        final boolean syncStarted = action.equals(SyncService.SYNC_STARTED);
+
+        SharedPreferences.Editor editor = PreferenceManager.getDefaultSharedPreferences(context).edit();
+
+        // no need to update after ACTION_SYNC_CHANGES_ONLY
+        if(!syncStarted && SyncType.SYNC_CHANGES_ONLY != type)
+            editor.putBoolean(Preferences.SYS_NEEDS_UPDATE_AFTER_SYNC.getKey(), true);
+
+        final Intent intent = new Intent(action);
+        intent.putExtra(SyncService.EXTRA_TYPE, type.action);
+        intent.putExtra(SyncService.EXTRA_QUEUE_SIZE, queue.size());
+
+        // Still running if more syncs are queued
+        editor.putBoolean(Preferences.SYS_SYNC_RUNNING.getKey(), syncStarted || !queue.isEmpty());
+        editor.apply();
+
+        LocalBroadcastManager.getInstance(context).sendBroadcast(intent);
+
+        Log.d(TAG, String.format("%s: %s", action, type));
+    }
+
+    private void notifyProgress(SyncType type) {
+        final Intent intent = new Intent(SyncService.SYNC_PROGRESS);
+        intent.putExtra(SyncService.EXTRA_TYPE, type.action);
+        LocalBroadcastManager.getInstance(context).sendBroadcast(intent);
+    }
+
+    private void notifyQueueChanged() {
+        final Intent intent = new Intent(SyncService.SYNC_QUEUE_CHANGED);
+        intent.putExtra(SyncService.EXTRA_QUEUE_SIZE, queue.size());
+        LocalBroadcastManager.getInstance(context).sendBroadcast(intent);
+    }
+}
@@ -0,0 +1,50 @@
+package email.schaal.ocreader.service;
+
+import android.app.job.JobParameters;
+import android.app.job.JobService;
+import android.content.Intent;
+import android.preference.PreferenceManager;
+import android.util.Log;
+
+import email.schaal.ocreader.Preferences;
+import email.schaal.ocreader.util.SyncScheduler;
+
+/**
+ * Runs the background syncs scheduled by {@link SyncScheduler} through the
+ * {@link SyncCoordinator}. Failed syncs are rescheduled by the JobScheduler with exponential
+ * backoff.
+ */
+public class SyncJobService extends JobService {
+    private static final String TAG = SyncJobService.class.getName();
+
+    public static final int JOB_ID_CHANGES = 2;
+    public static final int JOB_ID_FULL_SYNC = 3;
+
+    @Override
+    public boolean onStartJob(final JobParameters params) {
+        if(!Preferences.hasCredentials(PreferenceManager.getDefaultSharedPreferences(this)))
+            return false;
+
+        final SyncType syncType;
+        if(params.getJobId() == JOB_ID_FULL_SYNC) {
+            syncType = SyncType.FULL_SYNC;
+        } else {
+            syncType = SyncType.SYNC_CHANGES_ONLY;
+            SyncScheduler.getInstance().onChangesStarted();
+        }
+
+        SyncCoordinator.getInstance(this).enqueue(syncType, new Intent(), error -> {
+            if(error != null)
+                Log.w(TAG, "Background sync failed", error);
+            jobFinished(params, error != null);
+        });
+
+        return true;
+    }
+
+    @Override
+    public boolean onStopJob(JobParameters params) {
+        // Constraints are no longer met, try again later
+        return true;
+    }
+}
@@ -24,27 +24,18 @@ import android.app.Activity;
 import android.app.Service;
 import android.content.Intent;
 import android.content.IntentFilter;
-import android.content.SharedPreferences;
 import android.os.IBinder;
-import android.preference.PreferenceManager;
-import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
-import androidx.localbroadcastmanager.content.LocalBroadcastManager;
 import android.util.Log;
 import android.widget.Toast;
 
-import email.schaal.ocreader.Preferences;
-import email.schaal.ocreader.api.API;
-import email.schaal.ocreader.database.Queries;
-import email.schaal.ocreader.database.model.Feed;
-import email.schaal.ocreader.database.model.Item;
-import io.realm.Realm;
-
 public class SyncService extends Service {
     private static final String TAG = SyncService.class.getName();
 
     public static final String SYNC_FINISHED = "email.schaal.ocreader.action.SYNC_FINISHED";
     public static final String SYNC_STARTED = "email.schaal.ocreader.action.SYNC_STARTED";
+    public static final String SYNC_QUEUE_CHANGED = "email.schaal.ocreader.action.SYNC_QUEUE_CHANGED";
+    public static final String SYNC_PROGRESS = "email.schaal.ocreader.action.SYNC_PROGRESS";
 
     public static final String ACTION_SYNC = "email.schaal.ocreader.action.SYNC";
 
@@ -53,15 +44,20 @@ public class SyncService extends Service {
     public static final String EXTRA_OFFSET = "email.schaal.ocreader.action.extra.OFFSET";
     public static final String EXTRA_TYPE = "email.schaal.ocreader.action.extra.TYPE";
     public static final String EXTRA_INITIAL_SYNC = "email.schaal.ocreader.action.extra.INITIAL_SYNC";
+    public static final String EXTRA_QUEUE_SIZE = "email.schaal.ocreader.action.extra.QUEUE_SIZE";
 
     public static final IntentFilter syncFilter;
     static {
         syncFilter = new IntentFilter();
         syncFilter.addAction(SYNC_STARTED);
         syncFilter.addAction(SYNC_FINISHED);
+        syncFilter.addAction(SYNC_QUEUE_CHANGED);
+        syncFilter.addAction(SYNC_PROGRESS);
     }
 
-    private Realm realm;
+    // Requests not finished yet, the service stops after the last one
+    private int pendingRequests = 0;
+    private int lastStartId;
 
     @Nullable
     @Override
@@ -69,97 +65,33 @@ public class SyncService extends Service {
         return null;
     }
 
-    @Override
-    public void onCreate() {
-        realm = Realm.getDefaultInstance();
-        super.onCreate();
-    }
-
-    @Override
-    public void onDestroy() {
-        realm.close();
-        super.onDestroy();
-    }
-
     @Override
     public int onStartCommand(final Intent intent, int flags, final int startId) {
         final String action = intent.getStringExtra(EXTRA_TYPE);
 
         final SyncType syncType = SyncType.get(action);
 
+        lastStartId = startId;
+
         if(syncType != null) {
-            notifySyncStatus(SYNC_STARTED, syncType);
-
-            API.get(this, new API.InstanceReadyCallback() {
-                @Override
-                public void onInstanceReady(API api) {
-                    api.sync(PreferenceManager.getDefaultSharedPreferences(SyncService.this), realm, syncType, intent, new API.APICallback<Void, Throwable>() {
-                        @Override
-                        public void onSuccess(Void n) {
-                            if(syncType != SyncType.LOAD_MORE)
-                                Queries.removeExcessItems(realm, Queries.MAX_ITEMS);
-                            realm.executeTransaction(postProcessFeedTransaction);
-                            onFinished();
-                        }
-
-                        @Override
-                        public void onFailure(Throwable throwable) {
-                            Toast.makeText(SyncService.this, throwable.getLocalizedMessage(), Toast.LENGTH_SHORT).show();
-                            onFinished();
-                        }
-
-                        private void onFinished() {
-                            notifySyncStatus(SYNC_FINISHED, syncType);
-                            stopSelf(startId);
-                        }
-                    });
-                }
-
-                @Override
-                public void onLoginFailure(Throwable e) {
-                    stopSelf(startId);
-                }
+            pendingRequests++;
+
+            SyncCoordinator.getInstance(this).enqueue(syncType, intent, error -> {
+                if(error != null)
+                    Toast.makeText(SyncService.this, error.getLocalizedMessage(), Toast.LENGTH_SHORT).show();
+
+                if(--pendingRequests == 0)
+                    stopSelf(lastStartId);
             });
         } else {
             Log.w(TAG, "unknown Intent received: " + action);
+            if(pendingRequests == 0)
+                stopSelf(startId);
         }
 
         return START_NOT_STICKY;
     }
 
-    private final Realm.Transaction postProcessFeedTransaction = realm -> {
-        for (Feed feed: realm.where(Feed.class).findAll()) {
-            feed.setStarredCount((int) realm.where(Item.class)
-                    .equalTo(Item.FEED_ID, feed.getId())
-                    .equalTo(Item.STARRED, true).count()
-            );
-            feed.setUnreadCount((int) realm.where(Item.class)
-                    .equalTo(Item.FEED_ID, feed.getId())
-                    .equalTo(Item.UNREAD, true).count()
-            );
-        }
-    };
-
-    private void notifySyncStatus(@NonNull String action, SyncType type) {
-        final boolean syncStarted = action.equals(SYNC_STARTED);
-
-        SharedPreferences.Editor editor = PreferenceManager.getDefaultSharedPreferences(this).edit();
-
-        // no need to update after ACTION_SYNC_CHANGES_ONLY
-        if(!syncStarted && SyncType.SYNC_CHANGES_ONLY != type)
-            editor.putBoolean(Preferences.SYS_NEEDS_UPDATE_AFTER_SYNC.getKey(), true);
-
-        final Intent intent = new Intent(action);
-        intent.putExtra(EXTRA_TYPE, type.action);
-
-        editor.putBoolean(Preferences.SYS_SYNC_RUNNING.getKey(), syncStarted);
-        editor.apply();
-
-        LocalBroadcastManager.getInstance(this).sendBroadcast(intent);
-
-        Log.d(TAG, String.format("%s: %s", action, type));
-    }
-
     public static void startSync(Activity activity) {
         startSync(activity, false);
     }
@@ -0,0 +1,173 @@
+package email.schaal.ocreader.util;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.Date;
+
+/**
+ * Thread-safe parsing of the date formats used by the Nextcloud News API.
+ *
+ * Unlike {@link java.text.SimpleDateFormat} this class keeps no state, so it can be used
+ * concurrently by the sync callables.
+ */
+public class DateParser {
+    private static final long MILLIS_PER_SECOND = 1000L;
+    private static final long MILLIS_PER_MINUTE = 60 * MILLIS_PER_SECOND;
+    private static final long MILLIS_PER_HOUR = 60 * MILLIS_PER_MINUTE;
+    private static final long MILLIS_PER_DAY = 24 * MILLIS_PER_HOUR;
+
+    private DateParser() {
+    }
+
+    /**
+     * Convert seconds since the epoch, as used by API v1-2, to a Date
+     */
+    @NonNull
+    public static Date fromEpochSeconds(long seconds) {
+        return new Date(seconds * MILLIS_PER_SECOND);
+    }
+
+    /**
+     * Parse an ISO-8601 timestamp, e.g. 2019-01-06T17:45:02+01:00
+     * @return parsed Date, or null if source is not a valid timestamp
+     */
+    @Nullable
+    public static Date parseIso8601(@NonNull String source) {
+        final long millis = parseIso8601Millis(source);
+        return millis != Long.MIN_VALUE ? new Date(millis) : null;
+    }
+
+    /**
+     * Parse an ISO-8601 timestamp in the form yyyy-MM-dd'T'HH:mm:ss[.SSS](Z|+HH[[:]mm]|-HH[[:]mm]).
+     * @return milliseconds since the epoch, or {@link Long#MIN_VALUE} if source is not a valid timestamp
+     */
+    public static long parseIso8601Millis(@NonNull CharSequence source) {
+        final int length = source.length();
+
+        if(length < 19
+                || source.charAt(4) != '-' || source.charAt(7) != '-'
+                || (source.charAt(10) != 'T' && source.charAt(10) != ' ')
+                || source.charAt(13) != ':' || source.charAt(16) != ':')
+            return Long.MIN_VALUE;
+
+        final int year = parseDigits(source, 0, 4);
+        final int month = parseDigits(source, 5, 7);
+        final int day = parseDigits(source, 8, 10);
+        final int hour = parseDigits(source, 11, 13);
+        final int minute = parseDigits(source, 14, 16);
+        final int second = parseDigits(source, 17, 19);
+
+        if(year < 0 || month < 1 || month > 12 || day < 1 || day > daysInMonth(year, month)
+                || hour < 0 || hour > 23 || minute < 0 || minute > 59 || second < 0 || second > 60)
+            return Long.MIN_VALUE;
+
+        int pos = 19;
+        int millis = 0;
+
+        // Optional fraction of a second, only millisecond precision is kept
+        if(pos < length && source.charAt(pos) == '.') {
+            pos++;
+            final int fractionStart = pos;
+            int scale = 100;
+            while(pos < length && isDigit(source.charAt(pos))) {
+                millis += (source.charAt(pos) - '0') * scale;
+                scale /= 10;
+                pos++;
+            }
+            if(pos == fractionStart)
+                return Long.MIN_VALUE;
+        }
+
+        long offsetMillis;
+
+        if(pos == length) {
+            // No zone designator, assume UTC
+            offsetMillis = 0;
+        } else {
+            final char sign = source.charAt(pos++);
+            if(sign == 'Z' || sign == 'z') {
+                if(pos != length)
+                    return Long.MIN_VALUE;
+                offsetMillis = 0;
+            } else if(sign == '+' || sign == '-') {
+                final int offsetHours = parseDigits(source, pos, pos + 2);
+                pos += 2;
+                int offsetMinutes = 0;
+                if(pos < length && source.charAt(pos) == ':')
+                    pos++;
+                if(pos < length) {
+                    offsetMinutes = parseDigits(source, pos, pos + 2);
+                    pos += 2;
+                }
+                if(pos != length || offsetHours < 0 || offsetHours > 23 || offsetMinutes < 0 || offsetMinutes > 59)
+                    return Long.MIN_VALUE;
+
+                offsetMillis = offsetHours * MILLIS_PER_HOUR + offsetMinutes * MILLIS_PER_MINUTE;
+                if(sign == '-')
+                    offsetMillis = -offsetMillis;
+            } else {
+                return Long.MIN_VALUE;
+            }
+        }
+
+        return daysFromCivil(year, month, day) * MILLIS_PER_DAY
+                + hour * MILLIS_PER_HOUR
+                + minute * MILLIS_PER_MINUTE
+                + second * MILLIS_PER_SECOND
+                + millis
+                - offsetMillis;
+    }
+
+    /**
+     * @return the parsed non-negative number, or -1 if the range contains non-digits
+     */
+    private static int parseDigits(CharSequence source, int start, int end) {
+        if(end > source.length())
+            return -1;
+
+        int result = 0;
+        for(int i = start; i < end; i++) {
+            final char c = source.charAt(i);
+            if(!isDigit(c))
+                return -1;
+            result = result * 10 + (c - '0');
+        }
+        return result;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static int daysInMonth(int year, int month) {
+        switch (month) {
+            case 2:
+                return isLeapYear(year) ? 29 : 28;
+            case 4:
+            case 6:
+            case 9:
+            case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+
+    private static boolean isLeapYear(int year) {
+        return (year % 4 == 0 && year % 100 != 0) || year % 400 == 0;
+    }
+
+    /**
+     * Days since 1970-01-01 in the proleptic gregorian calendar
+     * see http://howardhinnant.github.io/date_algorithms.html#days_from_civil
+     */
+    private static long daysFromCivil(int year, int month, int day) {
+        year -= month <= 2 ? 1 : 0;
+        final long era = (year >= 0 ? year : year - 399) / 400;
+        final long yearOfEra = year - era * 400;
+        final long dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        final long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097 + dayOfEra - 719468;
+    }
+}
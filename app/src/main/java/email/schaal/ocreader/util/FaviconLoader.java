@@ -2,32 +2,42 @@ package email.schaal.ocreader.util;
 
 import android.app.Activity;
 import android.content.Context;
+import android.content.res.Configuration;
 import android.content.res.TypedArray;
 import android.graphics.Bitmap;
 import android.graphics.Color;
 import android.graphics.drawable.Drawable;
+import android.preference.PreferenceManager;
+import android.text.TextUtils;
+import android.util.Log;
+import android.util.LruCache;
+import android.view.ContextThemeWrapper;
+import android.widget.ImageView;
+
 import androidx.annotation.ColorInt;
 import androidx.annotation.DrawableRes;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.appcompat.app.AppCompatDelegate;
+import androidx.appcompat.content.res.AppCompatResources;
 import androidx.core.content.ContextCompat;
 import androidx.core.graphics.ColorUtils;
-import androidx.appcompat.content.res.AppCompatResources;
 import androidx.palette.graphics.Palette;
-import android.util.Log;
-import android.util.LruCache;
-import android.widget.ImageView;
 
-import com.bumptech.glide.RequestBuilder;
-import com.bumptech.glide.load.DataSource;
-import com.bumptech.glide.load.engine.GlideException;
-import com.bumptech.glide.request.RequestListener;
-import com.bumptech.glide.request.target.Target;
+import com.bumptech.glide.request.FutureTarget;
 
+import java.util.HashMap;
 import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
+import email.schaal.ocreader.Preferences;
 import email.schaal.ocreader.R;
+import email.schaal.ocreader.database.Queries;
 import email.schaal.ocreader.database.model.Feed;
+import io.realm.Realm;
 
 /**
  * Load favicons
@@ -35,9 +45,13 @@ import email.schaal.ocreader.database.model.Feed;
 public class FaviconLoader {
     private final static String TAG = FaviconLoader.class.getName();
 
-    private final static LruCache<Long, FeedColors> feedColorsCache = new LruCache<>(32);
     private final static LruCache<Long, Drawable> faviconCache = new LruCache<>(32);
 
+    private final static FeedColors NO_FEED_COLORS = new FeedColors((Integer) null);
+
+    // Generate feed colors one after another, outside of the sync callables
+    private final static ExecutorService feedColorsExecutor = Executors.newSingleThreadExecutor();
+
     private final int placeholder;
     private final ImageView imageView;
     private final boolean generateFallbackImage;
@@ -80,55 +94,192 @@ public class FaviconLoader {
     }
 
     public static void clearCache() {
-        feedColorsCache.evictAll();
         faviconCache.evictAll();
     }
+
+    /**
+     * Get the colors for feed without loading the favicon, see {@link #generateFeedColors(Context)}
+     */
+    @NonNull
+    public static FeedColors getFeedColors(Context context, @Nullable Feed feed) {
+        if(feed == null)
+            return NO_FEED_COLORS;
+        else if(feed.getTextColor() != null)
+            return new FeedColors(feed);
+        else if(feed.getFaviconLink() == null)
+            return new FeedColors(getFeedColor(context, feed));
+        else
+            return NO_FEED_COLORS;
+    }
+
+    /**
+     * Get a single color of feed, like {@link #getFeedColors(Context, Feed)} but without
+     * allocating FeedColors when the colors are stored in feed
+     */
+    @ColorInt
+    public static int getColor(Context context, @Nullable Feed feed, @NonNull FeedColors.Type type, @ColorInt int defaultColor) {
+        if(feed != null) {
+            final Integer color = type == FeedColors.Type.TEXT ? feed.getTextColor() : feed.getBackgroundColor();
+            if(color != null)
+                return color != 0 ? color : defaultColor;
+        }
+        return getFeedColors(context, feed).getColor(type, defaultColor);
+    }
+
+    /**
+     * Load the favicon of feed into the ImageView and pass the stored colors of feed to listener
+     */
     public void load(Context context, Feed feed, @NonNull FeedColorsListener listener) {
         if(context instanceof Activity && ((Activity) context).isDestroyed()) {
              return;
         }
 
         listener.onStart();
-        if(feed == null) {
-            listener.onGenerated(new FeedColors((Integer)null));
+        load(context, feed);
+        listener.onGenerated(getFeedColors(context, feed));
+    }
+
+    /**
+     * Load the favicon of feed into the ImageView
+     */
+    public void load(Context context, @Nullable Feed feed) {
+        if(feed == null || imageView == null || (context instanceof Activity && ((Activity) context).isDestroyed())) {
             return;
         }
 
         if(feed.getFaviconLink() != null) {
-            TypedArray typedArray = context.obtainStyledAttributes(new int[] { android.R.attr.colorBackground });
-            final int colorBackground = typedArray.getColor(0, Color.WHITE);
-            typedArray.recycle();
-            // load favicon
-            RequestBuilder<Bitmap> requestBuilder = GlideApp.with(context)
+            GlideApp.with(context)
                     .asBitmap()
                     .placeholder(placeholder)
-                    .load(feed.getFaviconLink());
-            MyTarget myTarget = new MyTarget(feed, listener, colorBackground);
-
-            if(imageView != null) {
-                requestBuilder.listener(myTarget).into(imageView);
-            } else {
-                requestBuilder.listener(myTarget).preload();
-            }
+                    .load(feed.getFaviconLink())
+                    .into(imageView);
+        } else if (generateFallbackImage) {
+            // feed has no favicon, generate image
+            imageView.setImageDrawable(getDrawable(context, feed));
         } else {
-            // feed has no favicon
-            if (imageView != null) {
-                if (generateFallbackImage) {
-                    // generate image
-                    imageView.setImageDrawable(getDrawable(context, feed));
-                } else {
-                    // use placeholder
-                    imageView.setImageResource(placeholder);
+            // use placeholder
+            imageView.setImageResource(placeholder);
+        }
+    }
+
+    /**
+     * Generate the text and background colors for all feeds without stored colors in the
+     * background. Feeds sharing a favicon are only processed once.
+     */
+    public static void generateFeedColors(@NonNull Context context) {
+        final Context appContext = context.getApplicationContext();
+        feedColorsExecutor.execute(() -> {
+            Realm realm = null;
+            try {
+                realm = Realm.getDefaultInstance();
+
+                final Palette.Filter contrastFilter = getContrastFilter(appContext);
+
+                final Map<String, FeedColors> faviconColors = new HashMap<>();
+                final Map<Long, String> faviconLinks = new HashMap<>();
+                final Map<Long, FeedColors> feedColors = new HashMap<>();
+
+                for(Feed feed: realm.where(Feed.class).isNull(Feed.TEXT_COLOR).findAll()) {
+                    final String faviconLink = feed.getFaviconLink();
+                    final FeedColors colors;
+
+                    if(faviconLink == null) {
+                        colors = new FeedColors(getFeedColor(appContext, feed));
+                    } else if(faviconColors.containsKey(faviconLink)) {
+                        colors = faviconColors.get(faviconLink);
+                    } else {
+                        colors = generateFaviconColors(appContext, faviconLink, contrastFilter);
+                        faviconColors.put(faviconLink, colors);
+                    }
+
+                    if(colors != null) {
+                        faviconLinks.put(feed.getId(), faviconLink);
+                        feedColors.put(feed.getId(), colors);
+                    }
                 }
+
+                if(!feedColors.isEmpty()) {
+                    realm.executeTransaction(realm1 -> {
+                        for (Map.Entry<Long, FeedColors> entry : feedColors.entrySet()) {
+                            final Feed feed = Feed.get(realm1, entry.getKey());
+                            // skip feeds whose favicon changed in the meantime
+                            if (feed != null && TextUtils.equals(feed.getFaviconLink(), faviconLinks.get(entry.getKey())))
+                                entry.getValue().store(feed);
+                        }
+                    });
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                Queries.closeRealm(realm);
+            }
+        });
+    }
+
+    /**
+     * Forget the stored colors of all feeds and generate them again, e.g. after the theme changed
+     */
+    public static void regenerateFeedColors(@NonNull Context context) {
+        feedColorsExecutor.execute(() -> {
+            Realm realm = null;
+            try {
+                realm = Realm.getDefaultInstance();
+                realm.executeTransaction(realm1 -> {
+                    for (Feed feed : realm1.where(Feed.class).findAll()) {
+                        feed.setTextColor(null);
+                        feed.setBackgroundColor(null);
+                    }
+                });
+            } finally {
+                Queries.closeRealm(realm);
             }
-            listener.onGenerated(new FeedColors(getFeedColor(context, feed)));
+        });
+        generateFeedColors(context);
+    }
+
+    /**
+     * Load the favicon synchronously and generate its palette
+     * @return the generated colors, or null if the favicon could not be loaded
+     */
+    @Nullable
+    private static FeedColors generateFaviconColors(Context context, String faviconLink, Palette.Filter filter) throws InterruptedException {
+        final FutureTarget<Bitmap> target = GlideApp.with(context)
+                .asBitmap()
+                .load(faviconLink)
+                .submit();
+        try {
+            return new FeedColors(new Palette.Builder(target.get())
+                    .addFilter(filter)
+                    .generate());
+        } catch (ExecutionException e) {
+            Log.e(TAG, "Loading favicon " + faviconLink + " failed", e);
+            return null;
+        } finally {
+            GlideApp.with(context).clear(target);
         }
     }
 
-    private void generatePalette(Bitmap bitmap, Palette.Filter filter, Palette.PaletteAsyncListener paletteAsyncListener) {
-        new Palette.Builder(bitmap)
-                .addFilter(filter)
-                .generate(paletteAsyncListener);
+    /**
+     * Only accept colors with enough contrast to the window background of the current theme
+     */
+    private static Palette.Filter getContrastFilter(Context context) {
+        final boolean nightMode = Preferences.getNightMode(PreferenceManager.getDefaultSharedPreferences(context)) == AppCompatDelegate.MODE_NIGHT_YES;
+
+        final Configuration configuration = new Configuration(context.getResources().getConfiguration());
+        configuration.uiMode = (configuration.uiMode & ~Configuration.UI_MODE_NIGHT_MASK)
+                | (nightMode ? Configuration.UI_MODE_NIGHT_YES : Configuration.UI_MODE_NIGHT_NO);
+
+        final Context themedContext = new ContextThemeWrapper(context.createConfigurationContext(configuration), R.style.AppTheme);
+
+        final TypedArray typedArray = themedContext.obtainStyledAttributes(new int[] { android.R.attr.colorBackground });
+        @ColorInt final int backgroundColor;
+        try {
+            backgroundColor = typedArray.getColor(0, Color.WHITE);
+        } finally {
+            typedArray.recycle();
+        }
+
+        return (rgb, hsl) -> ColorUtils.calculateContrast(rgb, backgroundColor) >= 4;
     }
 
     public interface FeedColorsListener {
@@ -163,38 +314,4 @@ public class FaviconLoader {
             return this;
         }
     }
-
-    private class MyTarget implements RequestListener<Bitmap> {
-        private final long feedId;
-        private final FeedColorsListener listener;
-        private final Palette.Filter contrastFilter;
-
-        MyTarget(@NonNull Feed feed, @NonNull FeedColorsListener listener, final @ColorInt int backgroundColor) {
-            this.feedId = feed.getId();
-            this.listener = listener;
-            contrastFilter = (rgb, hsl) -> ColorUtils.calculateContrast(rgb, backgroundColor) >= 4;
-        }
-
-        @Override
-        public boolean onLoadFailed(@Nullable GlideException e, Object o, Target<Bitmap> target, boolean b) {
-            Log.e(TAG, "Loading favicon for feed with id " + feedId + " failed", e);
-            listener.onGenerated(new FeedColors((Integer)null));
-            return false;
-        }
-
-        @Override
-        public boolean onResourceReady(Bitmap bitmap, Object model, Target<Bitmap> target, DataSource dataSource, boolean isFirstResource) {
-            final FeedColors cachedFeedColors = feedColorsCache.get(feedId);
-            if (cachedFeedColors == null) {
-                generatePalette(bitmap, contrastFilter, palette -> {
-                    FeedColors feedColors = new FeedColors(palette);
-                    feedColorsCache.put(feedId, feedColors);
-                    listener.onGenerated(feedColors);
-                });
-            } else {
-                listener.onGenerated(cachedFeedColors);
-            }
-            return false;
-        }
-    }
 }
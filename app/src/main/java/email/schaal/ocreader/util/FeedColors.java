@@ -8,12 +8,19 @@ import androidx.palette.graphics.Target;
 
 import java.util.Collections;
 
+import email.schaal.ocreader.database.model.Feed;
+
 /**
- * Generate text and background color for Feeds
+ * Text and background color for Feeds
  */
 public class FeedColors {
     @Nullable
-    private final Palette palette;
+    @ColorInt
+    private final Integer textColor;
+
+    @Nullable
+    @ColorInt
+    private final Integer backgroundColor;
 
     public enum Type {
         TEXT,
@@ -21,45 +28,61 @@ public class FeedColors {
     }
 
     FeedColors(@NonNull Palette palette) {
-        this.palette = palette;
+        textColor = getRgb(palette.getDominantSwatch());
+        backgroundColor = getRgb(palette.getMutedSwatch());
     }
 
     FeedColors(@Nullable @ColorInt Integer color) {
-        final Palette.Swatch swatch;
-
         if(color != null) {
-            swatch = new Palette.Swatch(color, 1);
+            final Palette.Swatch swatch = new Palette.Swatch(color, 1);
+            final Palette palette = new Palette.Builder(Collections.singletonList(swatch)).addTarget(Target.MUTED).generate();
+            textColor = getRgb(palette.getDominantSwatch());
+            backgroundColor = getRgb(palette.getMutedSwatch());
         } else {
-            swatch = null;
+            textColor = null;
+            backgroundColor = null;
         }
+    }
 
-        if(swatch != null)
-            palette = new Palette.Builder(Collections.singletonList(swatch)).addTarget(Target.MUTED).generate();
-        else
-            palette = null;
+    /**
+     * Use the colors stored in feed
+     */
+    FeedColors(@NonNull Feed feed) {
+        textColor = feed.getTextColor();
+        backgroundColor = feed.getBackgroundColor();
+    }
+
+    @Nullable
+    private static Integer getRgb(@Nullable Palette.Swatch swatch) {
+        return swatch != null ? swatch.getRgb() : null;
+    }
+
+    /**
+     * Store the colors in feed, missing colors are stored as 0
+     */
+    void store(@NonNull Feed feed) {
+        feed.setTextColor(textColor != null ? textColor : 0);
+        feed.setBackgroundColor(backgroundColor != null ? backgroundColor : 0);
     }
 
     @ColorInt public int getColor(@NonNull Type type, @ColorInt int defaultColor) {
-        final Palette.Swatch swatch;
+        final Integer color;
 
-        if(palette != null) {
-            switch (type) {
-                case TEXT:
-                    swatch = palette.getDominantSwatch();
-                    break;
-                case BACKGROUND:
-                    swatch = palette.getMutedSwatch();
-                    break;
-                default:
-                    swatch = null;
-                    break;
-            }
-        } else {
-            swatch = null;
+        switch (type) {
+            case TEXT:
+                color = textColor;
+                break;
+            case BACKGROUND:
+                color = backgroundColor;
+                break;
+            default:
+                color = null;
+                break;
         }
 
-        if(swatch != null)
-            return swatch.getRgb();
+        // Swatch colors are always opaque, 0 means no suitable color was found
+        if(color != null && color != 0)
+            return color;
         else
             return defaultColor;
     }
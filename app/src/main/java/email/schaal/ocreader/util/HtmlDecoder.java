@@ -0,0 +1,390 @@
+package email.schaal.ocreader.util;
+
+import androidx.annotation.NonNull;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Lightweight replacement for {@code Html.fromHtml(source).toString()} for short strings like
+ * item and feed titles.
+ *
+ * Tags are stripped (&lt;br&gt; becomes a line break), entities are decoded and whitespace is
+ * collapsed the same way Html.fromHtml does it. Strings without markup are returned as-is.
+ */
+public class HtmlDecoder {
+    private static final Map<String, Character> ENTITIES = new HashMap<>(512);
+
+    static {
+        ENTITIES.put("quot", '"');
+        ENTITIES.put("amp", '&');
+        ENTITIES.put("apos", '\'');
+        ENTITIES.put("lt", '<');
+        ENTITIES.put("gt", '>');
+
+        // ISO 8859-1 characters, &nbsp; (160) to &yuml; (255)
+        final String[] latin1 = {
+                "nbsp", "iexcl", "cent", "pound", "curren", "yen", "brvbar", "sect",
+                "uml", "copy", "ordf", "laquo", "not", "shy", "reg", "macr",
+                "deg", "plusmn", "sup2", "sup3", "acute", "micro", "para", "middot",
+                "cedil", "sup1", "ordm", "raquo", "frac14", "frac12", "frac34", "iquest",
+                "Agrave", "Aacute", "Acirc", "Atilde", "Auml", "Aring", "AElig", "Ccedil",
+                "Egrave", "Eacute", "Ecirc", "Euml", "Igrave", "Iacute", "Icirc", "Iuml",
+                "ETH", "Ntilde", "Ograve", "Oacute", "Ocirc", "Otilde", "Ouml", "times",
+                "Oslash", "Ugrave", "Uacute", "Ucirc", "Uuml", "Yacute", "THORN", "szlig",
+                "agrave", "aacute", "acirc", "atilde", "auml", "aring", "aelig", "ccedil",
+                "egrave", "eacute", "ecirc", "euml", "igrave", "iacute", "icirc", "iuml",
+                "eth", "ntilde", "ograve", "oacute", "ocirc", "otilde", "ouml", "divide",
+                "oslash", "ugrave", "uacute", "ucirc", "uuml", "yacute", "thorn", "yuml"
+        };
+        for(int i = 0; i < latin1.length; i++) {
+            ENTITIES.put(latin1[i], (char) (160 + i));
+        }
+
+        // Latin Extended and spacing modifier letters
+        ENTITIES.put("OElig", 'Œ');
+        ENTITIES.put("oelig", 'œ');
+        ENTITIES.put("Scaron", 'Š');
+        ENTITIES.put("scaron", 'š');
+        ENTITIES.put("Yuml", 'Ÿ');
+        ENTITIES.put("fnof", 'ƒ');
+        ENTITIES.put("circ", 'ˆ');
+        ENTITIES.put("tilde", '˜');
+
+        // Greek letters
+        ENTITIES.put("Alpha", 'Α');
+        ENTITIES.put("Beta", 'Β');
+        ENTITIES.put("Gamma", 'Γ');
+        ENTITIES.put("Delta", 'Δ');
+        ENTITIES.put("Epsilon", 'Ε');
+        ENTITIES.put("Zeta", 'Ζ');
+        ENTITIES.put("Eta", 'Η');
+        ENTITIES.put("Theta", 'Θ');
+        ENTITIES.put("Iota", 'Ι');
+        ENTITIES.put("Kappa", 'Κ');
+        ENTITIES.put("Lambda", 'Λ');
+        ENTITIES.put("Mu", 'Μ');
+        ENTITIES.put("Nu", 'Ν');
+        ENTITIES.put("Xi", 'Ξ');
+        ENTITIES.put("Omicron", 'Ο');
+        ENTITIES.put("Pi", 'Π');
+        ENTITIES.put("Rho", 'Ρ');
+        ENTITIES.put("Sigma", 'Σ');
+        ENTITIES.put("Tau", 'Τ');
+        ENTITIES.put("Upsilon", 'Υ');
+        ENTITIES.put("Phi", 'Φ');
+        ENTITIES.put("Chi", 'Χ');
+        ENTITIES.put("Psi", 'Ψ');
+        ENTITIES.put("Omega", 'Ω');
+        ENTITIES.put("alpha", 'α');
+        ENTITIES.put("beta", 'β');
+        ENTITIES.put("gamma", 'γ');
+        ENTITIES.put("delta", 'δ');
+        ENTITIES.put("epsilon", 'ε');
+        ENTITIES.put("zeta", 'ζ');
+        ENTITIES.put("eta", 'η');
+        ENTITIES.put("theta", 'θ');
+        ENTITIES.put("iota", 'ι');
+        ENTITIES.put("kappa", 'κ');
+        ENTITIES.put("lambda", 'λ');
+        ENTITIES.put("mu", 'μ');
+        ENTITIES.put("nu", 'ν');
+        ENTITIES.put("xi", 'ξ');
+        ENTITIES.put("omicron", 'ο');
+        ENTITIES.put("pi", 'π');
+        ENTITIES.put("rho", 'ρ');
+        ENTITIES.put("sigmaf", 'ς');
+        ENTITIES.put("sigma", 'σ');
+        ENTITIES.put("tau", 'τ');
+        ENTITIES.put("upsilon", 'υ');
+        ENTITIES.put("phi", 'φ');
+        ENTITIES.put("chi", 'χ');
+        ENTITIES.put("psi", 'ψ');
+        ENTITIES.put("omega", 'ω');
+        ENTITIES.put("thetasym", 'ϑ');
+        ENTITIES.put("upsih", 'ϒ');
+        ENTITIES.put("piv", 'ϖ');
+
+        // General punctuation
+        ENTITIES.put("ensp", '\u2002');
+        ENTITIES.put("emsp", '\u2003');
+        ENTITIES.put("thinsp", '\u2009');
+        ENTITIES.put("zwnj", '\u200C');
+        ENTITIES.put("zwj", '\u200D');
+        ENTITIES.put("lrm", '\u200E');
+        ENTITIES.put("rlm", '\u200F');
+        ENTITIES.put("ndash", '–');
+        ENTITIES.put("mdash", '—');
+        ENTITIES.put("lsquo", '‘');
+        ENTITIES.put("rsquo", '’');
+        ENTITIES.put("sbquo", '‚');
+        ENTITIES.put("ldquo", '“');
+        ENTITIES.put("rdquo", '”');
+        ENTITIES.put("bdquo", '„');
+        ENTITIES.put("dagger", '†');
+        ENTITIES.put("Dagger", '‡');
+        ENTITIES.put("bull", '•');
+        ENTITIES.put("hellip", '…');
+        ENTITIES.put("permil", '‰');
+        ENTITIES.put("prime", '′');
+        ENTITIES.put("Prime", '″');
+        ENTITIES.put("lsaquo", '‹');
+        ENTITIES.put("rsaquo", '›');
+        ENTITIES.put("oline", '‾');
+        ENTITIES.put("frasl", '⁄');
+        ENTITIES.put("euro", '€');
+
+        // Letterlike symbols
+        ENTITIES.put("image", 'ℑ');
+        ENTITIES.put("weierp", '℘');
+        ENTITIES.put("real", 'ℜ');
+        ENTITIES.put("trade", '™');
+        ENTITIES.put("alefsym", 'ℵ');
+
+        // Arrows
+        ENTITIES.put("larr", '←');
+        ENTITIES.put("uarr", '↑');
+        ENTITIES.put("rarr", '→');
+        ENTITIES.put("darr", '↓');
+        ENTITIES.put("harr", '↔');
+        ENTITIES.put("crarr", '↵');
+        ENTITIES.put("lArr", '⇐');
+        ENTITIES.put("uArr", '⇑');
+        ENTITIES.put("rArr", '⇒');
+        ENTITIES.put("dArr", '⇓');
+        ENTITIES.put("hArr", '⇔');
+
+        // Mathematical operators
+        ENTITIES.put("forall", '∀');
+        ENTITIES.put("part", '∂');
+        ENTITIES.put("exist", '∃');
+        ENTITIES.put("empty", '∅');
+        ENTITIES.put("nabla", '∇');
+        ENTITIES.put("isin", '∈');
+        ENTITIES.put("notin", '∉');
+        ENTITIES.put("ni", '∋');
+        ENTITIES.put("prod", '∏');
+        ENTITIES.put("sum", '∑');
+        ENTITIES.put("minus", '−');
+        ENTITIES.put("lowast", '∗');
+        ENTITIES.put("radic", '√');
+        ENTITIES.put("prop", '∝');
+        ENTITIES.put("infin", '∞');
+        ENTITIES.put("ang", '∠');
+        ENTITIES.put("and", '∧');
+        ENTITIES.put("or", '∨');
+        ENTITIES.put("cap", '∩');
+        ENTITIES.put("cup", '∪');
+        ENTITIES.put("int", '∫');
+        ENTITIES.put("there4", '∴');
+        ENTITIES.put("sim", '∼');
+        ENTITIES.put("cong", '≅');
+        ENTITIES.put("asymp", '≈');
+        ENTITIES.put("ne", '≠');
+        ENTITIES.put("equiv", '≡');
+        ENTITIES.put("le", '≤');
+        ENTITIES.put("ge", '≥');
+        ENTITIES.put("sub", '⊂');
+        ENTITIES.put("sup", '⊃');
+        ENTITIES.put("nsub", '⊄');
+        ENTITIES.put("sube", '⊆');
+        ENTITIES.put("supe", '⊇');
+        ENTITIES.put("oplus", '⊕');
+        ENTITIES.put("otimes", '⊗');
+        ENTITIES.put("perp", '⊥');
+        ENTITIES.put("sdot", '⋅');
+
+        // Miscellaneous technical
+        ENTITIES.put("lceil", '⌈');
+        ENTITIES.put("rceil", '⌉');
+        ENTITIES.put("lfloor", '⌊');
+        ENTITIES.put("rfloor", '⌋');
+        ENTITIES.put("lang", '〈');
+        ENTITIES.put("rang", '〉');
+
+        // Geometric shapes
+        ENTITIES.put("loz", '◊');
+
+        // Card suits
+        ENTITIES.put("spades", '♠');
+        ENTITIES.put("clubs", '♣');
+        ENTITIES.put("hearts", '♥');
+        ENTITIES.put("diams", '♦');
+    }
+
+    // Longest entity name in the table above
+    private static final int MAX_ENTITY_LENGTH = 8;
+
+    private HtmlDecoder() {
+    }
+
+    @NonNull
+    public static String decode(@NonNull String source) {
+        if(!needsDecoding(source))
+            return source;
+
+        final int length = source.length();
+        final StringBuilder builder = new StringBuilder(length);
+
+        int i = 0;
+        while (i < length) {
+            final char c = source.charAt(i);
+            if(c == '<') {
+                i = skipTag(source, i, builder);
+            } else if(c == '&') {
+                i = decodeEntity(source, i, builder);
+            } else {
+                appendCollapsed(builder, c);
+                i++;
+            }
+        }
+
+        return builder.toString();
+    }
+
+    /**
+     * Fast path check: strings without markup, entities and collapsible whitespace are returned
+     * unchanged.
+     */
+    private static boolean needsDecoding(String source) {
+        char pred = '\n';
+        for(int i = 0, length = source.length(); i < length; i++) {
+            final char c = source.charAt(i);
+            switch (c) {
+                case '&':
+                case '<':
+                case '\n':
+                case '\r':
+                case '\t':
+                    return true;
+                case ' ':
+                    if(pred == ' ' || pred == '\n')
+                        return true;
+                    break;
+            }
+            pred = c;
+        }
+        return false;
+    }
+
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\n' || c == '\r' || c == '\t';
+    }
+
+    /**
+     * Append c to builder, collapsing whitespace like Html.fromHtml: whitespace at the start or
+     * following other whitespace is dropped, other whitespace becomes a single space.
+     */
+    private static void appendCollapsed(StringBuilder builder, char c) {
+        if(isWhitespace(c)) {
+            final int length = builder.length();
+            final char pred = length > 0 ? builder.charAt(length - 1) : '\n';
+            if(pred != ' ' && pred != '\n')
+                builder.append(' ');
+        } else {
+            builder.append(c);
+        }
+    }
+
+    /**
+     * @return index after the tag starting at start, or start + 1 if it's not a tag
+     */
+    private static int skipTag(String source, int start, StringBuilder builder) {
+        final int length = source.length();
+        int i = start + 1;
+
+        if(i >= length || !isTagStart(source.charAt(i))) {
+            builder.append('<');
+            return start + 1;
+        }
+
+        final int end = source.indexOf('>', i);
+        if(end < 0) {
+            // unterminated tag, drop the rest
+            return length;
+        }
+
+        if(isBreak(source, i, end))
+            builder.append('\n');
+
+        return end + 1;
+    }
+
+    private static boolean isTagStart(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '/' || c == '!' || c == '?';
+    }
+
+    private static boolean isBreak(String source, int nameStart, int end) {
+        if(end - nameStart < 2 || !source.regionMatches(true, nameStart, "br", 0, 2))
+            return false;
+        if(end - nameStart == 2)
+            return true;
+        final char next = source.charAt(nameStart + 2);
+        return next == '/' || isWhitespace(next);
+    }
+
+    /**
+     * @return index after the entity starting at start, or start + 1 if it's not a valid entity
+     */
+    private static int decodeEntity(String source, int start, StringBuilder builder) {
+        final int semicolon = source.indexOf(';', start + 1);
+        final int codePoint = parseEntity(source, start, semicolon);
+
+        if(codePoint > 0) {
+            if(Character.isBmpCodePoint(codePoint))
+                appendCollapsed(builder, (char) codePoint);
+            else
+                builder.appendCodePoint(codePoint);
+            return semicolon + 1;
+        }
+
+        builder.append('&');
+        return start + 1;
+    }
+
+    /**
+     * Decode the named or numeric entity between the &amp; at start and the semicolon
+     * @return the code point, or -1 if it's not a valid entity
+     */
+    static int parseEntity(String source, int start, int semicolon) {
+        if(semicolon <= start + 1)
+            return -1;
+
+        if(source.charAt(start + 1) == '#')
+            return parseCharacterReference(source, start + 2, semicolon);
+
+        if(semicolon - start - 1 > MAX_ENTITY_LENGTH)
+            return -1;
+
+        final Character decoded = ENTITIES.get(source.substring(start + 1, semicolon));
+        return decoded != null ? decoded : -1;
+    }
+
+    /**
+     * Parse the numeric part of &#123; or &#x7b;
+     * @return the code point, or -1 if invalid
+     */
+    private static int parseCharacterReference(String source, int start, int end) {
+        if(start >= end)
+            return -1;
+
+        int radix = 10;
+        if(source.charAt(start) == 'x' || source.charAt(start) == 'X') {
+            radix = 16;
+            start++;
+        }
+
+        if(start >= end || end - start > 8)
+            return -1;
+
+        int codePoint = 0;
+        for(int i = start; i < end; i++) {
+            final int digit = Character.digit(source.charAt(i), radix);
+            if(digit < 0)
+                return -1;
+            codePoint = codePoint * radix + digit;
+        }
+
+        return Character.isValidCodePoint(codePoint) ? codePoint : -1;
+    }
+}
@@ -0,0 +1,172 @@
+package email.schaal.ocreader.util;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * Set of primitive longs that remembers insertion order, without boxing the values.
+ *
+ * Values are appended to an array in insertion order, an open addressing hash table maps values
+ * to their index in that array. Removed values leave a hole that is dropped on the next rehash.
+ */
+public class LongLinkedHashSet {
+    private static final int MIN_CAPACITY = 8;
+
+    // Markers in table, other entries are an index into values
+    private static final int FREE = -1;
+    private static final int REMOVED = -2;
+
+    private long[] values;
+    private boolean[] removed;
+    // Number of used slots in values, including removed values
+    private int end;
+    private int size;
+
+    private int[] table;
+    // Number of slots in table that are not FREE
+    private int tableUsed;
+
+    public LongLinkedHashSet() {
+        this(MIN_CAPACITY);
+    }
+
+    public LongLinkedHashSet(int expectedSize) {
+        allocate(Math.max(MIN_CAPACITY, expectedSize));
+    }
+
+    private void allocate(int capacity) {
+        values = new long[capacity];
+        removed = new boolean[capacity];
+        // Keep the load factor of the table <= 0.5
+        table = new int[Integer.highestOneBit(capacity * 2 - 1) * 2];
+        Arrays.fill(table, FREE);
+        end = 0;
+        size = 0;
+        tableUsed = 0;
+    }
+
+    private static int hash(long value) {
+        final int h = (int) (value ^ (value >>> 32)) * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * @return slot of value in table, or -1 if not found
+     */
+    private int find(long value) {
+        final int mask = table.length - 1;
+        for(int slot = hash(value) & mask; ; slot = (slot + 1) & mask) {
+            final int index = table[slot];
+            if(index == FREE)
+                return -1;
+            if(index != REMOVED && values[index] == value)
+                return slot;
+        }
+    }
+
+    public boolean contains(long value) {
+        return find(value) >= 0;
+    }
+
+    /**
+     * @return true if value was not in the set before
+     */
+    public boolean add(long value) {
+        if(contains(value))
+            return false;
+
+        if(end == values.length || tableUsed >= table.length / 2)
+            rehash(Math.max(MIN_CAPACITY, size * 2));
+
+        final int mask = table.length - 1;
+        int slot = hash(value) & mask;
+        while(table[slot] >= 0)
+            slot = (slot + 1) & mask;
+
+        if(table[slot] == FREE)
+            tableUsed++;
+
+        table[slot] = end;
+        values[end] = value;
+        removed[end] = false;
+        end++;
+        size++;
+
+        return true;
+    }
+
+    /**
+     * @return true if value was in the set
+     */
+    public boolean remove(long value) {
+        final int slot = find(value);
+        if(slot < 0)
+            return false;
+
+        removed[table[slot]] = true;
+        table[slot] = REMOVED;
+        size--;
+
+        return true;
+    }
+
+    /**
+     * Add value if it's not in the set, remove it otherwise
+     * @return true if value is in the set afterwards
+     */
+    public boolean toggle(long value) {
+        if(remove(value))
+            return false;
+        add(value);
+        return true;
+    }
+
+    public void clear() {
+        allocate(MIN_CAPACITY);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @return the value that was added first
+     * @throws NoSuchElementException if the set is empty
+     */
+    public long first() {
+        for(int i = 0; i < end; i++) {
+            if(!removed[i])
+                return values[i];
+        }
+        throw new NoSuchElementException();
+    }
+
+    /**
+     * @return the values in insertion order
+     */
+    public long[] toArray() {
+        final long[] result = new long[size];
+        for(int i = 0, j = 0; i < end; i++) {
+            if(!removed[i])
+                result[j++] = values[i];
+        }
+        return result;
+    }
+
+    private void rehash(int capacity) {
+        final long[] oldValues = values;
+        final boolean[] oldRemoved = removed;
+        final int oldEnd = end;
+
+        allocate(capacity);
+
+        for(int i = 0; i < oldEnd; i++) {
+            if(!oldRemoved[i])
+                add(oldValues[i]);
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package email.schaal.ocreader.util;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Rules to mute items while they are decoded, muted items are never stored.
+ *
+ * The rules are given one per line:
+ * <ul>
+ *     <li><code>author:name</code> mutes items whose author contains name, ignoring case</li>
+ *     <li><code>/regex/</code> mutes items whose title or body contains a match of regex, ignoring case</li>
+ *     <li>any other line mutes items containing all of its words in title, author or body</li>
+ * </ul>
+ * Lines with an invalid regex are ignored.
+ */
+public class MuteFilter {
+    public static final MuteFilter EMPTY = new MuteFilter();
+
+    private static final String AUTHOR_PREFIX = "author:";
+
+    private final List<List<String>> keywords = new ArrayList<>();
+    private final List<String> authors = new ArrayList<>();
+    private final List<Pattern> patterns = new ArrayList<>();
+
+    private MuteFilter() {
+    }
+
+    @NonNull
+    public static MuteFilter parse(@Nullable String rules) {
+        if(rules == null)
+            return EMPTY;
+
+        final MuteFilter muteFilter = new MuteFilter();
+
+        for(String line: rules.split("\n")) {
+            final String rule = line.trim();
+
+            if(rule.regionMatches(true, 0, AUTHOR_PREFIX, 0, AUTHOR_PREFIX.length())) {
+                final String author = rule.substring(AUTHOR_PREFIX.length()).trim();
+                if(!author.isEmpty())
+                    muteFilter.authors.add(author.toLowerCase(Locale.getDefault()));
+            } else if(rule.length() > 2 && rule.startsWith("/") && rule.endsWith("/")) {
+                try {
+                    muteFilter.patterns.add(Pattern.compile(rule.substring(1, rule.length() - 1), Pattern.CASE_INSENSITIVE));
+                } catch (PatternSyntaxException e) {
+                    // ignore invalid rule
+                }
+            } else {
+                final List<String> ruleTerms = new ArrayList<>();
+                SearchTokenizer.tokenize(rule, false, ruleTerms);
+                if(!ruleTerms.isEmpty())
+                    muteFilter.keywords.add(ruleTerms);
+            }
+        }
+
+        return muteFilter.isEmpty() ? EMPTY : muteFilter;
+    }
+
+    public boolean isEmpty() {
+        return keywords.isEmpty() && authors.isEmpty() && patterns.isEmpty();
+    }
+
+    /**
+     * @param body HTML body of the item
+     */
+    public boolean isMuted(@Nullable String title, @Nullable String author, @Nullable String body) {
+        if(isEmpty())
+            return false;
+
+        if(author != null && !authors.isEmpty()) {
+            final String lowerCaseAuthor = author.toLowerCase(Locale.getDefault());
+            for(String mutedAuthor: authors) {
+                if(lowerCaseAuthor.contains(mutedAuthor))
+                    return true;
+            }
+        }
+
+        for(Pattern pattern: patterns) {
+            if((title != null && pattern.matcher(title).find()) || (body != null && pattern.matcher(body).find()))
+                return true;
+        }
+
+        if(!keywords.isEmpty()) {
+            final Set<String> terms = new HashSet<>();
+            SearchTokenizer.tokenize(title, false, terms);
+            SearchTokenizer.tokenize(author, false, terms);
+            SearchTokenizer.tokenize(body, true, terms);
+
+            for(List<String> ruleTerms: keywords) {
+                if(terms.containsAll(ruleTerms))
+                    return true;
+            }
+        }
+
+        return false;
+    }
+}
@@ -0,0 +1,166 @@
+package email.schaal.ocreader.util;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.Arrays;
+
+/**
+ * Compact encoding of posting lists, sorted sets of item ids, and the set operations needed to
+ * maintain and query them.
+ *
+ * The encoded form is the number of ids followed by the first id and the differences between
+ * consecutive ids, each written as an unsigned varint. Item ids are dense, so most ids take one
+ * or two bytes.
+ */
+public class Postings {
+    public static final long[] EMPTY = new long[0];
+
+    @NonNull
+    public static byte[] encode(@NonNull long[] ids) {
+        // Worst case is 10 bytes per value
+        final byte[] buffer = new byte[(ids.length + 1) * 10];
+
+        int position = writeVarLong(buffer, 0, ids.length);
+        long previous = 0;
+        for(long id: ids) {
+            position = writeVarLong(buffer, position, id - previous);
+            previous = id;
+        }
+
+        return Arrays.copyOf(buffer, position);
+    }
+
+    @NonNull
+    public static long[] decode(@Nullable byte[] data) {
+        if(data == null || data.length == 0)
+            return EMPTY;
+
+        final int[] position = new int[1];
+        final long[] ids = new long[(int) readVarLong(data, position)];
+
+        long previous = 0;
+        for(int i = 0; i < ids.length; i++) {
+            previous += readVarLong(data, position);
+            ids[i] = previous;
+        }
+
+        return ids;
+    }
+
+    private static int writeVarLong(byte[] buffer, int position, long value) {
+        while((value & ~0x7FL) != 0) {
+            buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[position++] = (byte) value;
+        return position;
+    }
+
+    /**
+     * @param position position[0] is the offset to read from, advanced past the value
+     */
+    private static long readVarLong(byte[] data, int[] position) {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = data[position[0]++];
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while((b & 0x80) != 0);
+        return value;
+    }
+
+    /**
+     * Sort ids and remove duplicates
+     */
+    @NonNull
+    public static long[] sort(@NonNull long[] ids, int length) {
+        final long[] sorted = Arrays.copyOf(ids, length);
+        Arrays.sort(sorted);
+
+        int unique = 0;
+        for(int i = 0; i < sorted.length; i++) {
+            if(i == 0 || sorted[i] != sorted[i - 1])
+                sorted[unique++] = sorted[i];
+        }
+
+        return unique == sorted.length ? sorted : Arrays.copyOf(sorted, unique);
+    }
+
+    /**
+     * @return sorted ids contained in lhs or rhs
+     */
+    @NonNull
+    public static long[] union(@NonNull long[] lhs, @NonNull long[] rhs) {
+        if(lhs.length == 0)
+            return rhs;
+        if(rhs.length == 0)
+            return lhs;
+
+        final long[] result = new long[lhs.length + rhs.length];
+        int i = 0, j = 0, k = 0;
+        while(i < lhs.length && j < rhs.length) {
+            if(lhs[i] < rhs[j])
+                result[k++] = lhs[i++];
+            else if(lhs[i] > rhs[j])
+                result[k++] = rhs[j++];
+            else {
+                result[k++] = lhs[i++];
+                j++;
+            }
+        }
+        while(i < lhs.length)
+            result[k++] = lhs[i++];
+        while(j < rhs.length)
+            result[k++] = rhs[j++];
+
+        return k == result.length ? result : Arrays.copyOf(result, k);
+    }
+
+    /**
+     * @return sorted ids contained in lhs and rhs
+     */
+    @NonNull
+    public static long[] intersect(@NonNull long[] lhs, @NonNull long[] rhs) {
+        final long[] result = new long[Math.min(lhs.length, rhs.length)];
+        int i = 0, j = 0, k = 0;
+        while(i < lhs.length && j < rhs.length) {
+            if(lhs[i] < rhs[j])
+                i++;
+            else if(lhs[i] > rhs[j])
+                j++;
+            else {
+                result[k++] = lhs[i++];
+                j++;
+            }
+        }
+
+        return k == result.length ? result : Arrays.copyOf(result, k);
+    }
+
+    /**
+     * @return sorted ids contained in lhs but not in rhs
+     */
+    @NonNull
+    public static long[] subtract(@NonNull long[] lhs, @NonNull long[] rhs) {
+        if(lhs.length == 0 || rhs.length == 0)
+            return lhs;
+
+        final long[] result = new long[lhs.length];
+        int i = 0, j = 0, k = 0;
+        while(i < lhs.length) {
+            if(j >= rhs.length || lhs[i] < rhs[j])
+                result[k++] = lhs[i++];
+            else if(lhs[i] > rhs[j])
+                j++;
+            else {
+                i++;
+                j++;
+            }
+        }
+
+        return k == result.length ? result : Arrays.copyOf(result, k);
+    }
+}
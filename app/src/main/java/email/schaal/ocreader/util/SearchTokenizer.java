@@ -0,0 +1,76 @@
+package email.schaal.ocreader.util;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.Collection;
+
+/**
+ * Splits text into lower case search terms. Terms are runs of letters and digits, HTML tags
+ * separate terms and are not indexed themselves. Entities are decoded, so &amp;eacute; is part of
+ * the term it appears in.
+ */
+public class SearchTokenizer {
+    /**
+     * Shorter terms are not indexed, they match too many items to be useful
+     */
+    public static final int MIN_TERM_LENGTH = 2;
+
+    /**
+     * Longer terms are truncated, prefix matching still finds them
+     */
+    public static final int MAX_TERM_LENGTH = 24;
+
+    /**
+     * Add the terms of text to terms
+     * @param html true if text contains HTML markup
+     */
+    public static void tokenize(@Nullable String text, boolean html, @NonNull Collection<String> terms) {
+        if(text == null)
+            return;
+
+        final StringBuilder term = new StringBuilder(MAX_TERM_LENGTH);
+        final int length = text.length();
+
+        for(int i = 0; i < length; i++) {
+            final char c = text.charAt(i);
+
+            if(Character.isLetterOrDigit(c)) {
+                if(term.length() < MAX_TERM_LENGTH)
+                    term.append(Character.toLowerCase(c));
+                continue;
+            }
+
+            if(html && c == '&') {
+                // Decode entities like &eacute; or &#8217;, letters stay part of the current term
+                int end = i + 1;
+                while(end < length && end - i <= 10 && (Character.isLetterOrDigit(text.charAt(end)) || text.charAt(end) == '#'))
+                    end++;
+                if(end < length && text.charAt(end) == ';') {
+                    final int codePoint = HtmlDecoder.parseEntity(text, i, end);
+                    i = end;
+                    if(codePoint > 0 && Character.isLetterOrDigit(codePoint)) {
+                        if(term.length() < MAX_TERM_LENGTH)
+                            term.appendCodePoint(Character.toLowerCase(codePoint));
+                        continue;
+                    }
+                }
+            }
+
+            addTerm(term, terms);
+
+            if(html && c == '<') {
+                final int end = text.indexOf('>', i);
+                i = end < 0 ? length : end;
+            }
+        }
+
+        addTerm(term, terms);
+    }
+
+    private static void addTerm(StringBuilder term, Collection<String> terms) {
+        if(term.length() >= MIN_TERM_LENGTH)
+            terms.add(term.toString());
+        term.setLength(0);
+    }
+}
@@ -0,0 +1,243 @@
+package email.schaal.ocreader.util;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Append-only store for deflate compressed strings, split into segment files.
+ *
+ * Each record is the length of the uncompressed string in bytes followed by the compressed
+ * bytes. Records are addressed by segment, offset and length and read through a read-only
+ * memory mapping of the segment. New records are appended to the active segment, a new active
+ * segment is started when it grows beyond {@link #SEGMENT_SIZE}. Records are never changed or
+ * removed, space is only reclaimed by copying the live records of a segment and deleting it.
+ */
+public class SegmentStore {
+    public static final int SEGMENT_SIZE = 4 * 1024 * 1024;
+
+    private static final String PREFIX = "segment-";
+    private static final int HEADER_SIZE = 4;
+
+    private final File directory;
+
+    private final Map<Integer, MappedByteBuffer> mappedSegments = new HashMap<>();
+
+    private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    private final byte[] deflateBuffer = new byte[8192];
+
+    private int activeSegment;
+    @Nullable
+    private RandomAccessFile activeFile;
+
+    public SegmentStore(@NonNull File directory) {
+        this.directory = directory;
+
+        final List<Integer> segments = getSegments();
+        activeSegment = segments.isEmpty() ? 0 : segments.get(segments.size() - 1);
+    }
+
+    /**
+     * Address of a record
+     */
+    public static class Address {
+        public final int segment;
+        public final int offset;
+        public final int length;
+
+        public Address(int segment, int offset, int length) {
+            this.segment = segment;
+            this.offset = offset;
+            this.length = length;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if(obj instanceof Address) {
+                final Address other = (Address) obj;
+                return segment == other.segment && offset == other.offset && length == other.length;
+            }
+            return false;
+        }
+
+        @Override
+        public int hashCode() {
+            return (segment * 31 + offset) * 31 + length;
+        }
+    }
+
+    private File getFile(int segment) {
+        return new File(directory, PREFIX + segment);
+    }
+
+    /**
+     * @return segments in ascending order, the last one is the active segment
+     */
+    @NonNull
+    public synchronized List<Integer> getSegments() {
+        final List<Integer> segments = new ArrayList<>();
+        final String[] names = directory.list();
+        if(names != null) {
+            for (String name : names) {
+                if (name.startsWith(PREFIX)) {
+                    try {
+                        segments.add(Integer.parseInt(name.substring(PREFIX.length())));
+                    } catch (NumberFormatException e) {
+                        // not a segment
+                    }
+                }
+            }
+        }
+        Collections.sort(segments);
+        return segments;
+    }
+
+    public synchronized int getActiveSegment() {
+        return activeSegment;
+    }
+
+    /**
+     * @return size of segment in bytes
+     */
+    public synchronized long getSize(int segment) {
+        return getFile(segment).length();
+    }
+
+    /**
+     * Compress value and append it to the active segment
+     */
+    @NonNull
+    public synchronized Address put(@NonNull String value) throws IOException {
+        final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+
+        final ByteArrayOutputStream record = new ByteArrayOutputStream(HEADER_SIZE + bytes.length / 2);
+        record.write(bytes.length >>> 24);
+        record.write(bytes.length >>> 16);
+        record.write(bytes.length >>> 8);
+        record.write(bytes.length);
+
+        deflater.reset();
+        deflater.setInput(bytes);
+        deflater.finish();
+        while (!deflater.finished()) {
+            record.write(deflateBuffer, 0, deflater.deflate(deflateBuffer));
+        }
+
+        return append(record.toByteArray());
+    }
+
+    /**
+     * Append the record at address to the active segment without decompressing it
+     */
+    @NonNull
+    public synchronized Address copy(@NonNull Address address) throws IOException {
+        final byte[] record = new byte[address.length];
+        read(address).get(record);
+        return append(record);
+    }
+
+    private Address append(byte[] record) throws IOException {
+        RandomAccessFile file = getActiveFile();
+        if(file.length() > 0 && file.length() + record.length > SEGMENT_SIZE) {
+            file.close();
+            activeFile = null;
+            activeSegment++;
+            file = getActiveFile();
+        }
+
+        final int offset = (int) file.length();
+        file.seek(offset);
+        file.write(record);
+
+        return new Address(activeSegment, offset, record.length);
+    }
+
+    private RandomAccessFile getActiveFile() throws IOException {
+        if(activeFile == null) {
+            if(!directory.isDirectory() && !directory.mkdirs())
+                throw new IOException("Failed to create " + directory);
+            activeFile = new RandomAccessFile(getFile(activeSegment), "rw");
+        }
+        return activeFile;
+    }
+
+    private ByteBuffer read(Address address) throws IOException {
+        MappedByteBuffer buffer = mappedSegments.get(address.segment);
+
+        // The active segment grows, map it again to see the new records
+        if(buffer == null || buffer.capacity() < address.offset + address.length) {
+            try (RandomAccessFile file = new RandomAccessFile(getFile(address.segment), "r")) {
+                buffer = file.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, file.length());
+            }
+            mappedSegments.put(address.segment, buffer);
+        }
+
+        if(buffer.capacity() < address.offset + address.length)
+            throw new IOException("Record out of bounds");
+
+        final ByteBuffer record = buffer.duplicate();
+        record.position(address.offset);
+        record.limit(address.offset + address.length);
+        return record;
+    }
+
+    /**
+     * Read and decompress the record at address
+     */
+    @NonNull
+    public synchronized String get(@NonNull Address address) throws IOException {
+        final ByteBuffer record = read(address);
+
+        final int length = record.getInt();
+        final byte[] compressed = new byte[record.remaining()];
+        record.get(compressed);
+
+        final Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed);
+            final byte[] bytes = new byte[length];
+            int inflated = 0;
+            while(inflated < length && !inflater.finished()) {
+                final int count = inflater.inflate(bytes, inflated, length - inflated);
+                if(count == 0 && (inflater.needsInput() || inflater.needsDictionary()))
+                    break;
+                inflated += count;
+            }
+            if(inflated != length)
+                throw new IOException("Truncated record");
+            return new String(bytes, StandardCharsets.UTF_8);
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt record", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /**
+     * Delete segment, its records must not be read anymore. The active segment is never deleted.
+     */
+    public synchronized void delete(int segment) {
+        if(segment == activeSegment)
+            return;
+
+        mappedSegments.remove(segment);
+        //noinspection ResultOfMethodCallIgnored
+        getFile(segment).delete();
+    }
+}
@@ -0,0 +1,84 @@
+package email.schaal.ocreader.util;
+
+import android.app.Activity;
+import android.app.ActivityManager;
+import android.os.Build;
+import android.os.Process;
+import android.os.SystemClock;
+import android.os.Trace;
+import android.preference.PreferenceManager;
+import android.util.Log;
+import android.view.View;
+import android.view.ViewTreeObserver;
+
+import androidx.annotation.NonNull;
+
+import email.schaal.ocreader.Preferences;
+
+/**
+ * Trace sections for the startup phases and the time from process start to the first frame,
+ * recorded once per process and only if the process was started to show an activity.
+ */
+public class StartupTrace {
+    private static final String TAG = StartupTrace.class.getName();
+
+    private static long startTime;
+    // False if the process was started for a job or a broadcast, the activity is opened later
+    private static boolean startedForActivity = false;
+    private static boolean firstFrameRecorded = false;
+
+    /**
+     * Call first thing when the Application is created
+     */
+    public static void onApplicationCreate() {
+        if(Build.VERSION.SDK_INT >= Build.VERSION_CODES.N)
+            startTime = Process.getStartUptimeMillis();
+        else
+            startTime = SystemClock.uptimeMillis();
+
+        final ActivityManager.RunningAppProcessInfo processInfo = new ActivityManager.RunningAppProcessInfo();
+        ActivityManager.getMyMemoryState(processInfo);
+        startedForActivity = processInfo.importance == ActivityManager.RunningAppProcessInfo.IMPORTANCE_FOREGROUND;
+    }
+
+    public static void beginSection(@NonNull String sectionName) {
+        Trace.beginSection(sectionName);
+    }
+
+    public static void endSection() {
+        Trace.endSection();
+    }
+
+    /**
+     * Record the startup time when activity draws its first frame, only for the first activity
+     * of a process started to show it
+     */
+    public static void recordFirstFrame(@NonNull final Activity activity) {
+        if(firstFrameRecorded || startTime == 0)
+            return;
+        firstFrameRecorded = true;
+
+        if(!startedForActivity) {
+            Log.d(TAG, "Process was not started for an activity, startup time not recorded");
+            return;
+        }
+
+        final View decorView = activity.getWindow().getDecorView();
+        decorView.getViewTreeObserver().addOnPreDrawListener(new ViewTreeObserver.OnPreDrawListener() {
+            @Override
+            public boolean onPreDraw() {
+                decorView.getViewTreeObserver().removeOnPreDrawListener(this);
+                // Runs after the frame is drawn
+                decorView.post(() -> {
+                    final long startupTime = SystemClock.uptimeMillis() - startTime;
+                    Log.i(TAG, "Startup took " + startupTime + " ms");
+                    PreferenceManager.getDefaultSharedPreferences(activity).edit()
+                            .putLong(Preferences.SYS_LAST_STARTUP_TIME.getKey(), startupTime)
+                            .apply();
+                    activity.reportFullyDrawn();
+                });
+                return true;
+            }
+        });
+    }
+}
@@ -23,7 +23,6 @@ package email.schaal.ocreader.util;
 import android.content.Context;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
-import android.text.Html;
 import android.text.format.DateUtils;
 
 import java.util.Date;
@@ -67,8 +66,7 @@ public class StringUtils {
 
     @NonNull
     public static String cleanString(@NonNull String source) {
-        //noinspection deprecation
-        return Html.fromHtml(source).toString();
+        return HtmlDecoder.decode(source);
     }
 
     @Nullable
@@ -0,0 +1,146 @@
+/*
+ * Copyright (C) 2015 Daniel Schaal <daniel@schaal.email>
+ *
+ * This file is part of OCReader.
+ *
+ * OCReader is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * OCReader is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with OCReader.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package email.schaal.ocreader.util;
+
+import android.app.job.JobInfo;
+import android.app.job.JobScheduler;
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import androidx.annotation.NonNull;
+
+import java.util.concurrent.TimeUnit;
+
+import email.schaal.ocreader.Preferences;
+import email.schaal.ocreader.service.SyncJobService;
+
+/**
+ * Schedules the background jobs run by {@link SyncJobService}: uploading changed items and the
+ * periodic full sync.
+ *
+ * Jobs are only scheduled if they are not pending already, so repeated changes are uploaded
+ * together and the system can batch the network access of both jobs with other apps.
+ */
+public class SyncScheduler {
+    // Wait for more changes before uploading
+    private static final long CHANGES_DELAY = TimeUnit.MINUTES.toMillis(5);
+
+    private static final long SYNC_INTERVAL = TimeUnit.HOURS.toMillis(3);
+
+    private static final long BACKOFF = TimeUnit.SECONDS.toMillis(30);
+
+    private static Context applicationContext;
+    private static SyncScheduler instance;
+
+    private final JobScheduler jobScheduler;
+    private final ComponentName jobService;
+
+    private boolean changesScheduled = false;
+
+    private SyncScheduler(Context context) {
+        this.jobScheduler = (JobScheduler) context.getSystemService(Context.JOB_SCHEDULER_SERVICE);
+        this.jobService = new ComponentName(context, SyncJobService.class);
+    }
+
+    /**
+     * Remember the application context, the SyncScheduler is created on first use
+     */
+    public static void init(Context context) {
+        applicationContext = context.getApplicationContext();
+    }
+
+    public static synchronized SyncScheduler getInstance() {
+        if(instance == null) {
+            if(applicationContext == null)
+                throw new IllegalStateException("Initialize first");
+            instance = new SyncScheduler(applicationContext);
+        }
+        return instance;
+    }
+
+    /**
+     * Upload changed items in a few minutes, when any network is available
+     */
+    public synchronized void scheduleChanges() {
+        if(changesScheduled)
+            return;
+
+        // Scheduling again would postpone or stop the pending job
+        if(!isScheduled(SyncJobService.JOB_ID_CHANGES)) {
+            jobScheduler.schedule(new JobInfo.Builder(SyncJobService.JOB_ID_CHANGES, jobService)
+                    .setRequiredNetworkType(JobInfo.NETWORK_TYPE_ANY)
+                    .setMinimumLatency(CHANGES_DELAY)
+                    .setBackoffCriteria(BACKOFF, JobInfo.BACKOFF_POLICY_EXPONENTIAL)
+                    .setPersisted(true)
+                    .build());
+        }
+        changesScheduled = true;
+    }
+
+    /**
+     * Cancel the pending upload, e.g. because the changes are uploaded by a sync
+     */
+    public synchronized void cancelChanges() {
+        if(changesScheduled) {
+            jobScheduler.cancel(SyncJobService.JOB_ID_CHANGES);
+            changesScheduled = false;
+        }
+    }
+
+    /**
+     * The pending upload started, it must not be cancelled anymore
+     */
+    public synchronized void onChangesStarted() {
+        changesScheduled = false;
+    }
+
+    /**
+     * Schedule or cancel the periodic full sync, depending on {@link Preferences#BACKGROUND_SYNC}.
+     * The sync runs while the device is idle and charging on an unmetered network. Idle jobs
+     * can't have a backoff policy, a failed sync is retried in the next idle window.
+     */
+    public synchronized void updatePeriodicSync(@NonNull SharedPreferences preferences) {
+        final boolean scheduled = isScheduled(SyncJobService.JOB_ID_FULL_SYNC);
+
+        if(Preferences.BACKGROUND_SYNC.getBoolean(preferences) && Preferences.hasCredentials(preferences)) {
+            if(!scheduled) {
+                jobScheduler.schedule(new JobInfo.Builder(SyncJobService.JOB_ID_FULL_SYNC, jobService)
+                        .setRequiredNetworkType(JobInfo.NETWORK_TYPE_UNMETERED)
+                        .setRequiresCharging(true)
+                        .setRequiresDeviceIdle(true)
+                        .setPeriodic(SYNC_INTERVAL)
+                        .setPersisted(true)
+                        .build());
+            }
+        } else if(scheduled) {
+            jobScheduler.cancel(SyncJobService.JOB_ID_FULL_SYNC);
+        }
+    }
+
+    private boolean isScheduled(int jobId) {
+        for(JobInfo jobInfo: jobScheduler.getAllPendingJobs()) {
+            if(jobInfo.getId() == jobId)
+                return true;
+        }
+        return false;
+    }
+}
@@ -116,6 +116,8 @@ public class ArticleWebView extends NestedScrollWebView {
         webSettings.setDisplayZoomControls(false);
 
         addJavascriptInterface(new JsCallback(), "JsCallback");
+
+        setWebViewClient(new ArticleWebViewClient(context));
     }
 
     public void setItem(Item item) {
@@ -255,6 +257,12 @@ public class ArticleWebView extends NestedScrollWebView {
                 iframe.remove();
             }
         }
+
+        // The header image was already extracted, all remaining images can be loaded when
+        // they are scrolled into view
+        for(Element img: document.getElementsByTag("img")) {
+            img.attr("loading", "lazy");
+        }
     }
 
     @Override
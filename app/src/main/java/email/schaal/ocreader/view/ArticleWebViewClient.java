@@ -0,0 +1,123 @@
+package email.schaal.ocreader.view;
+
+import android.content.ActivityNotFoundException;
+import android.content.Context;
+import android.content.Intent;
+import android.graphics.Bitmap;
+import android.net.Uri;
+import android.util.Log;
+import android.webkit.WebResourceRequest;
+import android.webkit.WebResourceResponse;
+import android.webkit.WebView;
+import android.webkit.WebViewClient;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.bumptech.glide.load.resource.bitmap.DownsampleStrategy;
+import com.bumptech.glide.request.FutureTarget;
+import com.bumptech.glide.request.target.Target;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+
+import email.schaal.ocreader.util.GlideApp;
+
+/**
+ * WebViewClient used by {@link ArticleWebView}.
+ *
+ * Images are decoded through Glide and downsampled to the width of the screen before they are
+ * handed to the WebView, so the WebView never has to decode full-resolution bitmaps. Links are
+ * opened in an external application.
+ */
+class ArticleWebViewClient extends WebViewClient {
+    private final static String TAG = ArticleWebViewClient.class.getName();
+
+    private final static int JPEG_QUALITY = 90;
+
+    private final Context context;
+    private final int maxImageWidth;
+
+    ArticleWebViewClient(@NonNull Context context) {
+        this.context = context.getApplicationContext();
+        this.maxImageWidth = context.getResources().getDisplayMetrics().widthPixels;
+    }
+
+    @SuppressWarnings("deprecation")
+    @Override
+    public boolean shouldOverrideUrlLoading(WebView view, String url) {
+        return openExternal(view.getContext(), Uri.parse(url));
+    }
+
+    @Override
+    public boolean shouldOverrideUrlLoading(WebView view, WebResourceRequest request) {
+        return openExternal(view.getContext(), request.getUrl());
+    }
+
+    private boolean openExternal(Context context, Uri uri) {
+        try {
+            context.startActivity(new Intent(Intent.ACTION_VIEW, uri));
+        } catch (ActivityNotFoundException e) {
+            Log.w(TAG, "No activity found to open " + uri, e);
+        }
+        return true;
+    }
+
+    @Nullable
+    @Override
+    public WebResourceResponse shouldInterceptRequest(WebView view, WebResourceRequest request) {
+        if(!isDownscalableImage(request))
+            return null;
+
+        final String url = request.getUrl().toString();
+
+        final FutureTarget<Bitmap> futureTarget = GlideApp.with(context)
+                .asBitmap()
+                .load(url)
+                .downsample(DownsampleStrategy.CENTER_INSIDE)
+                .override(maxImageWidth, Target.SIZE_ORIGINAL)
+                .submit();
+
+        try {
+            final Bitmap bitmap = futureTarget.get();
+
+            final boolean hasAlpha = bitmap.hasAlpha();
+            final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            bitmap.compress(hasAlpha ? Bitmap.CompressFormat.PNG : Bitmap.CompressFormat.JPEG, JPEG_QUALITY, outputStream);
+
+            return new WebResourceResponse(hasAlpha ? "image/png" : "image/jpeg", null, new ByteArrayInputStream(outputStream.toByteArray()));
+        } catch (InterruptedException | ExecutionException e) {
+            // Let the WebView try to load the image by itself
+            Log.w(TAG, "Failed to load downscaled image: " + url, e);
+            return null;
+        } finally {
+            GlideApp.with(context).clear(futureTarget);
+        }
+    }
+
+    /**
+     * Only intercept static images, animated gifs and svgs are passed through to the WebView.
+     */
+    private boolean isDownscalableImage(WebResourceRequest request) {
+        if(!"GET".equals(request.getMethod()) || request.isForMainFrame())
+            return false;
+
+        final String scheme = request.getUrl().getScheme();
+        if(!"http".equals(scheme) && !"https".equals(scheme))
+            return false;
+
+        final String accept = request.getRequestHeaders().get("Accept");
+        if(accept == null || !accept.startsWith("image/"))
+            return false;
+
+        final String path = request.getUrl().getPath();
+        if(path != null) {
+            final String lowerPath = path.toLowerCase(Locale.US);
+            return !lowerPath.endsWith(".gif") && !lowerPath.endsWith(".svg");
+        }
+
+        return true;
+    }
+}
@@ -61,6 +61,7 @@ public class ErrorAdapter extends LoadMoreAdapter {
         return super.getItemViewType(position - headerCount());
     }
 
+    @Override
     protected int headerCount() {
         return hasError() ? 1 : 0;
     }
@@ -10,7 +10,6 @@ import email.schaal.ocreader.R;
 import email.schaal.ocreader.database.model.Feed;
 import email.schaal.ocreader.databinding.ListFeedBinding;
 import email.schaal.ocreader.util.FaviconLoader;
-import email.schaal.ocreader.util.FeedColors;
 import io.realm.Realm;
 import io.realm.RealmRecyclerViewAdapter;
 
@@ -61,7 +60,7 @@ public class FeedsAdapter extends RealmRecyclerViewAdapter<Feed, RecyclerView.Vi
     /**
      * ViewHolder displaying a Feed
      */
-    private static class FeedViewHolder extends RecyclerView.ViewHolder implements FaviconLoader.FeedColorsListener {
+    private static class FeedViewHolder extends RecyclerView.ViewHolder {
         private final ListFeedBinding binding;
         private final FeedManageListener listener;
 
@@ -87,17 +86,7 @@ public class FeedsAdapter extends RealmRecyclerViewAdapter<Feed, RecyclerView.Vi
             }
 
             itemView.setOnClickListener(v -> listener.showFeedDialog(feed));
-            new FaviconLoader.Builder(binding.imageviewFavicon).build().load(itemView.getContext(), feed, this);
-        }
-
-        @Override
-        public void onGenerated(@NonNull FeedColors feedColors) {
-
-        }
-
-        @Override
-        public void onStart() {
-
+            new FaviconLoader.Builder(binding.imageviewFavicon).build().load(itemView.getContext(), feed);
         }
      }
 }
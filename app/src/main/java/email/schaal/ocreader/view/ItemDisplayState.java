@@ -0,0 +1,102 @@
+package email.schaal.ocreader.view;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.content.res.TypedArray;
+import android.text.format.DateUtils;
+import android.util.SparseArray;
+
+import androidx.annotation.ColorInt;
+import androidx.annotation.DrawableRes;
+import androidx.annotation.NonNull;
+
+import java.util.Date;
+
+import email.schaal.ocreader.Preferences;
+import email.schaal.ocreader.R;
+import email.schaal.ocreader.database.model.Item;
+
+/**
+ * Display state shared by all ItemViewHolders of an adapter, resolved once instead of on every
+ * bind: theme attributes, the sort field, the relative time strings and the precomputed titles.
+ */
+class ItemDisplayState {
+    private final Context context;
+
+    @ColorInt final int defaultFeedTextColor;
+    @DrawableRes final int selectedBackground = R.drawable.item_background;
+    @DrawableRes final int unselectedBackground;
+
+    final PrecomputedTextCache titleCache = new PrecomputedTextCache(256);
+    final PrecomputedTextCache feedNameCache = new PrecomputedTextCache(64);
+
+    private boolean sortByUpdatedAt;
+
+    private final String now;
+    private final String[] minutes = new String[60];
+    private final String[] hours = new String[24];
+    private final SparseArray<String> days = new SparseArray<>();
+
+    ItemDisplayState(@NonNull Context context, @NonNull SharedPreferences preferences) {
+        this.context = context;
+
+        final TypedArray typedArray = context.obtainStyledAttributes(new int[] { android.R.attr.textColorSecondary, R.attr.selectableItemBackground });
+        try {
+            defaultFeedTextColor = typedArray.getColor(0, 0);
+            unselectedBackground = typedArray.getResourceId(1, 0);
+        } finally {
+            typedArray.recycle();
+        }
+
+        now = context.getString(R.string.now);
+
+        update(preferences);
+    }
+
+    /**
+     * Read the preferences again, call when the sort order might have changed
+     */
+    void update(@NonNull SharedPreferences preferences) {
+        sortByUpdatedAt = Preferences.SORT_FIELD.getString(preferences).equals(Item.UPDATED_AT);
+    }
+
+    /**
+     * @return the date the items are sorted by
+     */
+    Date getDate(@NonNull Item item) {
+        return sortByUpdatedAt ? item.getUpdatedAt() : item.getPubDate();
+    }
+
+    /**
+     * Same as {@link email.schaal.ocreader.util.StringUtils#getTimeSpanString(Context, Date)},
+     * but formatted strings are reused.
+     */
+    @NonNull
+    String getTimeSpanString(@NonNull Date startDate, long currentTimeMillis) {
+        final long timeDiff = currentTimeMillis - startDate.getTime();
+
+        if(timeDiff <= 0)
+            return now;
+        else if(timeDiff <= 59 * DateUtils.MINUTE_IN_MILLIS)
+            return getCached(minutes, R.string.minutes, (int) (timeDiff / DateUtils.MINUTE_IN_MILLIS));
+        else if(timeDiff <= 23 * DateUtils.HOUR_IN_MILLIS)
+            return getCached(hours, R.string.hours, (int) (timeDiff / DateUtils.HOUR_IN_MILLIS));
+
+        final int dayCount = (int) (timeDiff / DateUtils.DAY_IN_MILLIS);
+        String timeSpanString = days.get(dayCount);
+        if(timeSpanString == null) {
+            timeSpanString = context.getString(R.string.days, (long) dayCount);
+            days.put(dayCount, timeSpanString);
+        }
+        return timeSpanString;
+    }
+
+    private String getCached(String[] cache, int resId, int value) {
+        String timeSpanString = cache[value];
+        if(timeSpanString == null) {
+            timeSpanString = context.getString(resId, (long) value);
+            cache[value] = timeSpanString;
+        }
+        return timeSpanString;
+    }
+}
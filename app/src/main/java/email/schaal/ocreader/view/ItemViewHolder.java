@@ -20,51 +20,44 @@
 
 package email.schaal.ocreader.view;
 
-import android.content.SharedPreferences;
-import android.content.res.TypedArray;
-import android.preference.PreferenceManager;
-import androidx.annotation.ColorInt;
-import androidx.annotation.NonNull;
+import androidx.annotation.DrawableRes;
 import androidx.recyclerview.widget.RecyclerView;
 import android.util.Log;
 import android.view.View;
 
-import java.util.Date;
-
-import email.schaal.ocreader.Preferences;
-import email.schaal.ocreader.R;
 import email.schaal.ocreader.database.model.Feed;
 import email.schaal.ocreader.database.model.Item;
 import email.schaal.ocreader.databinding.ListItemBinding;
 import email.schaal.ocreader.util.FaviconLoader;
 import email.schaal.ocreader.util.FeedColors;
-import email.schaal.ocreader.util.StringUtils;
 
 /**
  * RecyclerView.ViewHolder to display a feed Item.
  */
-public class ItemViewHolder extends RecyclerView.ViewHolder implements FaviconLoader.FeedColorsListener {
+public class ItemViewHolder extends RecyclerView.ViewHolder {
     private static final String TAG = ItemViewHolder.class.getName();
 
-    private final OnClickListener clickListener;
-
-    @ColorInt private final int defaultFeedTextColor;
+    private final ItemDisplayState displayState;
 
     private final ListItemBinding binding;
 
+    private final FaviconLoader faviconLoader;
+
     private final View[] alphaViews;
 
-    public ItemViewHolder(final ListItemBinding binding, final OnClickListener clickListener) {
+    private Item item;
+
+    @DrawableRes private int backgroundResource;
+
+    ItemViewHolder(final ListItemBinding binding, final ItemsAdapter adapter, final OnClickListener clickListener, final ItemDisplayState displayState) {
         super(binding.getRoot());
-        this.clickListener = clickListener;
         this.binding = binding;
+        this.displayState = displayState;
 
-        TypedArray typedArray = itemView.getContext().obtainStyledAttributes(new int[] { android.R.attr.textColorSecondary });
-        try {
-            defaultFeedTextColor = typedArray.getColor(0, 0);
-        } finally {
-            typedArray.recycle();
-        }
+        faviconLoader = new FaviconLoader.Builder(binding.imageviewFavicon).build();
+
+        displayState.titleCache.setParams(binding.textViewTitle);
+        displayState.feedNameCache.setParams(binding.textViewFeedTitle);
 
         alphaViews = new View[] {
                 binding.textViewTitle,
@@ -74,47 +67,45 @@ public class ItemViewHolder extends RecyclerView.ViewHolder implements FaviconLo
                 binding.imageviewStar,
                 binding.play
         };
+
+        // Listeners are set once, they act on the currently bound item. Rows move without being
+        // bound again, so the position is looked up when clicked.
+        itemView.setOnClickListener(view -> {
+            final int position = getAdapterPosition();
+            if(position != RecyclerView.NO_POSITION)
+                clickListener.onItemClick(item, position - adapter.headerCount());
+        });
+
+        itemView.setOnLongClickListener(v -> {
+            final int position = getAdapterPosition();
+            if(position != RecyclerView.NO_POSITION)
+                clickListener.onItemLongClick(item, position - adapter.headerCount());
+            return true;
+        });
+
+        binding.play.setOnClickListener(view -> item.play(itemView.getContext()));
     }
 
-    public void bindItem(final Item item, final int position, boolean selected) {
-        binding.textViewTitle.setText(item.getTitle());
+    public void bindItem(final Item item, boolean selected) {
+        this.item = item;
+
+        displayState.titleCache.setText(binding.textViewTitle, item.getId(), item.getTitle());
 
         Feed feed = item.getFeed();
         if(feed != null) {
-            binding.textViewFeedTitle.setText(feed.getName());
+            displayState.feedNameCache.setText(binding.textViewFeedTitle, feed.getId(), feed.getName());
         } else {
             Log.w(TAG, "Feed == null");
             binding.textViewFeedTitle.setText("");
         }
 
-        SharedPreferences preferences = PreferenceManager.getDefaultSharedPreferences(binding.getRoot().getContext());
-
-        final Date date;
-        if(Preferences.SORT_FIELD.getString(preferences).equals(Item.UPDATED_AT))
-            date = item.getUpdatedAt();
-        else
-            date = item.getPubDate();
+        binding.textViewTime.setText(displayState.getTimeSpanString(displayState.getDate(item), System.currentTimeMillis()));
 
-        binding.textViewTime.setText(StringUtils.getTimeSpanString(itemView.getContext(), date));
+        binding.textViewFeedTitle.setTextColor(FaviconLoader.getColor(itemView.getContext(), feed, FeedColors.Type.TEXT, displayState.defaultFeedTextColor));
 
-        binding.textViewFeedTitle.setTextColor(defaultFeedTextColor);
+        faviconLoader.load(itemView.getContext(), feed);
 
-        new FaviconLoader.Builder(binding.imageviewFavicon).build().load(binding.imageviewFavicon.getContext(), feed, this);
-
-        itemView.setOnClickListener(view -> clickListener.onItemClick(item, position));
-
-        itemView.setOnLongClickListener(v -> {
-            clickListener.onItemLongClick(item, position);
-            return true;
-        });
-
-        if(item.getEnclosureLink() != null) {
-            binding.play.setVisibility(View.VISIBLE);
-            binding.play.setOnClickListener(view -> item.play(itemView.getContext()));
-        } else {
-            binding.play.setVisibility(View.GONE);
-            binding.play.setOnClickListener(null);
-        }
+        binding.play.setVisibility(item.getEnclosureLink() != null ? View.VISIBLE : View.GONE);
 
         setUnreadState(item.isUnread());
         setStarredState(item.isStarred());
@@ -122,15 +113,13 @@ public class ItemViewHolder extends RecyclerView.ViewHolder implements FaviconLo
     }
 
     private void setSelected(boolean selected) {
-        int backgroundResource = R.drawable.item_background;
-        if (!selected) {
-            int[] attrs = new int[]{R.attr.selectableItemBackground};
-            TypedArray typedArray = itemView.getContext().obtainStyledAttributes(attrs);
-            backgroundResource = typedArray.getResourceId(0, 0);
-            typedArray.recycle();
-        }
+        final int resource = selected ? displayState.selectedBackground : displayState.unselectedBackground;
 
-        itemView.setBackgroundResource(backgroundResource);
+        // setBackgroundResource inflates a new drawable, skip it if nothing changed
+        if(resource != backgroundResource) {
+            backgroundResource = resource;
+            itemView.setBackgroundResource(resource);
+        }
     }
 
     // Workaround for bug pre sdk 19, where the padding is lost after updating the background resource
@@ -152,16 +141,6 @@ public class ItemViewHolder extends RecyclerView.ViewHolder implements FaviconLo
         binding.imageviewStar.setVisibility(starred ? View.VISIBLE : View.GONE);
     }
 
-    @Override
-    public void onGenerated(@NonNull FeedColors feedColors) {
-        binding.textViewFeedTitle.setTextColor(feedColors.getColor(FeedColors.Type.TEXT, defaultFeedTextColor));
-    }
-
-    @Override
-    public void onStart() {
-
-    }
-
     public interface OnClickListener {
         void onItemClick(Item item, int position);
         void onItemLongClick(Item item, int position);
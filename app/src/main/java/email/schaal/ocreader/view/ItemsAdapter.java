@@ -26,39 +26,85 @@ import android.os.Bundle;
 import android.preference.PreferenceManager;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 
-import java.util.ArrayList;
-import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.Set;
 
 import email.schaal.ocreader.Preferences;
 import email.schaal.ocreader.R;
+import email.schaal.ocreader.database.model.Feed;
 import email.schaal.ocreader.database.model.Item;
 import email.schaal.ocreader.database.model.TemporaryFeed;
 import email.schaal.ocreader.databinding.ListItemBinding;
+import email.schaal.ocreader.util.LongLinkedHashSet;
 import email.schaal.ocreader.view.drawer.DrawerManager;
+import io.realm.OrderedCollectionChangeSet;
 import io.realm.OrderedRealmCollection;
+import io.realm.OrderedRealmCollectionChangeListener;
 import io.realm.Realm;
+import io.realm.RealmResults;
+import io.realm.Sort;
 
 /**
  * Adapter for the RecyclerView to manage Items belonging to a certain TreeItem.
  */
 public class ItemsAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
     private final SharedPreferences preferences;
-    private OrderedRealmCollection<Item> items;
+    private RealmResults<Item> items;
+    private String sortField;
+    private Sort order;
+
+    /**
+     * Row count the RecyclerView knows about, to detect changes the change sets don't cover
+     */
+    private int displayedItemCount;
     final DrawerManager.State state;
     private final Realm realm;
     private final ItemViewHolder.OnClickListener clickListener;
+    private final ItemDisplayState displayState;
 
     /**
-     * Selected item ids, LinkedHashSet to preserve insertion order for getFirstSelectedItem()
+     * Selected item ids, insertion ordered for getFirstSelectedItemId(). Ids stay valid when the
+     * list changes, unlike positions.
      */
-    private final Set<Integer> selections = new LinkedHashSet<>();
+    private final LongLinkedHashSet selections = new LongLinkedHashSet();
+
+    /**
+     * Number of rows ahead of the scroll direction whose titles are precomputed
+     */
+    private static final int PREFETCH_DISTANCE = 15;
+
+    private int lastPrefetchPosition = RecyclerView.NO_POSITION;
+
+    private final RecyclerView.OnScrollListener prefetchScrollListener = new RecyclerView.OnScrollListener() {
+        @Override
+        public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+            if(dy == 0 || !(recyclerView.getLayoutManager() instanceof LinearLayoutManager))
+                return;
+
+            final LinearLayoutManager layoutManager = (LinearLayoutManager) recyclerView.getLayoutManager();
+
+            // only prefetch when a new row appears at the edge we are scrolling towards
+            final int visiblePosition = dy > 0 ? layoutManager.findLastVisibleItemPosition() : layoutManager.findFirstVisibleItemPosition();
+            if(visiblePosition == RecyclerView.NO_POSITION)
+                return;
+
+            final int edgePosition = visiblePosition - headerCount();
+            if(edgePosition == lastPrefetchPosition)
+                return;
+
+            lastPrefetchPosition = edgePosition;
+
+            if(dy > 0)
+                prefetch(edgePosition + 1, edgePosition + 1 + PREFETCH_DISTANCE);
+            else
+                prefetch(edgePosition - PREFETCH_DISTANCE, edgePosition);
+        }
+    };
 
     ItemsAdapter(Context context, Realm realm, DrawerManager.State state, ItemViewHolder.OnClickListener clickListener) {
         this.realm = realm;
@@ -66,6 +112,7 @@ public class ItemsAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder>
         this.clickListener = clickListener;
 
         this.preferences = PreferenceManager.getDefaultSharedPreferences(context);
+        this.displayState = new ItemDisplayState(context, preferences);
 
         setHasStableIds(true);
     }
@@ -76,7 +123,17 @@ public class ItemsAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder>
 
         final TemporaryFeed temporaryFeed = TemporaryFeed.getListTemporaryFeed(realm);
 
-        if (updateTemporaryFeed || temporaryFeed.getTreeItemId() != state.getTreeItem().getId()) {
+        final boolean treeItemChanged = temporaryFeed.getTreeItemId() != state.getTreeItem().getId();
+        final String sortField = Preferences.SORT_FIELD.getString(preferences);
+        final Sort order = Preferences.ORDER.getOrder(preferences);
+
+        // Showing a different list, replace the items instead of animating the changes
+        final boolean reset = items == null || treeItemChanged || !sortField.equals(this.sortField) || order != this.order;
+
+        if(reset && items != null)
+            items.removeChangeListener(itemsChangeListener);
+
+        if (updateTemporaryFeed || treeItemChanged) {
             realm.executeTransaction(realm -> {
                 List<Item> tempItems = state.getTreeItem().getItems(realm, isOnlyUnread());
                 temporaryFeed.setTreeItemId(state.getTreeItem().getId());
@@ -88,9 +145,95 @@ public class ItemsAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder>
             });
         }
 
-        items = temporaryFeed.getItems().sort(Preferences.SORT_FIELD.getString(preferences), Preferences.ORDER.getOrder(preferences));
+        if(reset) {
+            this.sortField = sortField;
+            this.order = order;
+
+            displayState.update(preferences);
+            items = temporaryFeed.getItems().sort(sortField, order);
+            items.addChangeListener(itemsChangeListener);
 
-        notifyDataSetChanged();
+            notifyDataSetChanged();
+            displayedItemCount = getItemCount();
+
+            lastPrefetchPosition = RecyclerView.NO_POSITION;
+            prefetch(0, PREFETCH_DISTANCE);
+        }
+        // otherwise itemsChangeListener delivers the changes
+    }
+
+    /**
+     * Notify only the rows that changed. Deletions use the old indices, so they are notified in
+     * reverse order first, insertions and changes use the new indices.
+     */
+    private final OrderedRealmCollectionChangeListener<RealmResults<Item>> itemsChangeListener = (results, changeSet) -> {
+        if(changeSet.getState() == OrderedCollectionChangeSet.State.INITIAL)
+            return;
+
+        final OrderedCollectionChangeSet.Range[] deletions = changeSet.getDeletionRanges();
+        final OrderedCollectionChangeSet.Range[] insertions = changeSet.getInsertionRanges();
+
+        int expectedItemCount = displayedItemCount;
+        for(OrderedCollectionChangeSet.Range range: deletions)
+            expectedItemCount -= range.length;
+        for(OrderedCollectionChangeSet.Range range: insertions)
+            expectedItemCount += range.length;
+
+        final int itemCount = getItemCount();
+
+        // The empty view, header or footer changed, fall back to a full update
+        if(changeSet.getState() == OrderedCollectionChangeSet.State.ERROR || itemCount != expectedItemCount) {
+            notifyDataSetChanged();
+        } else {
+            final int offset = headerCount();
+
+            for (int i = deletions.length - 1; i >= 0; i--)
+                notifyItemRangeRemoved(offset + deletions[i].startIndex, deletions[i].length);
+
+            for (OrderedCollectionChangeSet.Range range : insertions)
+                notifyItemRangeInserted(offset + range.startIndex, range.length);
+
+            for (OrderedCollectionChangeSet.Range range : changeSet.getChangeRanges())
+                notifyItemRangeChanged(offset + range.startIndex, range.length);
+        }
+
+        displayedItemCount = itemCount;
+    };
+
+    /**
+     * @return number of rows shown before the items
+     */
+    protected int headerCount() {
+        return 0;
+    }
+
+    /**
+     * Precompute title and feed name layouts of the items in [start, end) in the background
+     */
+    private void prefetch(int start, int end) {
+        if(!hasItems())
+            return;
+
+        for(int position = Math.max(0, start), count = Math.min(end, items.size()); position < count; position++) {
+            final Item item = items.get(position);
+            displayState.titleCache.prefetch(item.getId(), item.getTitle());
+
+            final Feed feed = item.getFeed();
+            if(feed != null)
+                displayState.feedNameCache.prefetch(feed.getId(), feed.getName());
+        }
+    }
+
+    @Override
+    public void onAttachedToRecyclerView(@NonNull RecyclerView recyclerView) {
+        super.onAttachedToRecyclerView(recyclerView);
+        recyclerView.addOnScrollListener(prefetchScrollListener);
+    }
+
+    @Override
+    public void onDetachedFromRecyclerView(@NonNull RecyclerView recyclerView) {
+        recyclerView.removeOnScrollListener(prefetchScrollListener);
+        super.onDetachedFromRecyclerView(recyclerView);
     }
 
     @Override
@@ -112,7 +255,7 @@ public class ItemsAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder>
         switch (viewType) {
             case R.id.viewtype_item: {
                 ListItemBinding binding = ListItemBinding.inflate(LayoutInflater.from(parent.getContext()), parent, false);
-                holder = new ItemViewHolder(binding, clickListener);
+                holder = new ItemViewHolder(binding, this, clickListener, displayState);
             }
             break;
             case R.id.viewtype_empty: {
@@ -127,7 +270,8 @@ public class ItemsAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder>
     @Override
     public void onBindViewHolder(@NonNull RecyclerView.ViewHolder holder, int position) {
         if(holder instanceof ItemViewHolder) {
-            ((ItemViewHolder) holder).bindItem(items.get(position), position, selections.contains(position));
+            final Item item = items.get(position);
+            ((ItemViewHolder) holder).bindItem(item, selections.contains(item.getId()));
         }
     }
 
@@ -151,41 +295,43 @@ public class ItemsAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder>
             return -1;
     }
 
-    public void select(int position) {
-        selections.add(position);
-        notifyItemChanged(position);
-    }
-
-    public void deselect(int position) {
-        selections.remove(position);
-        notifyItemChanged(position);
+    /**
+     * Select or deselect the item at position, the selection is stored by id so it stays correct
+     * while rows move
+     */
+    public void toggleSelection(long itemId, int position) {
+        selections.toggle(itemId);
+        notifyItemChanged(headerCount() + position);
     }
 
-    public void toggleSelection(int position) {
-        if(selections.contains(position))
-            selections.remove(position);
-        else
-            selections.add(position);
-
-        notifyItemChanged(position);
+    /**
+     * Select all items in the list. Only the ids are read, no Item array is built.
+     */
+    public void selectAll() {
+        final int itemCount = getActualItemCount();
+        for(int i = 0; i < itemCount; i++)
+            selections.add(items.get(i).getId());
+        notifyItemRangeChanged(headerCount(), itemCount);
     }
 
     public void clearSelection() {
+        if(selections.isEmpty())
+            return;
+
         selections.clear();
-        notifyDataSetChanged();
+        // Only the visible rows are bound again
+        notifyItemRangeChanged(headerCount(), getActualItemCount());
     }
 
     public int getSelectedItemsCount() {
         return selections.size();
     }
 
-    public Item[] getSelectedItems() {
-        Item[] itemsArray = new Item[selections.size()];
-        int i = 0;
-        for(Integer position: selections) {
-            itemsArray[i++] = items.get(position);
-        }
-        return itemsArray;
+    /**
+     * @return ids of the selected items in selection order
+     */
+    public long[] getSelectedItemIds() {
+        return selections.toArray();
     }
 
     private boolean isOnlyUnread() {
@@ -196,12 +342,19 @@ public class ItemsAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder>
         return items;
     }
 
+    /**
+     * @return id of the item selected first, or -1 if nothing is selected
+     */
+    public long getFirstSelectedItemId() {
+        return selections.isEmpty() ? -1 : selections.first();
+    }
+
     @Nullable
     public Item getFirstSelectedItem() {
         if(selections.isEmpty())
             return null;
 
-        return getItems().get(selections.iterator().next());
+        return realm.where(Item.class).equalTo(Item.ID, selections.first()).findFirst();
     }
 
     private class EmptyStateViewHolder extends RecyclerView.ViewHolder {
@@ -211,13 +364,14 @@ public class ItemsAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder>
     }
 
     public void onSaveInstanceState(Bundle bundle) {
-        bundle.putIntegerArrayList("adapter_selections", new ArrayList<>(selections));
+        bundle.putLongArray("adapter_selections", selections.toArray());
     }
 
     public void onRestoreInstanceState(Bundle bundle) {
-        final ArrayList<Integer> savedSelections = bundle.getIntegerArrayList("adapter_selections");
+        final long[] savedSelections = bundle.getLongArray("adapter_selections");
         if(savedSelections != null) {
-            selections.addAll(savedSelections);
+            for(long id: savedSelections)
+                selections.add(id);
         }
     }
 }
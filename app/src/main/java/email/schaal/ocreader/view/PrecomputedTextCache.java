@@ -0,0 +1,104 @@
+package email.schaal.ocreader.view;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.LruCache;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.core.text.PrecomputedTextCompat;
+import androidx.core.widget.TextViewCompat;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+/**
+ * Bounded cache of texts measured and laid out off the main thread, keyed by the id of the
+ * object the text belongs to. Entries are only used if text and text metrics still match.
+ *
+ * Must only be used from the main thread, only the measuring happens in the background.
+ */
+class PrecomputedTextCache {
+    // One thread for all caches, prefetching is best effort
+    private final static Executor executor = Executors.newSingleThreadExecutor();
+
+    private final Handler handler = new Handler(Looper.getMainLooper());
+
+    private final LruCache<Long, Entry> cache;
+    private final Set<Long> pending = new HashSet<>();
+
+    @Nullable
+    private PrecomputedTextCompat.Params params;
+
+    PrecomputedTextCache(int maxSize) {
+        cache = new LruCache<>(maxSize);
+    }
+
+    /**
+     * Set the text metrics of the TextViews the texts are shown in, cached texts with different
+     * metrics are discarded.
+     */
+    void setParams(@NonNull TextView textView) {
+        final PrecomputedTextCompat.Params newParams = TextViewCompat.getTextMetricsParams(textView);
+        if(!newParams.equals(params)) {
+            params = newParams;
+            cache.evictAll();
+        }
+    }
+
+    /**
+     * Show text in textView, using the precomputed text if available
+     */
+    void setText(@NonNull TextView textView, long id, @Nullable String text) {
+        final Entry entry = text != null ? cache.get(id) : null;
+
+        if(entry != null && entry.params == params && entry.text.equals(text)) {
+            try {
+                TextViewCompat.setPrecomputedText(textView, entry.precomputedText);
+                return;
+            } catch (IllegalArgumentException e) {
+                // textView uses different metrics, fall through
+            }
+        }
+
+        textView.setText(text);
+    }
+
+    /**
+     * Measure text in the background, unless it is already cached or being measured
+     */
+    void prefetch(final long id, @Nullable final String text) {
+        final PrecomputedTextCompat.Params currentParams = params;
+
+        if(text == null || currentParams == null || pending.contains(id))
+            return;
+
+        final Entry entry = cache.get(id);
+        if(entry != null && entry.params == currentParams && entry.text.equals(text))
+            return;
+
+        pending.add(id);
+        executor.execute(() -> {
+            final PrecomputedTextCompat precomputedText = PrecomputedTextCompat.create(text, currentParams);
+            handler.post(() -> {
+                pending.remove(id);
+                cache.put(id, new Entry(text, currentParams, precomputedText));
+            });
+        });
+    }
+
+    private static class Entry {
+        private final String text;
+        private final PrecomputedTextCompat.Params params;
+        private final PrecomputedTextCompat precomputedText;
+
+        private Entry(String text, PrecomputedTextCompat.Params params, PrecomputedTextCompat precomputedText) {
+            this.text = text;
+            this.params = params;
+            this.precomputedText = precomputedText;
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package email.schaal.ocreader.view;
+
+import android.app.Activity;
+import android.app.AlertDialog;
+import android.app.Dialog;
+import android.app.DialogFragment;
+import android.content.Context;
+import android.os.Bundle;
+import android.text.TextUtils;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import email.schaal.ocreader.R;
+import email.schaal.ocreader.database.model.SavedSearch;
+import email.schaal.ocreader.databinding.FragmentSavedSearchBinding;
+import email.schaal.ocreader.util.StringUtils;
+
+/**
+ * Display form to add or edit a SavedSearch
+ */
+public class SavedSearchDialogFragment extends DialogFragment {
+    private static final String ARG_ID = "id";
+    private static final String ARG_NEW = "new";
+    private static final String ARG_NAME = "name";
+    private static final String ARG_KEYWORDS = "keywords";
+    private static final String ARG_AUTHOR = "author";
+    private static final String ARG_MAX_AGE_DAYS = "max_age_days";
+    private static final String ARG_ENCLOSURE_REQUIRED = "enclosure_required";
+    private static final String ARG_FEED_IDS = "feed_ids";
+    private static final String ARG_LIMIT_TO_FEEDS = "limit_to_feeds";
+
+    private SavedSearchListener listener;
+
+    @Override
+    public void onAttach(Context context) {
+        super.onAttach(context);
+
+        try {
+            listener = (SavedSearchListener) context;
+        } catch(ClassCastException e) {
+            throw new ClassCastException(context.toString() + " must implement SavedSearchListener");
+        }
+    }
+
+    @Override
+    public Dialog onCreateDialog(Bundle savedInstanceState) {
+        final AlertDialog.Builder builder = new AlertDialog.Builder(getActivity());
+
+        final FragmentSavedSearchBinding binding = FragmentSavedSearchBinding.inflate(getActivity().getLayoutInflater());
+
+        final Bundle arguments = getArguments();
+        final long id = arguments.getLong(ARG_ID);
+        final boolean newSavedSearch = arguments.getBoolean(ARG_NEW);
+        final long[] feedIds = arguments.getLongArray(ARG_FEED_IDS);
+        final int maxAgeDays = arguments.getInt(ARG_MAX_AGE_DAYS);
+
+        builder.setTitle(newSavedSearch ? R.string.save_search : R.string.edit_saved_search);
+
+        binding.name.setText(arguments.getString(ARG_NAME));
+        binding.keywords.setText(arguments.getString(ARG_KEYWORDS));
+        binding.author.setText(arguments.getString(ARG_AUTHOR));
+        binding.maxAgeDays.setText(maxAgeDays > 0 ? String.valueOf(maxAgeDays) : null);
+        binding.enclosureRequired.setChecked(arguments.getBoolean(ARG_ENCLOSURE_REQUIRED));
+        binding.limitToFeeds.setChecked(arguments.getBoolean(ARG_LIMIT_TO_FEEDS));
+        binding.limitToFeeds.setEnabled(feedIds != null && feedIds.length > 0);
+
+        builder.setPositiveButton(newSavedSearch ? R.string.add : R.string.save, (dialogInterface, i) -> {
+            final String keywords = StringUtils.emptyToNull(binding.keywords.getText().toString().trim());
+            final String author = StringUtils.emptyToNull(binding.author.getText().toString().trim());
+
+            String name = binding.name.getText().toString().trim();
+            if(name.isEmpty())
+                name = keywords != null ? keywords : author != null ? author : getString(R.string.search_items);
+
+            int newMaxAgeDays = 0;
+            if(!TextUtils.isEmpty(binding.maxAgeDays.getText())) {
+                try {
+                    newMaxAgeDays = Integer.parseInt(binding.maxAgeDays.getText().toString());
+                } catch (NumberFormatException e) {
+                    // too large, keep any age
+                }
+            }
+
+            final long[] newFeedIds = binding.limitToFeeds.isChecked() && feedIds != null ? feedIds : new long[0];
+
+            if(listener != null)
+                listener.saveSavedSearch(new SavedSearch(id, name, keywords, author, newFeedIds, newMaxAgeDays, binding.enclosureRequired.isChecked()));
+        });
+
+        if(!newSavedSearch) {
+            builder.setNeutralButton(R.string.delete, (dialogInterface, i) -> {
+                if(listener != null)
+                    listener.deleteSavedSearch(id);
+            });
+        }
+
+        builder.setView(binding.getRoot());
+
+        return builder.create();
+    }
+
+    /**
+     * Show dialog to save a new search
+     * @param id id for the new SavedSearch, see {@link SavedSearch#nextId(io.realm.Realm)}
+     * @param keywords keywords of the current search, if any
+     * @param feedIds feeds of the current selection, offered as feed filter
+     */
+    public static void showNew(Activity activity, long id, @Nullable String keywords, @NonNull long[] feedIds) {
+        final Bundle bundle = new Bundle();
+
+        bundle.putLong(ARG_ID, id);
+        bundle.putBoolean(ARG_NEW, true);
+        bundle.putString(ARG_NAME, keywords);
+        bundle.putString(ARG_KEYWORDS, keywords);
+        bundle.putLongArray(ARG_FEED_IDS, feedIds);
+
+        show(activity, bundle);
+    }
+
+    /**
+     * Show dialog to edit or delete savedSearch
+     */
+    public static void showEdit(Activity activity, @NonNull SavedSearch savedSearch) {
+        final Bundle bundle = new Bundle();
+
+        final long[] feedIds = savedSearch.getFeedIds();
+
+        bundle.putLong(ARG_ID, savedSearch.getId());
+        bundle.putString(ARG_NAME, savedSearch.getName());
+        bundle.putString(ARG_KEYWORDS, savedSearch.getKeywords());
+        bundle.putString(ARG_AUTHOR, savedSearch.getAuthor());
+        bundle.putInt(ARG_MAX_AGE_DAYS, savedSearch.getMaxAgeDays());
+        bundle.putBoolean(ARG_ENCLOSURE_REQUIRED, savedSearch.isEnclosureRequired());
+        bundle.putLongArray(ARG_FEED_IDS, feedIds);
+        bundle.putBoolean(ARG_LIMIT_TO_FEEDS, feedIds.length > 0);
+
+        show(activity, bundle);
+    }
+
+    private static void show(Activity activity, Bundle bundle) {
+        final SavedSearchDialogFragment dialogFragment = new SavedSearchDialogFragment();
+        dialogFragment.setArguments(bundle);
+        dialogFragment.show(activity.getFragmentManager(), "savedsearch");
+    }
+}
@@ -0,0 +1,11 @@
+package email.schaal.ocreader.view;
+
+import email.schaal.ocreader.database.model.SavedSearch;
+
+/**
+ * Callbacks for saved search management
+ */
+public interface SavedSearchListener {
+    void saveSavedSearch(SavedSearch savedSearch);
+    void deleteSavedSearch(long id);
+}
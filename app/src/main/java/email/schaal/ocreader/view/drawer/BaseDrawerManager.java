@@ -20,6 +20,8 @@
 
 package email.schaal.ocreader.view.drawer;
 
+import android.util.LongSparseArray;
+
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
@@ -28,42 +30,183 @@ import com.mikepenz.materialdrawer.holder.StringHolder;
 import com.mikepenz.materialdrawer.model.interfaces.Badgeable;
 import com.mikepenz.materialdrawer.model.interfaces.IDrawerItem;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Set;
 
+import email.schaal.ocreader.database.model.Feed;
 import email.schaal.ocreader.database.model.TreeItem;
 import io.realm.Realm;
 
 /**
  * Base class for the DrawerAdapter used by the Drawers in {@link email.schaal.ocreader.ListActivity}
+ *
+ * Drawer items are reused between reloads, only added and removed items are inserted into or
+ * removed from the drawer and only items with a changed badge or selection are rebound.
  */
 abstract class BaseDrawerManager {
     private final Drawer drawer;
 
+    // Drawer items of the current and the previous reload, by TreeItem id
+    private LongSparseArray<TreeItemDrawerItem> feedDrawerItems = new LongSparseArray<>();
+    private LongSparseArray<TreeItemDrawerItem> folderDrawerItems = new LongSparseArray<>();
+    private LongSparseArray<TreeItemDrawerItem> previousFeedDrawerItems = new LongSparseArray<>();
+    private LongSparseArray<TreeItemDrawerItem> previousFolderDrawerItems = new LongSparseArray<>();
+
+    // Drawer items that have to be rebound because their badge or selection changed
+    private final Set<IDrawerItem> changedItems = Collections.newSetFromMap(new IdentityHashMap<>());
+
     BaseDrawerManager(Drawer drawer) {
         this.drawer = drawer;
     }
 
     final void reload(Realm realm, boolean showOnlyUnread) {
-        drawer.setItems(reloadDrawerItems(realm, showOnlyUnread));
+        LongSparseArray<TreeItemDrawerItem> swap = previousFeedDrawerItems;
+        previousFeedDrawerItems = feedDrawerItems;
+        feedDrawerItems = swap;
+
+        swap = previousFolderDrawerItems;
+        previousFolderDrawerItems = folderDrawerItems;
+        folderDrawerItems = swap;
+
+        try {
+            updateItems(reloadDrawerItems(realm, showOnlyUnread));
+        } finally {
+            previousFeedDrawerItems.clear();
+            previousFolderDrawerItems.clear();
+            changedItems.clear();
+        }
     }
 
+    /**
+     * Create the list of drawer items to show. Use {@link #getDrawerItem(TreeItem)},
+     * {@link #setBadge(IDrawerItem, int)} and {@link #setSelected(IDrawerItem, boolean)} to
+     * reuse the drawer items of the last reload.
+     */
     protected abstract List<IDrawerItem> reloadDrawerItems(Realm realm, boolean showOnlyUnread);
 
+    /**
+     * @return the drawer item of the last reload for item, or a new one if there is none or
+     * name or icon of item changed.
+     */
+    @NonNull
+    final TreeItemDrawerItem getDrawerItem(@NonNull TreeItem item) {
+        final boolean isFeed = item instanceof Feed;
+        final LongSparseArray<TreeItemDrawerItem> previousDrawerItems = isFeed ? previousFeedDrawerItems : previousFolderDrawerItems;
+
+        TreeItemDrawerItem drawerItem = previousDrawerItems.get(item.getId());
+        if(drawerItem == null || !drawerItem.update(item))
+            drawerItem = new TreeItemDrawerItem(item);
+
+        (isFeed ? feedDrawerItems : folderDrawerItems).put(item.getId(), drawerItem);
+
+        return drawerItem;
+    }
+
+    final void setBadge(@NonNull IDrawerItem drawerItem, int count) {
+        if(!(drawerItem instanceof Badgeable))
+            return;
+
+        final Badgeable badgeable = (Badgeable) drawerItem;
+        final StringHolder newBadge = new StringHolder(count > 0 ? String.valueOf(count) : null);
+        if (!compareBadges(badgeable.getBadge(), newBadge)) {
+            badgeable.withBadge(newBadge);
+            changedItems.add(drawerItem);
+        }
+    }
+
+    final void setSelected(@NonNull IDrawerItem drawerItem, boolean selected) {
+        if(drawerItem.isSelected() != selected) {
+            drawerItem.withSetSelected(selected);
+            changedItems.add(drawerItem);
+        }
+    }
+
+    /**
+     * Mark drawerItem as changed, so it gets rebound with the next update
+     */
+    final void setChanged(@NonNull IDrawerItem drawerItem) {
+        changedItems.add(drawerItem);
+    }
+
+    /**
+     * Update the drawer to show drawerItems, inserting and removing only the items that changed.
+     * Falls back to replacing all items if the order of the kept items changed or most items
+     * are new anyway.
+     */
+    private void updateItems(List<IDrawerItem> drawerItems) {
+        final List<IDrawerItem> oldItems = new ArrayList<>(drawer.getDrawerItems());
+
+        final Set<IDrawerItem> newItems = Collections.newSetFromMap(new IdentityHashMap<>(drawerItems.size()));
+        newItems.addAll(drawerItems);
+
+        final List<IDrawerItem> keptItems = new ArrayList<>(oldItems.size());
+        for(IDrawerItem drawerItem: oldItems) {
+            if(newItems.contains(drawerItem))
+                keptItems.add(drawerItem);
+        }
+
+        final int changes = (oldItems.size() - keptItems.size()) + (drawerItems.size() - keptItems.size());
+        // Global position of the first drawer item, the drawer might have a header
+        final int offset = keptItems.isEmpty() ? -1 : drawer.getPosition(oldItems.get(0));
+
+        if(offset < 0 || changes > drawerItems.size() / 2 || !isOrderedSubList(keptItems, drawerItems)) {
+            drawer.setItems(drawerItems);
+            return;
+        }
+
+        for(int i = oldItems.size() - 1; i >= 0; i--) {
+            if(!newItems.contains(oldItems.get(i)))
+                drawer.removeItemByPosition(offset + i);
+        }
+
+        for(int i = 0, kept = 0; i < drawerItems.size(); i++) {
+            final IDrawerItem drawerItem = drawerItems.get(i);
+            if(kept < keptItems.size() && keptItems.get(kept) == drawerItem) {
+                kept++;
+                if(changedItems.contains(drawerItem))
+                    drawer.updateItemAtPosition(drawerItem, offset + i);
+            } else {
+                drawer.addItemAtPosition(drawerItem, offset + i);
+            }
+        }
+    }
+
+    /**
+     * @return true if all items of subList appear in list in the same order
+     */
+    private static boolean isOrderedSubList(List<IDrawerItem> subList, List<IDrawerItem> list) {
+        int index = 0;
+        for(IDrawerItem drawerItem: list) {
+            if(index < subList.size() && subList.get(index) == drawerItem)
+                index++;
+        }
+        return index == subList.size();
+    }
+
     public void updateUnreadCount(Realm realm, boolean showOnlyUnread) {
         if(showOnlyUnread) {
             reload(realm, true);
         } else {
-            for (IDrawerItem drawerItem : drawer.getDrawerItems()) {
-                if (drawerItem instanceof Badgeable && drawerItem.getTag() instanceof TreeItem) {
-                    Badgeable badgeable = (Badgeable) drawerItem;
-                    Integer count = ((TreeItem) drawerItem.getTag()).getCount(realm);
-
-                    if (count <= 0) {
-                        updateBadge(badgeable, null);
-                    } else {
-                        updateBadge(badgeable, String.valueOf(count));
+            final List<IDrawerItem> drawerItems = drawer.getDrawerItems();
+            try {
+                for (IDrawerItem drawerItem : drawerItems) {
+                    if (drawerItem.getTag() instanceof TreeItem)
+                        setBadge(drawerItem, ((TreeItem) drawerItem.getTag()).getCount(realm));
+                }
+
+                if(!changedItems.isEmpty()) {
+                    final int offset = drawer.getPosition(drawerItems.get(0));
+                    for (int i = 0; offset >= 0 && i < drawerItems.size(); i++) {
+                        final IDrawerItem drawerItem = drawerItems.get(i);
+                        if (changedItems.contains(drawerItem))
+                            drawer.updateItemAtPosition(drawerItem, offset + i);
                     }
                 }
+            } finally {
+                changedItems.clear();
             }
         }
     }
@@ -74,13 +217,4 @@ abstract class BaseDrawerManager {
 
         return l == null ? r == null : l.equals(r);
     }
-
-    private void updateBadge(@NonNull Badgeable badgeable, @Nullable String badgeString) {
-        StringHolder oldBadge = badgeable.getBadge();
-        StringHolder newBadge = new StringHolder(badgeString);
-        if (!compareBadges(oldBadge, newBadge)) {
-            badgeable.withBadge(newBadge);
-            drawer.updateItem((IDrawerItem)badgeable);
-        }
-    }
 }
@@ -22,6 +22,7 @@ package email.schaal.ocreader.view.drawer;
 
 import android.content.Context;
 import android.content.SharedPreferences;
+import android.text.TextUtils;
 import androidx.annotation.Nullable;
 
 import com.mikepenz.materialdrawer.Drawer;
@@ -30,7 +31,6 @@ import com.mikepenz.materialdrawer.model.AbstractSwitchableDrawerItem;
 import com.mikepenz.materialdrawer.model.DividerDrawerItem;
 import com.mikepenz.materialdrawer.model.PrimaryDrawerItem;
 import com.mikepenz.materialdrawer.model.SectionDrawerItem;
-import com.mikepenz.materialdrawer.model.interfaces.Badgeable;
 import com.mikepenz.materialdrawer.model.interfaces.IDrawerItem;
 
 import java.util.ArrayList;
@@ -43,9 +43,11 @@ import email.schaal.ocreader.database.model.AllUnreadFolder;
 import email.schaal.ocreader.database.model.Feed;
 import email.schaal.ocreader.database.model.Folder;
 import email.schaal.ocreader.database.model.FreshFolder;
+import email.schaal.ocreader.database.model.SavedSearch;
 import email.schaal.ocreader.database.model.StarredFolder;
 import email.schaal.ocreader.database.model.TreeItem;
 import io.realm.Realm;
+import io.realm.Sort;
 
 /**
  * Manages the drawers displaying feeds and folders.
@@ -110,6 +112,9 @@ public class DrawerManager {
      */
     public class SubscriptionDrawerManager extends BaseDrawerManager {
         private final List<IDrawerItem> topDrawerItems = new ArrayList<>(3);
+        private final IDrawerItem emptyDrawerItem = new PrimaryDrawerItem()
+                .withEnabled(false)
+                .withName(R.string.no_folders_to_show);
 
         public SubscriptionDrawerManager(Drawer drawer, OnCheckedChangeListener unreadSwitchListener) {
             super(drawer);
@@ -126,35 +131,41 @@ public class DrawerManager {
 
         @Override
         protected List<IDrawerItem> reloadDrawerItems(Realm realm, boolean showOnlyUnread) {
-            final List<IDrawerItem> drawerItems = new ArrayList<>(topDrawerItems);
-            ((AbstractSwitchableDrawerItem)topDrawerItems.get(0)).withChecked(showOnlyUnread);
+            final AbstractSwitchableDrawerItem unreadSwitch = (AbstractSwitchableDrawerItem) topDrawerItems.get(0);
+            if(unreadSwitch.isChecked() != showOnlyUnread) {
+                unreadSwitch.withChecked(showOnlyUnread);
+                setChanged(unreadSwitch);
+            }
 
             for(IDrawerItem drawerItem: topDrawerItems) {
                 if(drawerItem.getTag() instanceof TreeItem) {
                     TreeItem item = (TreeItem) drawerItem.getTag();
-                    int count = item.getCount(realm);
-                    if(count > 0 && drawerItem instanceof Badgeable)
-                        ((Badgeable) drawerItem).withBadge(String.valueOf(count));
-                    if (state.getStartDrawerItem().getId() == item.getId()) {
-                        drawerItem.withSetSelected(true);
-                        break;
-                    }
+                    setBadge(drawerItem, item.getCount(realm));
+                    setSelected(drawerItem, state.getStartDrawerItem().getId() == item.getId());
                 }
             }
 
-            final List<TreeItem> treeItems = new ArrayList<>();
-            treeItems.addAll(Folder.getAll(realm, showOnlyUnread));
-            treeItems.addAll(Queries.getFeedsWithoutFolder(realm, showOnlyUnread));
+            final List<SavedSearch> savedSearches = realm.where(SavedSearch.class).sort(SavedSearch.NAME, Sort.ASCENDING).findAll();
+            final List<Folder> folders = Folder.getAll(realm, showOnlyUnread);
+            final List<Feed> feeds = Queries.getFeedsWithoutFolder(realm, showOnlyUnread);
+
+            final List<IDrawerItem> drawerItems = new ArrayList<>(topDrawerItems.size() + savedSearches.size() + folders.size() + feeds.size() + 1);
+
+            // Saved searches follow the virtual folders, before the divider
+            drawerItems.addAll(topDrawerItems.subList(0, topDrawerItems.size() - 1));
+            for (TreeItem savedSearch : savedSearches) {
+                drawerItems.add(getDrawerItem(realm, savedSearch));
+            }
+            drawerItems.add(topDrawerItems.get(topDrawerItems.size() - 1));
 
-            if(treeItems.isEmpty()) {
-                drawerItems.add(
-                        new PrimaryDrawerItem()
-                            .withEnabled(false)
-                            .withName(R.string.no_folders_to_show)
-                );
+            if(folders.isEmpty() && feeds.isEmpty()) {
+                drawerItems.add(emptyDrawerItem);
             } else {
-                for (TreeItem treeItem : treeItems) {
-                    drawerItems.add(getDrawerItem(realm, treeItem));
+                for (TreeItem folder : folders) {
+                    drawerItems.add(getDrawerItem(realm, folder));
+                }
+                for (TreeItem feed : feeds) {
+                    drawerItems.add(getDrawerItem(realm, feed));
                 }
             }
 
@@ -164,7 +175,7 @@ public class DrawerManager {
         private IDrawerItem getDrawerItem(Realm realm, TreeItem item) {
             boolean shouldSelect;
 
-            PrimaryDrawerItem drawerItem = new TreeItemDrawerItem(item);
+            IDrawerItem drawerItem = getDrawerItem(item);
 
             if (item instanceof Feed) {
                 shouldSelect = state.isFeedSelected();
@@ -174,13 +185,16 @@ public class DrawerManager {
 
             shouldSelect = shouldSelect && state.getStartDrawerItem().getId() == item.getId();
 
-            drawerItem.withBadge(item.getCount(realm));
+            setBadge(drawerItem, item.getCount(realm));
+            setSelected(drawerItem, shouldSelect);
 
-            return drawerItem.withSetSelected(shouldSelect);
+            return drawerItem;
         }
     }
 
     public class FolderDrawerManager extends BaseDrawerManager {
+        private final SectionDrawerItem sectionDrawerItem = new SectionDrawerItem().withDivider(false);
+
         public FolderDrawerManager(Drawer drawer) {
             super(drawer);
         }
@@ -193,17 +207,18 @@ public class DrawerManager {
             if (state.isFeedSelected())
                 return drawerItems;
 
-            drawerItems.add(new SectionDrawerItem()
-                    .withDivider(false)
-                    .withName(state.getStartDrawerItem().getName()));
+            final String name = state.getStartDrawerItem().getName();
+            if(sectionDrawerItem.getName() == null || !TextUtils.equals(sectionDrawerItem.getName().getText(), name)) {
+                sectionDrawerItem.withName(name);
+                setChanged(sectionDrawerItem);
+            }
+            drawerItems.add(sectionDrawerItem);
 
             if (feeds != null) {
                 for (Feed feed : feeds) {
-                    PrimaryDrawerItem drawerItem = new TreeItemDrawerItem(feed);
-                    drawerItem.withIdentifier(feed.getId());
-                    drawerItem.withBadge(feed.getUnreadCount());
-
-                    drawerItem.withSetSelected(state.getEndDrawerItem() != null && state.getEndDrawerItem().getId() == feed.getId());
+                    IDrawerItem drawerItem = getDrawerItem(feed);
+                    setBadge(drawerItem, feed.getUnreadCount());
+                    setSelected(drawerItem, state.getEndDrawerItem() != null && state.getEndDrawerItem().getId() == feed.getId());
                     drawerItems.add(drawerItem);
                 }
             }
@@ -260,6 +275,8 @@ public class DrawerManager {
                 startDrawerItem = starredFolder;
             } else if (startDrawerItemId == FreshFolder.ID) {
                 startDrawerItem = freshFolder;
+            } else if (SavedSearch.isSavedSearchId(startDrawerItemId)) {
+                startDrawerItem = SavedSearch.get(realm, startDrawerItemId);
             } else {
                 if (isFeed) {
                     startDrawerItem = Feed.get(realm, startDrawerItemId);
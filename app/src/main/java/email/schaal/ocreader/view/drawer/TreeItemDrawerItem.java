@@ -22,6 +22,7 @@ package email.schaal.ocreader.view.drawer;
 
 import androidx.annotation.NonNull;
 import androidx.core.content.ContextCompat;
+import android.text.TextUtils;
 import android.view.View;
 import android.widget.ImageView;
 
@@ -43,14 +44,16 @@ import io.realm.RealmObject;
 @SuppressWarnings("UnusedReturnValue")
 public class TreeItemDrawerItem extends PrimaryDrawerItem {
     private Feed feed;
+    private String faviconLink;
 
     public TreeItemDrawerItem(TreeItem item) {
         if(item instanceof TreeIconable) {
             withIcon(((TreeIconable) item).getIcon());
         } else if(item instanceof Feed) {
             Feed feed = (Feed) item;
-            if(feed.getFaviconLink() != null)
-                withIcon(feed.getFaviconLink());
+            faviconLink = feed.getFaviconLink();
+            if(faviconLink != null)
+                withIcon(faviconLink);
             else
                 withIcon(feed);
         }
@@ -59,6 +62,25 @@ public class TreeItemDrawerItem extends PrimaryDrawerItem {
         withIconTintingEnabled(true);
     }
 
+    /**
+     * Show item with this drawer item, if name and icon are still the same.
+     * @return false if a new drawer item has to be created for item
+     */
+    boolean update(TreeItem item) {
+        if(getName() == null || !TextUtils.equals(getName().getText(), item.getName()))
+            return false;
+
+        if(item instanceof Feed) {
+            if(!TextUtils.equals(faviconLink, ((Feed) item).getFaviconLink()))
+                return false;
+            if(feed != null)
+                feed = (Feed) item;
+        }
+
+        withTag(item);
+        return true;
+    }
+
     @Override
     protected void bindViewHelper(BaseViewHolder viewHolder) {
         super.bindViewHelper(viewHolder);
@@ -0,0 +1,114 @@
+package email.schaal.ocreader;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.SimpleTimeZone;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import email.schaal.ocreader.util.DateParser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Test class for DateParser
+ */
+@RunWith(AndroidJUnit4.class)
+public class DateParserTest {
+    @Test
+    public void testFromEpochSeconds() {
+        assertEquals(new Date(1469849100000L), DateParser.fromEpochSeconds(1469849100L));
+        assertEquals(new Date(0), DateParser.fromEpochSeconds(0));
+    }
+
+    @Test
+    public void testParseIso8601() {
+        assertEquals(1546793102000L, DateParser.parseIso8601Millis("2019-01-06T17:45:02+01:00"));
+        assertEquals(1546793102000L, DateParser.parseIso8601Millis("2019-01-06T17:45:02+0100"));
+        assertEquals(1546793102000L, DateParser.parseIso8601Millis("2019-01-06T16:45:02Z"));
+        assertEquals(1546793102000L, DateParser.parseIso8601Millis("2019-01-06T16:45:02"));
+        assertEquals(1546793102123L, DateParser.parseIso8601Millis("2019-01-06T11:45:02.123-05"));
+        assertEquals(1582934400000L, DateParser.parseIso8601Millis("2020-02-29T00:00:00+00:00"));
+        assertEquals(new Date(1546793102000L), DateParser.parseIso8601("2019-01-06T17:45:02+01:00"));
+    }
+
+    @Test
+    public void testParseInvalidIso8601() {
+        assertNull(DateParser.parseIso8601(""));
+        assertNull(DateParser.parseIso8601("2019-01-06"));
+        assertNull(DateParser.parseIso8601("2019-02-29T00:00:00Z"));
+        assertNull(DateParser.parseIso8601("2019-13-01T00:00:00Z"));
+        assertNull(DateParser.parseIso8601("2019-01-06T24:00:00Z"));
+        assertNull(DateParser.parseIso8601("2019-01-06T17:45:02+1"));
+        assertNull(DateParser.parseIso8601("2019-01-06T17:45:02Zulu"));
+        assertNull(DateParser.parseIso8601("2019-01-06T17:45:02."));
+        assertNull(DateParser.parseIso8601("not a date at all, really"));
+    }
+
+    @Test
+    public void testMatchesSimpleDateFormat() throws Exception {
+        final Random random = new Random(42);
+
+        for(int i = 0; i < 10000; i++) {
+            final String source = randomTimestamp(random);
+            final SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ssXXX", Locale.US);
+            assertEquals(source, format.parse(source).getTime(), DateParser.parseIso8601Millis(source));
+        }
+    }
+
+    @Test
+    public void testConcurrentParsing() throws Exception {
+        final Random random = new Random(42);
+        final List<String> sources = new ArrayList<>(1000);
+        final long[] expected = new long[1000];
+
+        for(int i = 0; i < expected.length; i++) {
+            final String source = randomTimestamp(random);
+            sources.add(source);
+            expected[i] = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ssXXX", Locale.US).parse(source).getTime();
+        }
+
+        final ExecutorService executorService = Executors.newFixedThreadPool(8);
+        try {
+            final List<Future<Integer>> futures = new ArrayList<>();
+            for (int thread = 0; thread < 8; thread++) {
+                futures.add(executorService.submit((Callable<Integer>) () -> {
+                    int mismatches = 0;
+                    for (int round = 0; round < 50; round++) {
+                        for (int i = 0; i < expected.length; i++) {
+                            if (DateParser.parseIso8601Millis(sources.get(i)) != expected[i])
+                                mismatches++;
+                        }
+                    }
+                    return mismatches;
+                }));
+            }
+
+            for (Future<Integer> future : futures) {
+                assertEquals(0, (int) future.get());
+            }
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    private static String randomTimestamp(Random random) {
+        final long time = (Math.abs(random.nextLong()) % 4102444800L) * 1000;
+        final int offset = (random.nextInt(27) - 12) * 60 * 60 * 1000 + (random.nextBoolean() ? 30 * 60 * 1000 : 0);
+
+        final SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ssXXX", Locale.US);
+        format.setTimeZone(new SimpleTimeZone(offset, "test"));
+        return format.format(new Date(time));
+    }
+}
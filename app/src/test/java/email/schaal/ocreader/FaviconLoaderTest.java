@@ -17,6 +17,7 @@ import androidx.test.core.app.ApplicationProvider;
 import androidx.test.ext.junit.runners.AndroidJUnit4;
 import email.schaal.ocreader.database.model.Feed;
 import email.schaal.ocreader.util.FaviconLoader;
+import email.schaal.ocreader.util.FeedColors;
 import email.schaal.ocreader.util.TextDrawable;
 
 import static org.junit.Assert.assertEquals;
@@ -54,7 +55,22 @@ public class FaviconLoaderTest {
 
     @Test
     public void testGetFeedColor() throws Exception {
-
+        Feed feed = new Feed();
+        feed.setName("Test");
+        feed.setUrl("http://example.com");
+        feed.setFaviconLink("http://example.com/favicon.ico");
+
+        // colors not generated yet
+        FeedColors feedColors = FaviconLoader.getFeedColors(ApplicationProvider.getApplicationContext(), feed);
+        assertEquals(Color.RED, feedColors.getColor(FeedColors.Type.TEXT, Color.RED));
+        assertEquals(Color.RED, feedColors.getColor(FeedColors.Type.BACKGROUND, Color.RED));
+
+        // stored colors, 0 means no suitable color
+        feed.setTextColor(Color.BLUE);
+        feed.setBackgroundColor(0);
+        feedColors = FaviconLoader.getFeedColors(ApplicationProvider.getApplicationContext(), feed);
+        assertEquals(Color.BLUE, feedColors.getColor(FeedColors.Type.TEXT, Color.RED));
+        assertEquals(Color.RED, feedColors.getColor(FeedColors.Type.BACKGROUND, Color.RED));
     }
 
     @Test
@@ -0,0 +1,80 @@
+package email.schaal.ocreader;
+
+import android.text.Html;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import email.schaal.ocreader.util.HtmlDecoder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Test class for HtmlDecoder
+ */
+@RunWith(AndroidJUnit4.class)
+public class HtmlDecoderTest {
+    private static final String[] TITLES = {
+            "Android 9 Pie: Everything you need to know",
+            "Linux 4.20 released",
+            "Q&amp;A: Why we moved to Nextcloud",
+            "Tom &amp; Jerry &ndash; the return",
+            "&quot;It works&quot;, he said",
+            "It&#8217;s time to update",
+            "It&#x2019;s time to update",
+            "Caf&eacute; &amp; Cr&egrave;me Br&ucirc;l&eacute;e",
+            "5 &lt; 6 &gt; 4",
+            "Price: 10&nbsp;&euro;",
+            "Breaking: <b>Important</b> news",
+            "<span class=\"title\">Wrapped title</span>",
+            "Title with <a href=\"http://example.com\">a link</a> inside",
+            "First line<br>Second line",
+            "First line<br/>Second line",
+            "Multiple   spaces   in   title",
+            "  Leading spaces",
+            "Line\nbreak in title",
+            "Emoji &#x1F600; title",
+            "Ellipsis&hellip; and dashes &mdash; here",
+            "&laquo;Quoted&raquo; &copy; 2019 &trade;",
+            "Unknown entity &foo; stays",
+            "Ampersand & alone",
+            "Stra&szlig;e &Uuml;berblick",
+            "The &alpha; and &Omega; of &lambda; calculus",
+            "&sum; of &radic;x &le; &infin; &rArr; &forall;x &isin; &real;",
+    };
+
+    @Test
+    public void testMatchesHtmlFromHtml() {
+        for(String title: TITLES) {
+            //noinspection deprecation
+            assertEquals(title, Html.fromHtml(title).toString(), HtmlDecoder.decode(title));
+        }
+    }
+
+    @Test
+    public void testFastPath() {
+        final String title = "A perfectly normal title";
+        assertSame(title, HtmlDecoder.decode(title));
+    }
+
+    @Test
+    public void testDecode() {
+        assertEquals("Test > Test", HtmlDecoder.decode("Test &gt; Test"));
+        assertEquals("Test", HtmlDecoder.decode("<span>Test</span>"));
+        assertEquals("a & b", HtmlDecoder.decode("a &amp; b"));
+        assertEquals("a &bogus; b", HtmlDecoder.decode("a &bogus; b"));
+        assertEquals("a &#xZZ; b", HtmlDecoder.decode("a &#xZZ; b"));
+        assertEquals("a\nb", HtmlDecoder.decode("a<BR>b"));
+        assertEquals("a", HtmlDecoder.decode("a<unterminated"));
+        assertEquals("😀", HtmlDecoder.decode("&#128512;"));
+    }
+
+    @Test
+    public void testDecodeHtml4Entities() {
+        assertEquals("αβγ ΑΩ ϑ ϖ", HtmlDecoder.decode("&alpha;&beta;&gamma; &Alpha;&Omega; &thetasym; &piv;"));
+        assertEquals("∑ ∏ ∫ ∂ ∇ √ ≈ ≡ ⊂ ⊇ ⊕ ⊥", HtmlDecoder.decode("&sum; &prod; &int; &part; &nabla; &radic; &asymp; &equiv; &sub; &supe; &oplus; &perp;"));
+        assertEquals("♠♣♥♦ ⇐⇒⇔ ↵ ◊ \u2329\u232A", HtmlDecoder.decode("&spades;&clubs;&hearts;&diams; &lArr;&rArr;&hArr; &crarr; &loz; &lang;&rang;"));
+    }
+}
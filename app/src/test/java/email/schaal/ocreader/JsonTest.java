@@ -13,9 +13,14 @@ import email.schaal.ocreader.database.model.Feed;
 import email.schaal.ocreader.api.json.FeedTypeAdapter;
 import email.schaal.ocreader.database.model.Item;
 import email.schaal.ocreader.api.json.ItemTypeAdapter;
+import email.schaal.ocreader.api.json.Items;
+import email.schaal.ocreader.api.json.ItemsTypeAdapter;
+import email.schaal.ocreader.util.MuteFilter;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 @RunWith(AndroidJUnit4.class)
 public class JsonTest {
@@ -64,4 +69,37 @@ public class JsonTest {
 
         assertEquals(expectedReducedItem, reducedItem);
     }
+
+    @Test
+    public void TestItemWithUnknownValues() throws IOException {
+        Moshi moshi = new Moshi.Builder().add(Item.class, new ItemTypeAdapter()).build();
+        String itemJson = "{\"id\":42,\"title\":\"Tom &amp; Jerry\",\"unknownKey\":{\"nested\":[1,2]},\"feedId\":3,\"enclosure\":{\"mimeType\":\"audio/mpeg\",\"size\":1024,\"url\":\"http://example.com/a.mp3\"},\"isUnread\":true}";
+        Item item = moshi.adapter(Item.class).fromJson(itemJson);
+
+        assertEquals(42, item.getId());
+        assertEquals("Tom & Jerry", item.getTitle());
+        assertEquals(3, item.getFeedId());
+        assertEquals("audio/mpeg", item.getEnclosureMime());
+        assertEquals("http://example.com/a.mp3", item.getEnclosureLink());
+    }
+
+    @Test
+    public void TestMutedItems() throws IOException {
+        final ItemsTypeAdapter itemsTypeAdapter = new ItemsTypeAdapter();
+        itemsTypeAdapter.setMuteFilter(MuteFilter.parse("giveaway"));
+        Moshi moshi = new Moshi.Builder().add(Items.class, itemsTypeAdapter).build();
+        String itemsJson = "{\"items\":["
+                + "{\"id\":1,\"title\":\"Giveaway\",\"isUnread\":true,\"lastModified\":10},"
+                + "{\"id\":2,\"title\":\"Giveaway\",\"isUnread\":false,\"lastModified\":30},"
+                + "{\"id\":3,\"title\":\"News\",\"isUnread\":true,\"lastModified\":20}]}";
+        Items items = moshi.adapter(Items.class).fromJson(itemsJson);
+
+        assertEquals(1, items.getItems().size());
+        assertEquals(3, items.getItems().get(0).getId());
+        assertTrue(items.getMutedItemIds().contains(1L));
+        assertTrue(items.getMutedItemIds().contains(2L));
+        assertTrue(items.getUnreadMutedItemIds().contains(1L));
+        assertFalse(items.getUnreadMutedItemIds().contains(2L));
+        assertEquals(30, items.getLastModified());
+    }
 }
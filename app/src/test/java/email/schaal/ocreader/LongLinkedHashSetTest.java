@@ -0,0 +1,71 @@
+package email.schaal.ocreader;
+
+import org.junit.Test;
+
+import java.util.LinkedHashSet;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+import email.schaal.ocreader.util.LongLinkedHashSet;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test class for LongLinkedHashSet
+ */
+public class LongLinkedHashSetTest {
+    @Test
+    public void testInsertionOrder() {
+        final LongLinkedHashSet set = new LongLinkedHashSet();
+
+        assertTrue(set.add(42));
+        assertTrue(set.add(-1));
+        assertTrue(set.add(Long.MAX_VALUE));
+        assertFalse(set.add(42));
+
+        assertEquals(3, set.size());
+        assertEquals(42, set.first());
+        assertArrayEquals(new long[] { 42, -1, Long.MAX_VALUE }, set.toArray());
+
+        assertTrue(set.remove(42));
+        assertFalse(set.remove(42));
+        assertEquals(-1, set.first());
+
+        assertFalse(set.toggle(-1));
+        assertTrue(set.toggle(7));
+        assertArrayEquals(new long[] { Long.MAX_VALUE, 7 }, set.toArray());
+
+        set.clear();
+        assertTrue(set.isEmpty());
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void testFirstOfEmptySet() {
+        new LongLinkedHashSet().first();
+    }
+
+    @Test
+    public void testMatchesLinkedHashSet() {
+        final Random random = new Random(42);
+        final LongLinkedHashSet set = new LongLinkedHashSet();
+        final LinkedHashSet<Long> expected = new LinkedHashSet<>();
+
+        for(int i = 0; i < 100000; i++) {
+            final long value = random.nextInt(5000);
+            if(random.nextInt(3) < 2)
+                assertEquals(expected.add(value), set.add(value));
+            else
+                assertEquals(expected.remove(value), set.remove(value));
+
+            assertEquals(expected.size(), set.size());
+        }
+
+        final long[] values = set.toArray();
+        int i = 0;
+        for(long value: expected)
+            assertEquals(value, values[i++]);
+    }
+}
@@ -0,0 +1,50 @@
+package email.schaal.ocreader;
+
+import org.junit.Test;
+
+import email.schaal.ocreader.util.MuteFilter;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test class for MuteFilter
+ */
+public class MuteFilterTest {
+    @Test
+    public void testEmpty() {
+        assertSame(MuteFilter.EMPTY, MuteFilter.parse(null));
+        assertSame(MuteFilter.EMPTY, MuteFilter.parse("\n  \nauthor:\n/[/\n"));
+        assertFalse(MuteFilter.EMPTY.isMuted("Title", "Author", "Body"));
+    }
+
+    @Test
+    public void testKeywords() {
+        final MuteFilter muteFilter = MuteFilter.parse("sponsored post\ngiveaway");
+
+        assertTrue(muteFilter.isMuted("Weekly giveaway", null, null));
+        assertTrue(muteFilter.isMuted("A post", null, "<p>This is <b>sponsored</b></p>"));
+        assertFalse(muteFilter.isMuted("Sponsored", null, "<p>No posts here</p>"));
+        assertFalse(muteFilter.isMuted("Giveaways", null, null));
+        assertFalse(muteFilter.isMuted("Title", null, "<a href=\"giveaway\">link</a>"));
+    }
+
+    @Test
+    public void testAuthor() {
+        final MuteFilter muteFilter = MuteFilter.parse("Author: press office");
+
+        assertTrue(muteFilter.isMuted("Title", "The Press Office", null));
+        assertFalse(muteFilter.isMuted("Press office", "Jane Doe", null));
+        assertFalse(muteFilter.isMuted("Title", null, null));
+    }
+
+    @Test
+    public void testRegex() {
+        final MuteFilter muteFilter = MuteFilter.parse("/^\\[ad\\]/\n/deal of the (day|week)/");
+
+        assertTrue(muteFilter.isMuted("[AD] Buy now", null, null));
+        assertTrue(muteFilter.isMuted("Title", null, "<p>Deal of the week</p>"));
+        assertFalse(muteFilter.isMuted("Not an [ad]", null, null));
+    }
+}
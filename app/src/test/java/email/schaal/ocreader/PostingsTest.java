@@ -0,0 +1,72 @@
+package email.schaal.ocreader;
+
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.TreeSet;
+
+import email.schaal.ocreader.util.Postings;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Test class for Postings
+ */
+public class PostingsTest {
+    @Test
+    public void testEncodeDecode() {
+        assertArrayEquals(Postings.EMPTY, Postings.decode(Postings.encode(Postings.EMPTY)));
+        assertArrayEquals(Postings.EMPTY, Postings.decode(null));
+
+        final long[] ids = { 0, 1, 127, 128, 300, 16384, Integer.MAX_VALUE, Long.MAX_VALUE };
+        assertArrayEquals(ids, Postings.decode(Postings.encode(ids)));
+
+        // Dense ids take one byte each, plus the count
+        final long[] denseIds = new long[100];
+        for(int i = 0; i < denseIds.length; i++)
+            denseIds[i] = 1000 + i * 3;
+        assertEquals(102, Postings.encode(denseIds).length);
+    }
+
+    @Test
+    public void testSetOperations() {
+        final Random random = new Random(42);
+
+        for(int round = 0; round < 100; round++) {
+            final TreeSet<Long> lhsSet = new TreeSet<>();
+            final TreeSet<Long> rhsSet = new TreeSet<>();
+            final long[] unsorted = new long[random.nextInt(50)];
+            for(int i = 0; i < unsorted.length; i++) {
+                unsorted[i] = random.nextInt(100);
+                lhsSet.add(unsorted[i]);
+            }
+            for(int i = random.nextInt(50); i > 0; i--)
+                rhsSet.add((long) random.nextInt(100));
+
+            final long[] lhs = Postings.sort(unsorted, unsorted.length);
+            final long[] rhs = toArray(rhsSet);
+            assertArrayEquals(toArray(lhsSet), lhs);
+
+            final TreeSet<Long> union = new TreeSet<>(lhsSet);
+            union.addAll(rhsSet);
+            assertArrayEquals(toArray(union), Postings.union(lhs, rhs));
+
+            final TreeSet<Long> intersection = new TreeSet<>(lhsSet);
+            intersection.retainAll(rhsSet);
+            assertArrayEquals(toArray(intersection), Postings.intersect(lhs, rhs));
+
+            final TreeSet<Long> difference = new TreeSet<>(lhsSet);
+            difference.removeAll(rhsSet);
+            assertArrayEquals(toArray(difference), Postings.subtract(lhs, rhs));
+        }
+    }
+
+    private static long[] toArray(TreeSet<Long> set) {
+        final long[] result = new long[set.size()];
+        int i = 0;
+        for(long value: set)
+            result[i++] = value;
+        return result;
+    }
+}
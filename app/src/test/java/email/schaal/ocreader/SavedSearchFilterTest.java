@@ -0,0 +1,58 @@
+package email.schaal.ocreader;
+
+import org.junit.Test;
+
+import java.util.Date;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+import email.schaal.ocreader.database.SearchIndex;
+import email.schaal.ocreader.database.model.Item;
+import email.schaal.ocreader.database.model.SavedSearch;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test class for SavedSearch.Filter
+ */
+public class SavedSearchFilterTest {
+    private static final long NOW = 1_500_000_000_000L;
+
+    private static boolean matches(SavedSearch savedSearch, Item item) {
+        final NavigableSet<String> terms = new TreeSet<>();
+        SearchIndex.tokenize(item, terms);
+        return new SavedSearch.Filter(savedSearch, NOW).matches(item, terms);
+    }
+
+    private static Item.Builder item() {
+        return new Item.Builder()
+                .setId(1)
+                .setFeedId(3)
+                .setTitle("Release notes")
+                .setAuthor("Jane Doe")
+                .setBody("<p class=\"intro\">The new <b>podcast</b> episode</p>")
+                .setPubDate(new Date(NOW - TimeUnit.HOURS.toMillis(2)));
+    }
+
+    @Test
+    public void testKeywords() {
+        assertTrue(matches(new SavedSearch(-100, "test", "pod rel", null, new long[0], 0, false), item().build()));
+        assertFalse(matches(new SavedSearch(-100, "test", "pod video", null, new long[0], 0, false), item().build()));
+        // Markup is not indexed
+        assertFalse(matches(new SavedSearch(-100, "test", "intro", null, new long[0], 0, false), item().build()));
+    }
+
+    @Test
+    public void testFilters() {
+        assertTrue(matches(new SavedSearch(-100, "test", null, "jane", new long[] { 2, 3 }, 1, false), item().build()));
+        assertFalse(matches(new SavedSearch(-100, "test", null, "john", new long[0], 0, false), item().build()));
+        assertFalse(matches(new SavedSearch(-100, "test", null, null, new long[] { 2 }, 0, false), item().build()));
+        assertFalse(matches(new SavedSearch(-100, "test", null, null, new long[0], 1, false),
+                item().setPubDate(new Date(NOW - TimeUnit.DAYS.toMillis(2))).build()));
+        assertFalse(matches(new SavedSearch(-100, "test", null, null, new long[0], 0, true), item().build()));
+        assertTrue(matches(new SavedSearch(-100, "test", null, null, new long[0], 0, true),
+                item().setEnclosureLink("https://example.com/episode.mp3").build()));
+    }
+}
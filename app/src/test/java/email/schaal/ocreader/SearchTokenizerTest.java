@@ -0,0 +1,42 @@
+package email.schaal.ocreader;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import email.schaal.ocreader.util.SearchTokenizer;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Test class for SearchTokenizer
+ */
+public class SearchTokenizerTest {
+    private static List<String> tokenize(String text, boolean html) {
+        final List<String> terms = new ArrayList<>();
+        SearchTokenizer.tokenize(text, html, terms);
+        return terms;
+    }
+
+    @Test
+    public void testText() {
+        assertEquals(Arrays.asList("hello", "world", "42", "über"), tokenize("Hello, World! 42 a Über", false));
+        assertEquals(Arrays.asList("supercalifragilisticexpi"), tokenize("Supercalifragilisticexpialidocious", false));
+        assertEquals(0, tokenize(null, false).size());
+    }
+
+    @Test
+    public void testHtml() {
+        assertEquals(
+                Arrays.asList("first", "paragraph", "link", "fish", "chips", "it", "fine"),
+                tokenize("<p class=\"intro\">First paragraph</p><a href=\"https://example.com\">link</a> fish &amp; chips, it&#8217;s fine & <br/>", true));
+    }
+
+    @Test
+    public void testHtmlEntitiesInTerms() {
+        assertEquals(Arrays.asList("café", "naïve", "straße"), tokenize("caf&eacute; na&iuml;ve Stra&#223;e", true));
+        assertEquals(Arrays.asList("crème", "brûlée"), tokenize("<b>Cr&egrave;me</b> Br&ucirc;l&eacute;e", true));
+    }
+}
@@ -0,0 +1,81 @@
+package email.schaal.ocreader;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+import email.schaal.ocreader.util.SegmentStore;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test class for SegmentStore
+ */
+public class SegmentStoreTest {
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testPutAndGet() throws IOException {
+        final SegmentStore segmentStore = new SegmentStore(folder.newFolder());
+
+        final SegmentStore.Address first = segmentStore.put("<p>Hello Wörld</p>");
+        final SegmentStore.Address empty = segmentStore.put("");
+        final SegmentStore.Address second = segmentStore.put("<p>Second body</p>");
+
+        assertEquals("<p>Hello Wörld</p>", segmentStore.get(first));
+        assertEquals("", segmentStore.get(empty));
+        assertEquals("<p>Second body</p>", segmentStore.get(second));
+        assertEquals(first.offset + first.length, empty.offset);
+    }
+
+    @Test
+    public void testReopen() throws IOException {
+        final File directory = folder.newFolder();
+
+        final SegmentStore.Address address = new SegmentStore(directory).put("persisted");
+        final SegmentStore segmentStore = new SegmentStore(directory);
+
+        assertEquals("persisted", segmentStore.get(address));
+        assertEquals(address.offset + address.length, segmentStore.put("appended").offset);
+    }
+
+    @Test
+    public void testSegments() throws IOException {
+        final SegmentStore segmentStore = new SegmentStore(folder.newFolder());
+
+        // Incompressible data, so the records fill the segments
+        final StringBuilder builder = new StringBuilder();
+        long seed = 42;
+        for(int i = 0; i < SegmentStore.SEGMENT_SIZE / 2; i++) {
+            seed = seed * 6364136223846793005L + 1442695040888963407L;
+            builder.append((char) ('!' + (seed >>> 33) % 90));
+        }
+        final String body = builder.toString();
+
+        final SegmentStore.Address first = segmentStore.put(body);
+        segmentStore.put(body);
+        final SegmentStore.Address third = segmentStore.put(body);
+
+        assertEquals(Arrays.asList(0, 1), segmentStore.getSegments());
+        assertEquals(1, third.segment);
+        assertEquals(0, third.offset);
+
+        final SegmentStore.Address copy = segmentStore.copy(first);
+        assertEquals(1, copy.segment);
+
+        segmentStore.delete(0);
+        assertFalse(segmentStore.getSegments().contains(0));
+        assertEquals(body, segmentStore.get(copy));
+
+        // The active segment is never deleted
+        segmentStore.delete(1);
+        assertTrue(segmentStore.getSegments().contains(1));
+    }
+}
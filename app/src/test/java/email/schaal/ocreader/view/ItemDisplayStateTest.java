@@ -0,0 +1,84 @@
+package email.schaal.ocreader.view;
+
+import android.content.Context;
+import android.preference.PreferenceManager;
+import android.text.format.DateUtils;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.lang.management.ManagementFactory;
+import java.util.Date;
+
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import email.schaal.ocreader.util.StringUtils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Test class for ItemDisplayState
+ */
+@RunWith(AndroidJUnit4.class)
+public class ItemDisplayStateTest {
+    private static final long NOW = 1546793102000L;
+
+    private final Context context = ApplicationProvider.getApplicationContext();
+
+    private final Date[] dates = {
+            new Date(NOW + DateUtils.MINUTE_IN_MILLIS),
+            new Date(NOW),
+            new Date(NOW - 5 * DateUtils.MINUTE_IN_MILLIS),
+            new Date(NOW - 59 * DateUtils.MINUTE_IN_MILLIS),
+            new Date(NOW - 3 * DateUtils.HOUR_IN_MILLIS),
+            new Date(NOW - 23 * DateUtils.HOUR_IN_MILLIS),
+            new Date(NOW - 2 * DateUtils.DAY_IN_MILLIS),
+            new Date(NOW - 400 * DateUtils.DAY_IN_MILLIS)
+    };
+
+    private ItemDisplayState createDisplayState() {
+        return new ItemDisplayState(context, PreferenceManager.getDefaultSharedPreferences(context));
+    }
+
+    @Test
+    public void testTimeSpanString() {
+        final ItemDisplayState displayState = createDisplayState();
+
+        for(Date date: dates) {
+            final String timeSpanString = displayState.getTimeSpanString(date, NOW);
+            assertEquals(StringUtils.getTimeSpanString(context, date, new Date(NOW)), timeSpanString);
+            assertSame(timeSpanString, displayState.getTimeSpanString(date, NOW));
+        }
+    }
+
+    @Test
+    public void testTimeSpanStringDoesNotAllocate() {
+        final java.lang.management.ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        assumeTrue(threadMXBean instanceof com.sun.management.ThreadMXBean);
+
+        final com.sun.management.ThreadMXBean allocationBean = (com.sun.management.ThreadMXBean) threadMXBean;
+        assumeTrue(allocationBean.isThreadAllocatedMemorySupported() && allocationBean.isThreadAllocatedMemoryEnabled());
+
+        final ItemDisplayState displayState = createDisplayState();
+
+        // first round fills the caches
+        for(Date date: dates)
+            displayState.getTimeSpanString(date, NOW);
+
+        final long threadId = Thread.currentThread().getId();
+        final long allocatedBefore = allocationBean.getThreadAllocatedBytes(threadId);
+
+        for(int i = 0; i < 10000; i++) {
+            for (Date date : dates)
+                displayState.getTimeSpanString(date, NOW);
+        }
+
+        final long allocated = allocationBean.getThreadAllocatedBytes(threadId) - allocatedBefore;
+
+        // Allow for the few bytes allocated by the measurement itself
+        assertTrue("Allocated " + allocated + " bytes", allocated < 1024);
+    }
+}